@@ -0,0 +1,56 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts the connection semaphore in front of the Hikari pool when requests run
+ * on virtual threads ({@code spring.threads.virtual.enabled=true}). With
+ * platform threads Tomcat's pool already bounds how many requests reach the
+ * DataSource, so the pool is used as it is.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    public static BeanPostProcessor dataSourceDecorator(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikari) || !Threading.VIRTUAL.isActive(environment)) {
+                    return bean;
+                }
+                long acquireTimeoutMillis = environment.getProperty(
+                        "app.threading.db-acquire-timeout-ms", Long.class, 5000L);
+                return new ConnectionLimitingDataSource(hikari, hikari.getMaximumPoolSize(), acquireTimeoutMillis);
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public MeterBinder connectionLimitMetrics(DataSource dataSource) {
+        return registry -> {
+            DataSource target = dataSource;
+            while (target instanceof DelegatingDataSource delegating && !(target instanceof ConnectionLimitingDataSource)) {
+                target = delegating.getTargetDataSource();
+            }
+            if (target instanceof ConnectionLimitingDataSource limited) {
+                Gauge.builder("foodly.db.permits.available", limited, ConnectionLimitingDataSource::getAvailablePermits)
+                        .register(registry);
+                Gauge.builder("foodly.db.permits.waiting", limited, ConnectionLimitingDataSource::getWaiting)
+                        .register(registry);
+            }
+        };
+    }
+}
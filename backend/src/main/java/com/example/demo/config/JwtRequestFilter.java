@@ -1,12 +1,17 @@
 package com.example.demo.config;
 
 import com.example.demo.service.CustomUserDetailsService;
+import com.example.demo.service.JwtClaims;
 import com.example.demo.service.JwtUtil;
+import com.example.demo.service.UserDetailsCache;
+import com.example.demo.security.AuthenticatedUser;
 import com.example.demo.security.JwtCookieService;
+import com.example.demo.security.TokenRevocationList;
+import com.example.demo.web.RequestTrace;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -30,6 +35,10 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     private JwtUtil jwtUtil;
     @Autowired
     private JwtCookieService jwtCookieService;
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+    @Autowired
+    private TokenRevocationList revocationList;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
@@ -47,8 +56,9 @@ public class JwtRequestFilter extends OncePerRequestFilter {
             return;
         }
         
+        long authStart = System.nanoTime();
         final String authHeader = request.getHeader("Authorization");
-        String username = null;
+        JwtClaims claims = null;
         String jwt = null;
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             jwt = authHeader.substring(7);
@@ -58,20 +68,32 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         if (jwt != null && !jwt.trim().isEmpty() && !"null".equals(jwt) && !"undefined".equals(jwt)) {
             try {
-                username = jwtUtil.extractUsername(jwt);
+                claims = jwtUtil.verify(jwt);
             } catch (Exception e) {
                 logger.debug("Invalid JWT on path {}", path);
             }
+            if (claims != null && revocationList.isRevoked(claims)) {
+                logger.debug("Revoked JWT for {} on path {}", claims.subject(), path);
+                claims = null;
+            }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        if (claims != null && claims.subject() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             try {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-                if (jwtUtil.validateToken(jwt, userDetails.getUsername())) {
+                // Cached per user, so only the block/version check touches the database, and only on a miss.
+                AuthenticatedUser current = userDetailsCache.get(claims.subject(),
+                        subject -> userDetailsService.loadUserByUsername(subject).withoutPassword());
+                if (isCurrent(claims, current)) {
+                    AuthenticatedUser principal = claims.userId() != null
+                            ? new AuthenticatedUser(claims.userId(), claims.subject(), null, claims.role(),
+                                    claims.restaurantId(), claims.tokenVersion())
+                            : current;
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities());
+                            principal, null, principal.getAuthorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
+                } else {
+                    logger.debug("JWT for {} was issued before its token version changed", claims.subject());
                 }
             } catch (UsernameNotFoundException e) {
                 logger.debug("JWT subject no longer maps to an active user");
@@ -79,15 +101,31 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                 logger.warn("Unable to authenticate JWT subject");
             }
         }
+        RequestTrace trace = RequestTrace.of(request);
+        if (trace != null) {
+            trace.recordAuth(System.nanoTime() - authStart);
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+                trace.setRole(user.getRole());
+            }
+        }
         chain.doFilter(request, response);
     }
 
+    private boolean isCurrent(JwtClaims claims, AuthenticatedUser current) {
+        return claims.subject().equals(current.getUsername())
+                && claims.tokenVersion() == current.getTokenVersion()
+                && (claims.userId() == null || claims.userId().equals(current.getId()));
+    }
+
     private boolean isPublicAuthPath(String path) {
         return path.startsWith("/auth/login")
                 || path.startsWith("/auth/signup")
                 || path.startsWith("/auth/google")
+                || path.startsWith("/auth/refresh")
                 || path.startsWith("/api/v1/auth/login")
                 || path.startsWith("/api/v1/auth/signup")
-                || path.startsWith("/api/v1/auth/google");
+                || path.startsWith("/api/v1/auth/google")
+                || path.startsWith("/api/v1/auth/refresh");
     }
 } 
@@ -14,9 +14,12 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import com.example.demo.config.JwtRequestFilter;
 import com.example.demo.security.GoogleOAuth2SuccessHandler;
+import com.example.demo.web.ApiVersionConfig;
 
 @Configuration
 @EnableWebSecurity
@@ -49,6 +52,18 @@ public class SecurityConfig implements WebMvcConfigurer {
             .maxAge(3600);
     }
     
+    // Rules are written against legacy paths and apply to their /api/v1 spellings too.
+    private static String[] withVersions(String... patterns) {
+        List<String> all = new ArrayList<>(List.of(patterns));
+        for (String pattern : patterns) {
+            String versioned = ApiVersionConfig.versioned(pattern);
+            if (versioned != null) {
+                all.add(versioned);
+            }
+        }
+        return all.toArray(String[]::new);
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
@@ -56,33 +71,34 @@ public class SecurityConfig implements WebMvcConfigurer {
             .and()
             .csrf().disable()
             .authorizeHttpRequests()
+                // Async results are redispatched after the original request was already authorized.
+                .dispatcherTypeMatchers(jakarta.servlet.DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/", "/health", "/actuator/**").permitAll()
                 .requestMatchers("/swagger-ui/**", "/swagger-ui.html", "/api-docs/**").permitAll()
                 .requestMatchers("/oauth2/**", "/login/oauth2/**").permitAll()
-                .requestMatchers("/auth/**").permitAll()
-                .requestMatchers("/api/v1/auth/**").permitAll()
-                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/restaurants").permitAll()
-                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/restaurants/slug/**").permitAll()
-                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/restaurants/*/menu/customer").permitAll()
-                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/restaurants/*/reviews").permitAll()
-                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/restaurants/*/analytics").hasAnyRole("RESTAURANT", "RESTAURANT_OWNER")
-                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/restaurants/*/orders").hasAnyRole("RESTAURANT", "RESTAURANT_OWNER")
-                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/restaurants/*/menu").hasAnyRole("RESTAURANT", "RESTAURANT_OWNER")
-                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/restaurants/by-owner/**").hasAnyRole("RESTAURANT", "RESTAURANT_OWNER")
-                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/restaurants/*").permitAll()
-                .requestMatchers("/api/support/**").hasAnyRole("CUSTOMER", "RESTAURANT", "RESTAURANT_OWNER")
-                .requestMatchers("/api/cart/**").hasRole("CUSTOMER")
-                .requestMatchers("/api/customers/**").hasRole("CUSTOMER")
-                .requestMatchers(org.springframework.http.HttpMethod.POST, "/api/restaurants/**").hasAnyRole("RESTAURANT", "RESTAURANT_OWNER")
-                .requestMatchers(org.springframework.http.HttpMethod.PUT, "/api/restaurants/**").hasAnyRole("RESTAURANT", "RESTAURANT_OWNER")
-                .requestMatchers(org.springframework.http.HttpMethod.DELETE, "/api/restaurants/**").hasAnyRole("RESTAURANT", "RESTAURANT_OWNER")
-                .requestMatchers(org.springframework.http.HttpMethod.POST, "/api/reviews/**").hasRole("CUSTOMER")
-                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/reviews/restaurant/**").permitAll()
-                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/reviews/**").hasAnyRole("CUSTOMER", "RESTAURANT", "RESTAURANT_OWNER")
-                .requestMatchers("/api/orders/**").hasAnyRole("CUSTOMER", "RESTAURANT", "RESTAURANT_OWNER")
-                .requestMatchers("/api/admin/**").hasRole("ADMIN")
-                .requestMatchers("/api/offers/admin/**").hasRole("ADMIN")
-                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/offers/**").permitAll()
+                .requestMatchers(withVersions("/auth/**")).permitAll()
+                .requestMatchers(org.springframework.http.HttpMethod.GET, withVersions("/api/restaurants")).permitAll()
+                .requestMatchers(org.springframework.http.HttpMethod.GET, withVersions("/api/restaurants/slug/**")).permitAll()
+                .requestMatchers(org.springframework.http.HttpMethod.GET, withVersions("/api/restaurants/*/menu/customer")).permitAll()
+                .requestMatchers(org.springframework.http.HttpMethod.GET, withVersions("/api/restaurants/*/reviews")).permitAll()
+                .requestMatchers(org.springframework.http.HttpMethod.GET, withVersions("/api/restaurants/*/analytics")).hasAnyRole("RESTAURANT", "RESTAURANT_OWNER")
+                .requestMatchers(org.springframework.http.HttpMethod.GET, withVersions("/api/restaurants/*/orders")).hasAnyRole("RESTAURANT", "RESTAURANT_OWNER")
+                .requestMatchers(org.springframework.http.HttpMethod.GET, withVersions("/api/restaurants/*/menu")).hasAnyRole("RESTAURANT", "RESTAURANT_OWNER")
+                .requestMatchers(org.springframework.http.HttpMethod.GET, withVersions("/api/restaurants/by-owner/**")).hasAnyRole("RESTAURANT", "RESTAURANT_OWNER")
+                .requestMatchers(org.springframework.http.HttpMethod.GET, withVersions("/api/restaurants/*")).permitAll()
+                .requestMatchers(withVersions("/api/support/**")).hasAnyRole("CUSTOMER", "RESTAURANT", "RESTAURANT_OWNER")
+                .requestMatchers(withVersions("/api/cart/**")).hasRole("CUSTOMER")
+                .requestMatchers(withVersions("/api/customers/**")).hasRole("CUSTOMER")
+                .requestMatchers(org.springframework.http.HttpMethod.POST, withVersions("/api/restaurants/**")).hasAnyRole("RESTAURANT", "RESTAURANT_OWNER")
+                .requestMatchers(org.springframework.http.HttpMethod.PUT, withVersions("/api/restaurants/**")).hasAnyRole("RESTAURANT", "RESTAURANT_OWNER")
+                .requestMatchers(org.springframework.http.HttpMethod.DELETE, withVersions("/api/restaurants/**")).hasAnyRole("RESTAURANT", "RESTAURANT_OWNER")
+                .requestMatchers(org.springframework.http.HttpMethod.POST, withVersions("/api/reviews/**")).hasRole("CUSTOMER")
+                .requestMatchers(org.springframework.http.HttpMethod.GET, withVersions("/api/reviews/restaurant/**")).permitAll()
+                .requestMatchers(org.springframework.http.HttpMethod.GET, withVersions("/api/reviews/**")).hasAnyRole("CUSTOMER", "RESTAURANT", "RESTAURANT_OWNER")
+                .requestMatchers(withVersions("/api/orders/**")).hasAnyRole("CUSTOMER", "RESTAURANT", "RESTAURANT_OWNER")
+                .requestMatchers(withVersions("/api/admin/**")).hasRole("ADMIN")
+                .requestMatchers(withVersions("/api/offers/admin/**")).hasRole("ADMIN")
+                .requestMatchers(org.springframework.http.HttpMethod.GET, withVersions("/api/offers/**")).permitAll()
                 .anyRequest().authenticated()
            .and()
            .addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class);
@@ -8,18 +8,33 @@ import com.example.demo.repository.CustomerRepository;
 import com.example.demo.repository.RestaurantRepository;
 import com.example.demo.repository.OrderRepository;
 import com.example.demo.repository.ReviewRepository;
+import com.example.demo.security.RestaurantOwnership;
+import com.example.demo.service.AuthTokenService;
+import com.example.demo.service.Bulkheads;
+import com.example.demo.service.ContentVersions;
+import com.example.demo.service.OrderSummaryService;
+import com.example.demo.service.SparseFields;
+import com.example.demo.service.SparseFields.Field;
+import com.example.demo.service.SparseFields.Shape;
+import com.example.demo.service.UserDetailsCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/admin")
 @PreAuthorize("hasRole('ADMIN')")
 public class AdminController {
+    // fields= for the user and restaurant lists, named like their full responses.
+    private static final Shape USER_SHAPE = new Shape("User u", "u.id", "u.id", userFields());
+    private static final Shape RESTAURANT_SHAPE = new Shape("Restaurant r", "r.id", "r.id", restaurantFields());
+
     @Autowired
     private CustomerRepository customerRepository;
     @Autowired
@@ -28,10 +43,28 @@ public class AdminController {
     private OrderRepository orderRepository;
     @Autowired
     private ReviewRepository reviewRepository;
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+    @Autowired
+    private RestaurantOwnership restaurantOwnership;
+    @Autowired
+    private AuthTokenService authTokenService;
+    @Autowired
+    private Bulkheads bulkheads;
+    @Autowired
+    private OrderSummaryService orderSummaryService;
+    @Autowired
+    private ContentVersions contentVersions;
+    @Autowired
+    private SparseFields sparseFields;
 
     @GetMapping("/users")
-    public List<Map<String, Object>> getAllUsers() {
-        return customerRepository.findAll().stream().map(user -> {
+    public CompletableFuture<List<Map<String, Object>>> getAllUsers(@RequestParam(required = false) String fields) {
+        if (fields != null) {
+            sparseFields.parse(USER_SHAPE, fields);
+            return bulkheads.submit(Bulkheads.ADMIN, () -> sparseFields.list(USER_SHAPE, fields));
+        }
+        return bulkheads.submit(Bulkheads.ADMIN, () -> customerRepository.findAll().stream().map(user -> {
             Map<String, Object> dto = new HashMap<>();
             dto.put("id", user.getId());
             dto.put("username", user.getUsername());
@@ -40,12 +73,16 @@ public class AdminController {
             dto.put("isBlocked", user.getIsBlocked() != null ? user.getIsBlocked() : false);
             // Note: createdAt would need to be added to User model if needed
             return dto;
-        }).collect(Collectors.toList());
+        }).collect(Collectors.toList()));
     }
 
     @GetMapping("/restaurants")
-    public List<Map<String, Object>> getAllRestaurants() {
-        return restaurantRepository.findAll().stream().map(restaurant -> {
+    public CompletableFuture<List<Map<String, Object>>> getAllRestaurants(@RequestParam(required = false) String fields) {
+        if (fields != null) {
+            sparseFields.parse(RESTAURANT_SHAPE, fields);
+            return bulkheads.submit(Bulkheads.ADMIN, () -> sparseFields.list(RESTAURANT_SHAPE, fields));
+        }
+        return bulkheads.submit(Bulkheads.ADMIN, () -> restaurantRepository.findAll().stream().map(restaurant -> {
             Map<String, Object> dto = new HashMap<>();
             dto.put("id", restaurant.getId());
             dto.put("name", restaurant.getName());
@@ -65,63 +102,17 @@ public class AdminController {
                 dto.put("owner", owner);
             }
             return dto;
-        }).collect(Collectors.toList());
+        }).collect(Collectors.toList()));
     }
 
     @GetMapping("/orders")
-    public List<Map<String, Object>> getAllOrders() {
-        return orderRepository.findAll().stream().map(order -> {
-            Map<String, Object> dto = new HashMap<>();
-            dto.put("id", order.getId());
-            dto.put("userId", order.getUserId());
-            dto.put("restaurantId", order.getRestaurantId());
-            dto.put("status", order.getStatus());
-            dto.put("total", order.getTotal());
-            dto.put("createdAt", order.getCreatedAt());
-            dto.put("created_at", order.getCreatedAt()); // Also include snake_case for compatibility
-            
-            // Add customer information
-            if (order.getUserId() != null) {
-                var userOpt = customerRepository.findById(order.getUserId());
-                if (userOpt.isPresent()) {
-                    User customer = userOpt.get();
-                    dto.put("customerName", customer.getUsername());
-                    dto.put("customerEmail", customer.getEmail());
-                }
-            }
-            
-            // Add restaurant information
-            if (order.getRestaurantId() != null) {
-                var restaurantOpt = restaurantRepository.findById(order.getRestaurantId());
-                if (restaurantOpt.isPresent()) {
-                    Restaurant restaurant = restaurantOpt.get();
-                    dto.put("restaurantName", restaurant.getName());
-                    dto.put("restaurantAddress", restaurant.getAddress());
-                }
-            }
-            
-            // Convert order items to DTOs
-            if (order.getItems() != null) {
-                List<Map<String, Object>> items = order.getItems().stream().map(item -> {
-                    Map<String, Object> itemDto = new HashMap<>();
-                    itemDto.put("id", item.getId());
-                    itemDto.put("menuItemId", item.getMenuItemId());
-                    itemDto.put("name", item.getName());
-                    itemDto.put("price", item.getPrice());
-                    itemDto.put("quantity", item.getQuantity());
-                    return itemDto;
-                }).collect(Collectors.toList());
-                dto.put("items", items);
-            } else {
-                dto.put("items", new java.util.ArrayList<>());
-            }
-            return dto;
-        }).collect(Collectors.toList());
+    public CompletableFuture<List<?>> getAllOrders(@RequestParam(required = false) String fields) {
+        return bulkheads.submit(Bulkheads.ADMIN, () -> orderSummaryService.all(fields));
     }
 
     @GetMapping("/reviews")
-    public List<Map<String, Object>> getAllReviews() {
-        return reviewRepository.findAll().stream().map(review -> {
+    public CompletableFuture<List<Map<String, Object>>> getAllReviews() {
+        return bulkheads.submit(Bulkheads.ADMIN, () -> reviewRepository.findAll().stream().map(review -> {
             Map<String, Object> dto = new HashMap<>();
             dto.put("id", review.getId());
             dto.put("orderId", review.getOrderId());
@@ -136,7 +127,7 @@ public class AdminController {
                 dto.put("customerName", review.getCustomer().getUsername());
             }
             return dto;
-        }).collect(Collectors.toList());
+        }).collect(Collectors.toList()));
     }
 
     // Block a user
@@ -144,7 +135,12 @@ public class AdminController {
     public Map<String, Object> blockUser(@PathVariable Long id) {
         User user = customerRepository.findById(id).orElseThrow();
         user.setIsBlocked(true);
+        // Invalidate every token issued so far, including after a later unblock.
+        user.setTokenVersion((user.getTokenVersion() != null ? user.getTokenVersion() : 0) + 1);
         User saved = customerRepository.save(user);
+        userDetailsCache.evict(saved);
+        // Other instances only see the version bump on a cache miss; the revocation reaches them within seconds.
+        authTokenService.revokeAllForUser(saved.getId());
         Map<String, Object> dto = new HashMap<>();
         dto.put("id", saved.getId());
         dto.put("username", saved.getUsername());
@@ -159,6 +155,7 @@ public class AdminController {
         User user = customerRepository.findById(id).orElseThrow();
         user.setIsBlocked(false);
         User saved = customerRepository.save(user);
+        userDetailsCache.evict(saved);
         Map<String, Object> dto = new HashMap<>();
         dto.put("id", saved.getId());
         dto.put("username", saved.getUsername());
@@ -170,7 +167,9 @@ public class AdminController {
     // Delete a user
     @DeleteMapping("/users/{id}")
     public void deleteUser(@PathVariable Long id) {
+        customerRepository.findById(id).ifPresent(userDetailsCache::evict);
         customerRepository.deleteById(id);
+        restaurantOwnership.evictOwner(id);
     }
 
     // Approve a restaurant (set isActive=true)
@@ -179,6 +178,7 @@ public class AdminController {
         Restaurant r = restaurantRepository.findById(id).orElseThrow();
         r.setIsActive(true);
         Restaurant saved = restaurantRepository.save(r);
+        contentVersions.restaurantChanged(id);
         Map<String, Object> dto = new HashMap<>();
         dto.put("id", saved.getId());
         dto.put("name", saved.getName());
@@ -191,6 +191,7 @@ public class AdminController {
         Restaurant r = restaurantRepository.findById(id).orElseThrow();
         r.setIsActive(false);
         Restaurant saved = restaurantRepository.save(r);
+        contentVersions.restaurantChanged(id);
         Map<String, Object> dto = new HashMap<>();
         dto.put("id", saved.getId());
         dto.put("name", saved.getName());
@@ -200,7 +201,13 @@ public class AdminController {
     // Delete a restaurant
     @DeleteMapping("/restaurants/{id}")
     public void deleteRestaurant(@PathVariable Long id) {
+        Long ownerId = restaurantRepository.findById(id)
+                .map(restaurant -> restaurant.getOwner() != null ? restaurant.getOwner().getId() : null)
+                .orElse(null);
         restaurantRepository.deleteById(id);
+        restaurantOwnership.evictOwner(ownerId);
+        contentVersions.restaurantChanged(id);
+        contentVersions.catalogChanged();
     }
 
     // Cancel an order (set status="Cancelled")
@@ -249,4 +256,32 @@ public class AdminController {
         dto.put("isFlagged", saved.getIsFlagged());
         return dto;
     }
-} 
+
+    private static Map<String, Field> userFields() {
+        Map<String, Field> fields = new LinkedHashMap<>();
+        fields.put("id", Field.column("u.id"));
+        fields.put("username", Field.column("u.username"));
+        fields.put("email", Field.column("u.email"));
+        fields.put("role", Field.column("u.role"));
+        fields.put("isBlocked", Field.column("COALESCE(u.isBlocked, false)"));
+        return fields;
+    }
+
+    private static Map<String, Field> restaurantFields() {
+        String owner = "LEFT JOIN r.owner o";
+        Map<String, Field> fields = new LinkedHashMap<>();
+        fields.put("id", Field.column("r.id"));
+        fields.put("name", Field.column("r.name"));
+        fields.put("address", Field.column("r.address"));
+        fields.put("phone", Field.column("r.phone"));
+        fields.put("cuisineType", Field.column("r.cuisineType"));
+        fields.put("description", Field.column("r.description"));
+        fields.put("openingHours", Field.column("r.openingHours"));
+        fields.put("isActive", Field.column("r.isActive"));
+        fields.put("slug", Field.column("r.slug"));
+        fields.put("owner.id", Field.joined("o.id", owner));
+        fields.put("owner.username", Field.joined("o.username", owner));
+        fields.put("owner.email", Field.joined("o.email", owner));
+        return fields;
+    }
+}
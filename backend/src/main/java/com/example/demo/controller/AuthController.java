@@ -9,7 +9,10 @@ import com.example.demo.exception.ApiException;
 import com.example.demo.repository.CustomerRepository;
 import com.example.demo.repository.RestaurantRepository;
 import com.example.demo.security.JwtCookieService;
-import com.example.demo.service.JwtUtil;
+import com.example.demo.service.AccountService;
+import com.example.demo.service.AuthTokenService;
+import com.example.demo.service.PasswordHashingService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,15 +21,11 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.view.RedirectView;
 
 import java.util.Map;
-import java.text.Normalizer;
 import java.util.Optional;
-import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/auth")
@@ -34,16 +33,17 @@ public class AuthController {
     @Autowired
     private CustomerRepository customerRepository;
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
     @Autowired
-    private JwtUtil jwtUtil;
+    private AuthTokenService authTokenService;
     @Autowired
     private RestaurantRepository restaurantRepository;
     @Autowired
     private JwtCookieService jwtCookieService;
+    @Autowired
+    private AccountService accountService;
 
     @PostMapping("/signup")
-    @Transactional
     public ResponseEntity<Map<String, Object>> signup(@Valid @RequestBody SignupRequest req) {
         String username = req.getUsername().trim();
         String email = req.getEmail().trim().toLowerCase();
@@ -52,41 +52,15 @@ public class AuthController {
         if ("ADMIN".equals(role)) {
             throw new ApiException("ROLE_NOT_ALLOWED", "Admin accounts cannot be created through public signup", HttpStatus.FORBIDDEN);
         }
-        
-        if (customerRepository.findByUsername(username).isPresent()) {
-            throw new ApiException("USERNAME_EXISTS", "Username already exists", HttpStatus.CONFLICT);
-        }
-        if (customerRepository.findByEmail(email).isPresent()) {
-            throw new ApiException("EMAIL_EXISTS", "Email already exists", HttpStatus.CONFLICT);
-        }
-        
-        User customer = new User();
-        customer.setUsername(username);
-        customer.setPassword(passwordEncoder.encode(req.getPassword()));
-        customer.setEmail(email);
-        customer.setRole(role);
-        customer.setProvider("LOCAL");
-        customer.setEmailVerified(false);
-        customer = customerRepository.save(customer);
-        Long restaurantId = null;
-        
-        // If registering as restaurant, create restaurant entity
-        if ("RESTAURANT".equals(role) || "RESTAURANT_OWNER".equals(role)) {
-            Restaurant restaurant = new Restaurant();
-            restaurant.setName(req.getRestaurantName());
-            restaurant.setAddress(req.getRestaurantAddress());
-            restaurant.setPhone(req.getRestaurantPhone());
-            restaurant.setCuisineType(req.getCuisineType());
-            restaurant.setDescription(req.getDescription());
-            restaurant.setOpeningHours(req.getOpeningHours());
-            restaurant.setIsActive(true);
-            restaurant.setSlug(generateUniqueSlug(req.getRestaurantName()));
-            restaurant.setOwner(customer);
-            restaurantId = restaurantRepository.save(restaurant).getId();
-        }
+
+        // Hash before the account transaction opens, so waiting for a hashing slot holds no connection.
+        String passwordHash = passwordHashingService.encode(req.getPassword());
+        AccountService.Registration registration = accountService.register(req, username, email, role, passwordHash);
+        User customer = registration.user();
+        Long restaurantId = registration.restaurantId();
 
         String responseRole = frontendRole(customer.getRole());
-        String token = jwtUtil.generateToken(customer.getUsername(), customer.getRole());
+        AuthTokenService.IssuedTokens tokens = authTokenService.issue(customer, restaurantId);
         Map<String, Object> body = new java.util.HashMap<>();
         body.put("message", "Signup successful");
         body.put("id", customer.getId());
@@ -98,7 +72,7 @@ public class AuthController {
         }
 
         return ResponseEntity.ok()
-                .header(HttpHeaders.SET_COOKIE, jwtCookieService.createTokenCookie(token).toString())
+                .header(HttpHeaders.SET_COOKIE, tokens.cookies().toArray(String[]::new))
                 .body(body);
     }
 
@@ -135,29 +109,38 @@ public class AuthController {
         if (customer.getPassword() == null || customer.getPassword().isBlank()) {
             throw new ApiException("OAUTH_ACCOUNT", "Please sign in with Google for this account.", HttpStatus.UNAUTHORIZED);
         }
-        boolean passwordMatches = passwordEncoder.matches(password, customer.getPassword());
+        boolean passwordMatches = passwordHashingService.matches(password, customer.getPassword());
         if (!passwordMatches) {
             throw new ApiException("INVALID_CREDENTIALS", "Invalid credentials", HttpStatus.UNAUTHORIZED);
         }
-        // Ensure role is uppercase for JWT token
+        if (passwordHashingService.needsRehash(customer.getPassword())) {
+            // The cost factor was raised since this hash was made; upgrade it while we have the plaintext.
+            try {
+                String upgraded = passwordHashingService.encode(password);
+                if (accountService.replacePasswordHash(customer.getId(), customer.getPassword(), upgraded)) {
+                    customer.setPassword(upgraded);
+                }
+            } catch (ApiException e) {
+                // Shed under load: keep the old hash and upgrade on a later login.
+            }
+        }
+        // Ensure role is uppercase for the response
         String customerRole = customer.getRole() != null ? customer.getRole().toUpperCase() : "CUSTOMER";
         String responseRole = frontendRole(customerRole);
-        String token = jwtUtil.generateToken(customer.getUsername(), customerRole);
+        Long restaurantId = "RESTAURANT".equalsIgnoreCase(responseRole)
+                ? restaurantRepository.findIdByOwnerId(customer.getId()).orElse(null)
+                : null;
+        AuthTokenService.IssuedTokens tokens = authTokenService.issue(customer, restaurantId);
         
         ResponseEntity.BodyBuilder response = ResponseEntity.ok()
-                .header(HttpHeaders.SET_COOKIE, jwtCookieService.createTokenCookie(token).toString());
-
-        if ("RESTAURANT".equalsIgnoreCase(responseRole)) {
-            Optional<Restaurant> restaurant = restaurantRepository.findByOwner_Id(customer.getId());
-            if (restaurant.isPresent()) {
-                return response.body(Map.of(
-                    "id", customer.getId(),
-                    "role", responseRole,
-                    "restaurantId", restaurant.get().getId()
-                ));
-            } else {
-                return response.body(Map.of("id", customer.getId(), "role", responseRole));
-            }
+                .header(HttpHeaders.SET_COOKIE, tokens.cookies().toArray(String[]::new));
+
+        if (restaurantId != null) {
+            return response.body(Map.of(
+                "id", customer.getId(),
+                "role", responseRole,
+                "restaurantId", restaurantId
+            ));
         }
         return response.body(Map.of("id", customer.getId(), "role", responseRole));
     }
@@ -178,9 +161,30 @@ public class AuthController {
         return new AuthUserResponse(user.getId(), user.getUsername(), user.getEmail(), frontendRole(user.getRole()), restaurantId);
     }
 
+    // Rotates the refresh cookie and issues a new access cookie; the old refresh token stops working.
+    @PostMapping("/refresh")
+    public ResponseEntity<Map<String, Object>> refresh(HttpServletRequest request) {
+        AuthTokenService.IssuedTokens tokens = authTokenService.refresh(
+                jwtCookieService.readRefreshToken(request).orElse(null));
+        Map<String, Object> body = new java.util.HashMap<>();
+        body.put("id", tokens.user().getId());
+        body.put("role", frontendRole(tokens.user().getRole()));
+        if (tokens.restaurantId() != null) {
+            body.put("restaurantId", tokens.restaurantId());
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, tokens.cookies().toArray(String[]::new))
+                .body(body);
+    }
+
     @PostMapping("/logout")
-    public ResponseEntity<Map<String, Object>> logout(HttpServletResponse response) {
-        response.addHeader(HttpHeaders.SET_COOKIE, jwtCookieService.clearTokenCookie().toString());
+    public ResponseEntity<Map<String, Object>> logout(HttpServletRequest request, HttpServletResponse response) {
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        String accessToken = authHeader != null && authHeader.startsWith("Bearer ")
+                ? authHeader.substring(7)
+                : jwtCookieService.readToken(request).orElse(null);
+        authTokenService.logout(accessToken, jwtCookieService.readRefreshToken(request).orElse(null));
+        authTokenService.clearCookies().forEach(cookie -> response.addHeader(HttpHeaders.SET_COOKIE, cookie));
         return ResponseEntity.ok(Map.of("message", "Logged out"));
     }
 
@@ -199,24 +203,4 @@ public class AuthController {
     private String frontendRole(String storedRole) {
         return normalizeRole(storedRole);
     }
-
-    private String generateUniqueSlug(String name) {
-        String baseSlug = slugify(name);
-        String uniqueSlug = baseSlug;
-        int count = 1;
-        while (restaurantRepository.findBySlug(uniqueSlug).isPresent()) {
-            uniqueSlug = baseSlug + "-" + count;
-            count++;
-        }
-        return uniqueSlug;
-    }
-
-    private String slugify(String input) {
-        String safeInput = input == null || input.isBlank() ? "restaurant" : input.trim();
-        String nowhitespace = Pattern.compile("\\s+").matcher(safeInput).replaceAll("-");
-        String normalized = Normalizer.normalize(nowhitespace, Normalizer.Form.NFD);
-        String slug = Pattern.compile("[^a-zA-Z0-9-]").matcher(normalized).replaceAll("");
-        slug = slug.toLowerCase();
-        return slug.isBlank() ? "restaurant" : slug;
-    }
 }
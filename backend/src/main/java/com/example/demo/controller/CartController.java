@@ -1,11 +1,14 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CartView;
 import com.example.demo.model.Cart;
 import com.example.demo.model.MenuItem;
 import com.example.demo.model.User;
 import com.example.demo.repository.CartRepository;
 import com.example.demo.repository.CustomerRepository;
 import com.example.demo.repository.MenuItemRepository;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.AuthenticatedUserResolver;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -24,35 +27,20 @@ public class CartController {
     private CustomerRepository customerRepository;
     @Autowired
     private MenuItemRepository menuItemRepository;
+    @Autowired
+    private AuthenticatedUserResolver authenticatedUserResolver;
 
     @GetMapping
-    public Map<String, Object> getCart(@AuthenticationPrincipal UserDetails userDetails) {
-        User customer = customerRepository.findByUsername(userDetails.getUsername()).orElseThrow();
-        List<Cart> cartItems = cartRepository.findByCustomerId(customer.getId());
-        
-        // Convert to frontend expected format
-        List<Map<String, Object>> items = cartItems.stream()
-            .map(item -> {
-                Map<String, Object> map = new java.util.HashMap<>();
-                map.put("name", item.getMenuItem().getName());
-                map.put("price", item.getMenuItem().getPrice());
-                map.put("qty", item.getQuantity());
-                map.put("restaurantId", item.getMenuItem().getRestaurant().getId());
-                map.put("menu_item_id", item.getMenuItem().getId());
-                return map;
-            })
-            .toList();
-        
-        return Map.of(
-            "items", items,
-            "address", "" // Cart doesn't store address in database
-        );
+    public CartView getCart(@AuthenticationPrincipal UserDetails userDetails) {
+        AuthenticatedUser customer = authenticatedUserResolver.resolve(userDetails);
+        return new CartView(cartRepository.findLinesByCustomerId(customer.getId()));
     }
 
     @PutMapping
     @Transactional
-    public Map<String, Object> updateCart(@RequestBody Map<String, Object> request, @AuthenticationPrincipal UserDetails userDetails) {
-        User customer = customerRepository.findByUsername(userDetails.getUsername()).orElseThrow();
+    public CartView updateCart(@RequestBody Map<String, Object> request, @AuthenticationPrincipal UserDetails userDetails) {
+        AuthenticatedUser authenticated = authenticatedUserResolver.resolve(userDetails);
+        User customer = customerRepository.getReferenceById(authenticated.getId());
         // Clear existing cart
         cartRepository.deleteByCustomerId(customer.getId());
         @SuppressWarnings("unchecked")
@@ -96,7 +84,7 @@ public class CartController {
 
     @DeleteMapping
     public void clearCart(@AuthenticationPrincipal UserDetails userDetails) {
-        User customer = customerRepository.findByUsername(userDetails.getUsername()).orElseThrow();
+        AuthenticatedUser customer = authenticatedUserResolver.resolve(userDetails);
         cartRepository.deleteByCustomerId(customer.getId());
     }
 } 
@@ -4,7 +4,12 @@ import com.example.demo.model.User;
 import com.example.demo.model.Wishlist;
 import com.example.demo.exception.ApiException;
 import com.example.demo.repository.CustomerRepository;
+import com.example.demo.repository.RestaurantRepository;
 import com.example.demo.repository.WishlistRepository;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.AuthenticatedUserResolver;
+import com.example.demo.service.ContentVersions;
+import com.example.demo.service.UserDetailsCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -25,10 +30,18 @@ public class CustomerController {
     private CustomerRepository customerRepository;
     @Autowired
     private WishlistRepository wishlistRepository;
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+    @Autowired
+    private AuthenticatedUserResolver authenticatedUserResolver;
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+    @Autowired
+    private ContentVersions contentVersions;
 
     @GetMapping
     public List<Map<String, Object>> getAllCustomers(@AuthenticationPrincipal UserDetails principal) {
-        User requester = authenticatedUser(principal);
+        AuthenticatedUser requester = authenticatedUserResolver.resolve(principal);
         if (!"ADMIN".equals(requester.getRole())) {
             throw new AccessDeniedException("Forbidden");
         }
@@ -39,7 +52,7 @@ public class CustomerController {
 
     @GetMapping("/{id}")
     public Map<String, Object> getCustomerById(@PathVariable Long id, @AuthenticationPrincipal UserDetails principal) {
-        User user = requireSelf(id, principal);
+        User user = requireSelfUser(id, principal);
         return toSafeUserDto(user);
     }
 
@@ -89,7 +102,7 @@ public class CustomerController {
 
     @PostMapping("/{id}/wishlist")
     public ResponseEntity<?> addToWishlist(@PathVariable Long id, @RequestBody Map<String, Object> request, @AuthenticationPrincipal UserDetails principal) {
-        User user = requireSelf(id, principal);
+        User user = requireSelfUser(id, principal);
         
         String type = (String) request.get("type");
         String name = (String) request.get("name");
@@ -154,12 +167,14 @@ public class CustomerController {
     @PutMapping("/{id}")
     public Map<String, Object> updateCustomer(@PathVariable Long id, @RequestBody Map<String, Object> customerDetails,
                                               @AuthenticationPrincipal UserDetails principal) {
-        User customer = requireSelf(id, principal);
+        User customer = requireSelfUser(id, principal);
         String username = stringValue(customerDetails.get("username"));
         if (username == null) {
             username = stringValue(customerDetails.get("name"));
         }
         String email = stringValue(customerDetails.get("email"));
+        String previousUsername = customer.getUsername();
+        String previousEmail = customer.getEmail();
 
         if (username != null && !username.isBlank()) {
             customer.setUsername(username.trim());
@@ -167,7 +182,15 @@ public class CustomerController {
         if (email != null && !email.isBlank()) {
             customer.setEmail(email.trim().toLowerCase());
         }
-        return toSafeUserDto(customerRepository.save(customer));
+        User saved = customerRepository.save(customer);
+        // Tokens issued for the old username or email must stop resolving; evicted once the change is saved.
+        userDetailsCache.evict(previousUsername);
+        userDetailsCache.evict(previousEmail);
+        // Public restaurant pages show the owner's name and email.
+        if ("RESTAURANT".equals(saved.getRole())) {
+            restaurantRepository.findIdByOwnerId(saved.getId()).ifPresent(contentVersions::restaurantChanged);
+        }
+        return toSafeUserDto(saved);
     }
 
     @DeleteMapping("/{id}")
@@ -176,19 +199,16 @@ public class CustomerController {
         throw new AccessDeniedException("Customer deletion is only available through admin management");
     }
 
-    private User requireSelf(Long requestedId, UserDetails principal) {
-        User authenticated = authenticatedUser(principal);
+    private void requireSelf(Long requestedId, UserDetails principal) {
+        AuthenticatedUser authenticated = authenticatedUserResolver.resolve(principal);
         if (!authenticated.getId().equals(requestedId)) {
             throw new AccessDeniedException("Forbidden");
         }
-        return authenticated;
     }
 
-    private User authenticatedUser(UserDetails principal) {
-        if (principal == null) {
-            throw new ApiException("UNAUTHENTICATED", "Authentication required", HttpStatus.UNAUTHORIZED);
-        }
-        return customerRepository.findByUsername(principal.getUsername())
+    private User requireSelfUser(Long requestedId, UserDetails principal) {
+        requireSelf(requestedId, principal);
+        return customerRepository.findById(requestedId)
             .orElseThrow(() -> new ApiException("USER_NOT_FOUND", "User not found", HttpStatus.NOT_FOUND));
     }
 
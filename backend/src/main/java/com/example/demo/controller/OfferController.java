@@ -2,10 +2,15 @@ package com.example.demo.controller;
 
 import com.example.demo.model.Offer;
 import com.example.demo.repository.OfferRepository;
+import com.example.demo.service.BusinessMetrics;
+import com.example.demo.service.ContentVersions;
+import com.example.demo.service.SingleFlight;
+import com.example.demo.web.HttpCaching;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -18,12 +23,26 @@ public class OfferController {
     
     @Autowired
     private OfferRepository offerRepository;
+    @Autowired
+    private BusinessMetrics businessMetrics;
+    @Autowired
+    private ContentVersions contentVersions;
+    @Autowired
+    private HttpCaching httpCaching;
+    @Autowired
+    private SingleFlight singleFlight;
     
     // Get all active and valid offers (public endpoint)
     @GetMapping
-    public ResponseEntity<List<Offer>> getAllOffers() {
-        List<Offer> offers = offerRepository.findActiveAndValidOffers(LocalDateTime.now());
-        return ResponseEntity.ok(offers);
+    public ResponseEntity<List<Offer>> getAllOffers(WebRequest request) {
+        String etag = httpCaching.offersTag();
+        if (httpCaching.matches(request, etag)) {
+            return httpCaching.notModified(etag);
+        }
+        // The tag already carries the offers version and expiry window, so it is the load's key.
+        List<Offer> offers = singleFlight.load("offers", etag,
+            () -> List.copyOf(offerRepository.findActiveAndValidOffers(LocalDateTime.now())));
+        return httpCaching.ok(etag, offers);
     }
     
     // Admin endpoint to get all offers (including inactive ones)
@@ -75,6 +94,7 @@ public class OfferController {
         Map<String, Object> response = new HashMap<>();
         
         if (offer == null) {
+            businessMetrics.couponValidated("invalid");
             response.put("valid", false);
             response.put("message", "Invalid or expired coupon code");
             return ResponseEntity.ok(response);
@@ -82,11 +102,13 @@ public class OfferController {
         
         // Check if offer is applicable to the restaurant
         if (offer.getRestaurantId() != null && !offer.getRestaurantId().equals(restaurantId)) {
+            businessMetrics.couponValidated("wrong_restaurant");
             response.put("valid", false);
             response.put("message", "This coupon is not valid for this restaurant");
             return ResponseEntity.ok(response);
         }
         
+        businessMetrics.couponValidated("valid");
         response.put("valid", true);
         response.put("offer", offer);
         response.put("message", "Coupon is valid");
@@ -100,6 +122,7 @@ public class OfferController {
     public ResponseEntity<Offer> createOffer(@RequestBody Offer offer) {
         offer.setActive(true);
         Offer savedOffer = offerRepository.save(offer);
+        contentVersions.offersChanged();
         return ResponseEntity.ok(savedOffer);
     }
     
@@ -124,6 +147,7 @@ public class OfferController {
         offer.setActive(offerDetails.isActive());
         
         Offer updatedOffer = offerRepository.save(offer);
+        contentVersions.offersChanged();
         return ResponseEntity.ok(updatedOffer);
     }
     
@@ -132,6 +156,7 @@ public class OfferController {
     public ResponseEntity<?> deleteOffer(@PathVariable Long id) {
         Offer offer = offerRepository.findById(id).orElseThrow(() -> new RuntimeException("Offer not found"));
         offerRepository.delete(offer);
+        contentVersions.offersChanged();
         return ResponseEntity.ok().build();
     }
     
@@ -141,6 +166,7 @@ public class OfferController {
         Offer offer = offerRepository.findById(id).orElseThrow(() -> new RuntimeException("Offer not found"));
         offer.setActive(!offer.isActive());
         Offer updatedOffer = offerRepository.save(offer);
+        contentVersions.offersChanged();
         return ResponseEntity.ok(updatedOffer);
     }
 } 
\ No newline at end of file
@@ -1,6 +1,6 @@
 package com.example.demo.controller;
 
-import com.example.demo.exception.ApiException;
+import com.example.demo.dto.OrderSummary;
 import com.example.demo.model.ChatMessage;
 import com.example.demo.model.MenuItem;
 import com.example.demo.model.Order;
@@ -12,9 +12,15 @@ import com.example.demo.repository.CustomerRepository;
 import com.example.demo.repository.MenuItemRepository;
 import com.example.demo.repository.OrderRepository;
 import com.example.demo.repository.RestaurantRepository;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.AuthenticatedUserResolver;
+import com.example.demo.security.RestaurantOwnership;
+import com.example.demo.service.BusinessMetrics;
+import com.example.demo.service.ContentVersions;
+import com.example.demo.service.OrderSummaryService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.transaction.annotation.Transactional;
@@ -40,20 +46,31 @@ public class OrderController {
     @Autowired
     private RestaurantRepository restaurantRepository;
     @Autowired
+    private AuthenticatedUserResolver authenticatedUserResolver;
+    @Autowired
+    private RestaurantOwnership restaurantOwnership;
+    @Autowired
     private ChatMessageRepository chatMessageRepository;
+    @Autowired
+    private BusinessMetrics businessMetrics;
+    @Autowired
+    private OrderSummaryService orderSummaryService;
+    @Autowired
+    private ContentVersions contentVersions;
 
     @GetMapping
-    public List<Map<String, Object>> getAllOrders(@AuthenticationPrincipal UserDetails userDetails) {
-        User user = authenticatedUser(userDetails);
+    public List<?> getAllOrders(@AuthenticationPrincipal UserDetails userDetails,
+                                @RequestParam(required = false) String fields) {
+        AuthenticatedUser user = authenticatedUser(userDetails);
         if (!"ADMIN".equals(user.getRole())) {
             throw new AccessDeniedException("Access denied");
         }
-        return orderRepository.findAll().stream().map(this::toOrderDto).toList();
+        return orderSummaryService.all(fields);
     }
 
     @GetMapping("/{id}")
-    public Map<String, Object> getOrderById(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
-        User user = authenticatedUser(userDetails);
+    public OrderSummary getOrderById(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
+        AuthenticatedUser user = authenticatedUser(userDetails);
         Order order = orderRepository.findById(id).orElseThrow();
         requireOrderAccess(user, order);
         return toOrderDto(order);
@@ -61,8 +78,8 @@ public class OrderController {
 
     @PostMapping
     @Transactional
-    public Map<String, Object> placeOrder(@RequestBody Map<String, Object> req, @AuthenticationPrincipal UserDetails userDetails) {
-        User customer = authenticatedUser(userDetails);
+    public OrderSummary placeOrder(@RequestBody Map<String, Object> req, @AuthenticationPrincipal UserDetails userDetails) {
+        AuthenticatedUser customer = authenticatedUser(userDetails);
         if (!"CUSTOMER".equals(customer.getRole())) {
             throw new AccessDeniedException("Only customers can place orders");
         }
@@ -79,6 +96,7 @@ public class OrderController {
 
         double total = 0.0;
         Long restaurantId = null;
+        boolean stockChanged = false;
         List<OrderItem> orderItems = new java.util.ArrayList<>();
 
         for (Map<String, Object> item : items) {
@@ -91,6 +109,7 @@ public class OrderController {
             MenuItem menuItem = menuItemRepository.findById(menuItemId)
                 .orElseThrow(() -> new IllegalArgumentException("Menu item not found"));
             if (!Boolean.TRUE.equals(menuItem.getIsAvailable())) {
+                businessMetrics.stockOut("unavailable");
                 throw new IllegalArgumentException("Menu item '" + menuItem.getName() + "' is not available");
             }
             if (menuItem.getRestaurant() == null) {
@@ -107,9 +126,14 @@ public class OrderController {
 
             if (Boolean.TRUE.equals(menuItem.getShowQuantity()) && menuItem.getQuantityAvailable() != null) {
                 if (quantity > menuItem.getQuantityAvailable()) {
+                    businessMetrics.stockOut("insufficient_quantity");
                     throw new IllegalArgumentException("Insufficient quantity for '" + menuItem.getName() + "'. Available: " + menuItem.getQuantityAvailable());
                 }
                 menuItem.setQuantityAvailable(menuItem.getQuantityAvailable() - quantity);
+                stockChanged = true;
+                if (menuItem.getQuantityAvailable() == 0) {
+                    businessMetrics.stockOut("sold_out");
+                }
             }
 
             OrderItem orderItem = new OrderItem();
@@ -124,35 +148,38 @@ public class OrderController {
 
         order.setTotal(total);
         order.setItems(orderItems);
-        return toOrderDto(orderRepository.save(order));
+        Order saved = orderRepository.save(order);
+        if (stockChanged) {
+            // The customer menu shows remaining quantities.
+            contentVersions.restaurantChanged(restaurantId);
+        }
+        businessMetrics.orderPlaced(total);
+        return toOrderDto(saved);
     }
 
     @GetMapping("/my")
-    public List<Map<String, Object>> getMyOrders(@AuthenticationPrincipal UserDetails userDetails) {
-        User customer = authenticatedUser(userDetails);
+    public List<?> getMyOrders(@AuthenticationPrincipal UserDetails userDetails,
+                               @RequestParam(required = false) String fields) {
+        AuthenticatedUser customer = authenticatedUser(userDetails);
         if (!"CUSTOMER".equals(customer.getRole())) {
             throw new AccessDeniedException("Only customers can view this order list");
         }
-        return orderRepository.findByUserIdOrderByCreatedAtDesc(customer.getId()).stream()
-            .map(order -> toOrderDto(order, customer))
-            .toList();
+        return orderSummaryService.forCustomer(customer.getId(), fields);
     }
 
     @GetMapping("/restaurant/{restaurantId}")
-    public List<Map<String, Object>> getOrdersForRestaurant(@PathVariable Long restaurantId,
-                                                            @AuthenticationPrincipal UserDetails userDetails) {
-        User user = authenticatedUser(userDetails);
-        requireRestaurantOwner(user, restaurantId);
-        return orderRepository.findByRestaurantIdOrderByCreatedAtDesc(restaurantId).stream()
-            .map(this::toOrderDto)
-            .toList();
+    @PreAuthorize("@restaurantOwnership.owns(authentication, #restaurantId)")
+    public List<?> getOrdersForRestaurant(@PathVariable Long restaurantId,
+                                          @AuthenticationPrincipal UserDetails userDetails,
+                                          @RequestParam(required = false) String fields) {
+        return orderSummaryService.forRestaurant(restaurantId, fields);
     }
 
     @PutMapping("/{id}")
     @Transactional
-    public Map<String, Object> updateOrder(@PathVariable Long id, @RequestBody Order orderDetails,
+    public OrderSummary updateOrder(@PathVariable Long id, @RequestBody Order orderDetails,
                                            @AuthenticationPrincipal UserDetails userDetails) {
-        User user = authenticatedUser(userDetails);
+        AuthenticatedUser user = authenticatedUser(userDetails);
         Order order = orderRepository.findById(id).orElseThrow();
         requireRestaurantOwner(user, order.getRestaurantId());
         if (orderDetails.getStatus() != null) {
@@ -171,9 +198,9 @@ public class OrderController {
 
     @PutMapping("/{orderId}/status")
     @Transactional
-    public Map<String, Object> updateOrderStatus(@PathVariable Long orderId, @RequestBody Map<String, Object> request,
+    public OrderSummary updateOrderStatus(@PathVariable Long orderId, @RequestBody Map<String, Object> request,
                                                  @AuthenticationPrincipal UserDetails userDetails) {
-        User user = authenticatedUser(userDetails);
+        AuthenticatedUser user = authenticatedUser(userDetails);
         Order order = orderRepository.findById(orderId).orElseThrow();
         requireRestaurantOwner(user, order.getRestaurantId());
 
@@ -198,48 +225,37 @@ public class OrderController {
         notification.setCustomerId(order.getUserId());
         notification.setRestaurantId(order.getRestaurantId());
         notification.setSender("restaurant");
-        notification.setMessage("Order status update: Order #" + order.getId() + " is now " + newStatus + ".");
+        notification.setMessage(ChatMessage.ORDER_STATUS_PREFIX + " Order #" + order.getId() + " is now " + newStatus + ".");
         notification.setTimestamp(new java.util.Date());
         notification.setIsRead(false);
         chatMessageRepository.save(notification);
     }
 
-    private void requireOrderAccess(User user, Order order) {
+    private void requireOrderAccess(AuthenticatedUser user, Order order) {
         if ("ADMIN".equals(user.getRole())) {
             return;
         }
         if ("CUSTOMER".equals(user.getRole()) && order.getUserId().equals(user.getId())) {
             return;
         }
-        if (isRestaurantRole(user) && ownsRestaurant(user, order.getRestaurantId())) {
+        if (isRestaurantRole(user) && restaurantOwnership.owns(user, order.getRestaurantId())) {
             return;
         }
         throw new AccessDeniedException("Forbidden");
     }
 
-    private void requireRestaurantOwner(User user, Long restaurantId) {
-        if (!isRestaurantRole(user) || !ownsRestaurant(user, restaurantId)) {
+    private void requireRestaurantOwner(AuthenticatedUser user, Long restaurantId) {
+        if (!isRestaurantRole(user) || !restaurantOwnership.owns(user, restaurantId)) {
             throw new AccessDeniedException("Forbidden");
         }
     }
 
-    private boolean ownsRestaurant(User user, Long restaurantId) {
-        return restaurantId != null
-            && restaurantRepository.findByOwner_Id(user.getId())
-                .map(Restaurant::getId)
-                .filter(restaurantId::equals)
-                .isPresent();
+    private boolean isRestaurantRole(AuthenticatedUser user) {
+        return user.isRestaurant();
     }
 
-    private boolean isRestaurantRole(User user) {
-        return "RESTAURANT".equals(user.getRole()) || "RESTAURANT_OWNER".equals(user.getRole());
-    }
-
-    private User authenticatedUser(UserDetails userDetails) {
-        if (userDetails == null) {
-            throw new ApiException("UNAUTHENTICATED", "Authentication required", HttpStatus.UNAUTHORIZED);
-        }
-        return customerRepository.findByUsername(userDetails.getUsername()).orElseThrow();
+    private AuthenticatedUser authenticatedUser(UserDetails userDetails) {
+        return authenticatedUserResolver.resolve(userDetails);
     }
 
     private String validatedStatus(String status) {
@@ -249,43 +265,11 @@ public class OrderController {
         return status;
     }
 
-    private Map<String, Object> toOrderDto(Order order) {
+    private OrderSummary toOrderDto(Order order) {
         User customer = order.getUserId() != null ? customerRepository.findById(order.getUserId()).orElse(null) : null;
-        return toOrderDto(order, customer);
-    }
-
-    private Map<String, Object> toOrderDto(Order order, User customer) {
-        Map<String, Object> dto = new java.util.HashMap<>();
-        dto.put("id", order.getId());
-        dto.put("userId", order.getUserId());
-        dto.put("restaurantId", order.getRestaurantId());
-        dto.put("status", order.getStatus());
-        dto.put("total", order.getTotal());
-        dto.put("createdAt", order.getCreatedAt());
-        dto.put("created_at", order.getCreatedAt());
-        dto.put("date", order.getCreatedAt() != null ? order.getCreatedAt() : order.getId());
-        if (customer != null) {
-            dto.put("customerName", customer.getUsername());
-            dto.put("customerEmail", customer.getEmail());
-        }
-        if (order.getRestaurantId() != null) {
-            restaurantRepository.findById(order.getRestaurantId()).ifPresent(restaurant -> {
-                dto.put("restaurantName", restaurant.getName());
-                dto.put("restaurant", restaurant.getName());
-                dto.put("restaurantAddress", restaurant.getAddress());
-            });
-        }
-        List<Map<String, Object>> items = order.getItems() == null ? List.of() : order.getItems().stream().map(item -> {
-            Map<String, Object> itemDto = new java.util.HashMap<>();
-            itemDto.put("id", item.getId());
-            itemDto.put("menuItemId", item.getMenuItemId());
-            itemDto.put("name", item.getName());
-            itemDto.put("price", item.getPrice());
-            itemDto.put("quantity", item.getQuantity());
-            return itemDto;
-        }).toList();
-        dto.put("items", items);
-        return dto;
+        Restaurant restaurant = order.getRestaurantId() != null
+            ? restaurantRepository.findById(order.getRestaurantId()).orElse(null) : null;
+        return OrderSummary.of(order, customer, restaurant);
     }
 
     private Long requiredLong(Object value, String message) {
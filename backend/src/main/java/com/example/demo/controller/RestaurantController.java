@@ -1,7 +1,12 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.MenuItemView;
+import com.example.demo.dto.RatingCount;
+import com.example.demo.dto.RatingSummary;
+import com.example.demo.dto.RestaurantPage;
+import com.example.demo.dto.RestaurantSummary;
+import com.example.demo.exception.ApiException;
 import com.example.demo.model.Restaurant;
-import com.example.demo.model.User;
 import com.example.demo.repository.RestaurantRepository;
 import com.example.demo.model.MenuItem;
 import com.example.demo.repository.MenuItemRepository;
@@ -9,24 +14,49 @@ import com.example.demo.repository.OrderRepository;
 import com.example.demo.repository.OrderItemRepository;
 import com.example.demo.repository.ReviewRepository;
 import com.example.demo.repository.CartRepository;
+import com.example.demo.model.Offer;
 import com.example.demo.model.Order;
 import com.example.demo.model.Review;
+import com.example.demo.repository.OfferRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import java.text.Normalizer;
 import java.util.regex.Pattern;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import com.example.demo.repository.CustomerRepository;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.AuthenticatedUserResolver;
+import com.example.demo.security.RestaurantOwnership;
+import com.example.demo.service.Bulkheads;
+import com.example.demo.service.ContentVersions;
+import com.example.demo.service.MenuPayloadCache;
+import com.example.demo.service.OrderSummaryService;
+import com.example.demo.service.SingleFlight;
+import com.example.demo.service.SparseFields;
+import com.example.demo.service.SparseFields.Field;
+import com.example.demo.service.SparseFields.Shape;
+import com.example.demo.web.HttpCaching;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/restaurants")
 public class RestaurantController {
+    // fields= for the listing, named like RestaurantSummary.
+    private static final Shape SUMMARY_SHAPE = new Shape("Restaurant r", "r.id", "r.id", summaryFields());
+
     @Autowired
     private RestaurantRepository restaurantRepository;
     @Autowired
@@ -40,44 +70,42 @@ public class RestaurantController {
     @Autowired
     private CartRepository cartRepository;
     @Autowired
+    private OfferRepository offerRepository;
+    @Autowired
     private CustomerRepository customerRepository;
+    @Autowired
+    private AuthenticatedUserResolver authenticatedUserResolver;
+    @Autowired
+    private RestaurantOwnership restaurantOwnership;
+    @Autowired
+    private Bulkheads bulkheads;
+    @Autowired
+    private OrderSummaryService orderSummaryService;
+    @Autowired
+    private ContentVersions contentVersions;
+    @Autowired
+    private HttpCaching httpCaching;
+    @Autowired
+    private MenuPayloadCache menuPayloadCache;
+    @Autowired
+    private SparseFields sparseFields;
+    @Autowired
+    private SingleFlight singleFlight;
 
     @GetMapping
-    public List<Map<String, Object>> getAllRestaurants() {
-        return restaurantRepository.findAll().stream()
-            .map(restaurant -> {
-                Map<String, Object> result = new java.util.HashMap<>();
-                result.put("id", restaurant.getId());
-                result.put("name", restaurant.getName());
-                result.put("address", restaurant.getAddress());
-                result.put("phone", restaurant.getPhone());
-                result.put("cuisine", restaurant.getCuisineType()); // Map cuisineType to cuisine
-                result.put("description", restaurant.getDescription());
-                result.put("openingHours", restaurant.getOpeningHours());
-                result.put("slug", restaurant.getSlug());
-                result.put("isActive", restaurant.getIsActive());
-                result.put("rating", 4.5); // Default rating for demo
-                result.put("reviewCount", 10); // Default review count for demo
-                result.put("eta", 30); // Default delivery time for demo
-                return result;
-            })
-            .collect(java.util.stream.Collectors.toList());
+    public List<?> getAllRestaurants(@RequestParam(required = false) String fields) {
+        List<Map<String, Object>> sparse = sparseFields.list(SUMMARY_SHAPE, fields);
+        return sparse != null ? sparse : restaurantRepository.findSummaries();
     }
 
     @GetMapping("/{id}")
     public Map<String, Object> getRestaurantById(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
         // For restaurant owners, verify they own this restaurant
         if (userDetails != null) {
-            User authenticatedUser = customerRepository.findByUsername(userDetails.getUsername())
-                .orElse(null);
-            
-            if (authenticatedUser != null && "RESTAURANT".equals(authenticatedUser.getRole())) {
-                Restaurant restaurant = restaurantRepository.findById(id)
-                    .orElseThrow(() -> new RuntimeException("Restaurant not found"));
-                
-                if (!restaurant.getOwner().getId().equals(authenticatedUser.getId())) {
-                    throw new RuntimeException("Access denied. You can only view your own restaurant.");
-                }
+            AuthenticatedUser authenticatedUser = authenticatedUserResolver.resolve(userDetails);
+            if ("RESTAURANT".equals(authenticatedUser.getRole())
+                    && !restaurantOwnership.owns(authenticatedUser, id)) {
+                throw new RuntimeException("Access denied. You can only view your own restaurant.");
             }
         }
         Restaurant restaurant = restaurantRepository.findById(id)
@@ -110,7 +138,51 @@ public class RestaurantController {
     }
 
     @GetMapping("/slug/{slug}")
-    public ResponseEntity<?> getRestaurantBySlug(@PathVariable String slug) {
+    public ResponseEntity<?> getRestaurantBySlug(@PathVariable String slug, WebRequest request) {
+        String cachedTag = httpCaching.currentRestaurantTag(request);
+        if (cachedTag != null) {
+            return httpCaching.notModified(cachedTag);
+        }
+        long changeCount = contentVersions.changeCount();
+        // Keyed by the change count too: a load that began before a change must not get the newer tag.
+        Optional<Map<String, Object>> details = singleFlight.load("slug", slug + ":" + changeCount,
+            () -> findBySlug(slug).map(r -> Collections.unmodifiableMap(restaurantDetails(r))));
+        if (details.isPresent()) {
+            Long id = (Long) details.get().get("id");
+            return httpCaching.ok(httpCaching.restaurantTag(id, changeCount), details.get());
+        } else {
+            return ResponseEntity.status(404).body("Restaurant not found");
+        }
+    }
+
+    /**
+     * The customer restaurant page in one call. The restaurant is resolved here;
+     * its menu, rating counts, latest reviews and offers are then read in
+     * parallel on the page bulkhead, each in its own read-only transaction, and
+     * the response is written once all four are done.
+     */
+    @GetMapping("/slug/{slug}/page")
+    public CompletableFuture<RestaurantPage> getRestaurantPage(@PathVariable String slug) {
+        Restaurant restaurant = findBySlug(slug)
+            .orElseThrow(() -> new ApiException("RESTAURANT_NOT_FOUND", "Restaurant not found", HttpStatus.NOT_FOUND));
+        Long id = restaurant.getId();
+        Map<String, Object> details = restaurantDetails(restaurant);
+        LocalDateTime now = LocalDateTime.now();
+        CompletableFuture<List<MenuItemView>> menu =
+            bulkheads.submit(Bulkheads.PAGE, () -> menuItemRepository.findViewsByRestaurantId(id, true));
+        CompletableFuture<List<RatingCount>> ratings =
+            bulkheads.submit(Bulkheads.PAGE, () -> reviewRepository.countRatingsByRestaurantId(id));
+        CompletableFuture<List<Review>> reviews =
+            bulkheads.submit(Bulkheads.PAGE, () -> reviewRepository.findTop5ByRestaurantIdOrderByCreatedAtDesc(id));
+        CompletableFuture<List<Offer>> offers =
+            bulkheads.submit(Bulkheads.PAGE, () -> offerRepository.findOffersForRestaurant(now, id));
+        return CompletableFuture.allOf(menu, ratings, reviews, offers)
+            .thenApply(done -> new RestaurantPage(details, RestaurantPage.byCategory(menu.join()),
+                RatingSummary.of(ratings.join()), reviews.join(), offers.join()));
+    }
+
+    // Slug first, then a numeric id, then restaurants whose slug was never stored.
+    private Optional<Restaurant> findBySlug(String slug) {
         Optional<Restaurant> restaurant = restaurantRepository.findBySlug(slug);
         if (restaurant.isEmpty() && slug.chars().allMatch(Character::isDigit)) {
             restaurant = restaurantRepository.findById(Long.valueOf(slug));
@@ -120,44 +192,41 @@ public class RestaurantController {
                 .filter(r -> slug.equals(slugify(r.getName())))
                 .findFirst();
         }
-        if (restaurant.isPresent()) {
-            Restaurant r = restaurant.get();
-            Map<String, Object> result = new java.util.HashMap<>();
-            result.put("id", r.getId());
-            result.put("name", r.getName());
-            result.put("address", r.getAddress());
-            result.put("phone", r.getPhone());
-            result.put("cuisine", r.getCuisineType()); // Map cuisineType to cuisine
-            result.put("description", r.getDescription());
-            result.put("openingHours", r.getOpeningHours());
-            result.put("slug", r.getSlug());
-            result.put("isActive", r.getIsActive());
-            result.put("rating", 4.5); // Default rating for demo
-            result.put("reviewCount", 10); // Default review count for demo
-            result.put("eta", 30); // Default delivery time for demo
-            // Owner details
-            if (r.getOwner() != null) {
-                Map<String, Object> owner = new java.util.HashMap<>();
-                owner.put("id", r.getOwner().getId());
-                owner.put("username", r.getOwner().getUsername());
-                owner.put("email", r.getOwner().getEmail());
-                owner.put("role", r.getOwner().getRole());
-                result.put("owner", owner);
-            } else {
-                result.put("owner", null);
-            }
-            return ResponseEntity.ok(result);
+        return restaurant;
+    }
+
+    private Map<String, Object> restaurantDetails(Restaurant r) {
+        Map<String, Object> result = new java.util.HashMap<>();
+        result.put("id", r.getId());
+        result.put("name", r.getName());
+        result.put("address", r.getAddress());
+        result.put("phone", r.getPhone());
+        result.put("cuisine", r.getCuisineType()); // Map cuisineType to cuisine
+        result.put("description", r.getDescription());
+        result.put("openingHours", r.getOpeningHours());
+        result.put("slug", r.getSlug());
+        result.put("isActive", r.getIsActive());
+        result.put("rating", 4.5); // Default rating for demo
+        result.put("reviewCount", 10); // Default review count for demo
+        result.put("eta", 30); // Default delivery time for demo
+        // Owner details
+        if (r.getOwner() != null) {
+            Map<String, Object> owner = new java.util.HashMap<>();
+            owner.put("id", r.getOwner().getId());
+            owner.put("username", r.getOwner().getUsername());
+            owner.put("email", r.getOwner().getEmail());
+            owner.put("role", r.getOwner().getRole());
+            result.put("owner", owner);
         } else {
-            return ResponseEntity.status(404).body("Restaurant not found");
+            result.put("owner", null);
         }
+        return result;
     }
 
     @GetMapping("/by-owner/{ownerId}")
     public Map<String, Object> getRestaurantByOwnerId(@PathVariable Long ownerId, @AuthenticationPrincipal UserDetails userDetails) {
         // Verify that the authenticated user is requesting their own restaurant
-        User authenticatedUser = customerRepository.findByUsername(userDetails.getUsername())
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        
+        AuthenticatedUser authenticatedUser = authenticatedUserResolver.resolve(userDetails);
         if (!authenticatedUser.getId().equals(ownerId)) {
             throw new RuntimeException("Access denied. You can only view your own restaurant.");
         }
@@ -189,96 +258,35 @@ public class RestaurantController {
     }
 
     @GetMapping("/{id}/menu")
-    public List<Map<String, Object>> getMenuForRestaurant(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
-        // Verify that the authenticated user owns this restaurant
-        User authenticatedUser = customerRepository.findByUsername(userDetails.getUsername())
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        Restaurant restaurant = restaurantRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Restaurant not found"));
-        
-        if (!restaurant.getOwner().getId().equals(authenticatedUser.getId())) {
-            throw new RuntimeException("Access denied. You can only view menu for your own restaurant.");
-        }
-        
-        List<MenuItem> items = menuItemRepository.findByRestaurant_Id(id);
-        
-        return items.stream().map(this::convertToMenuItemDTO).collect(java.util.stream.Collectors.toList());
+    @PreAuthorize("@restaurantOwnership.owns(authentication, #id)")
+    public List<MenuItemView> getMenuForRestaurant(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
+        return menuItemRepository.findViewsByRestaurantId(id, false);
     }
 
     @GetMapping("/{id}/menu/customer")
-    public List<Map<String, Object>> getMenuForCustomer(@PathVariable Long id) {
-        try {
-            List<MenuItem> allItems = menuItemRepository.findByRestaurant_Id(id);
-            
-            if (allItems.isEmpty()) {
-                // Try to find the restaurant first
-                var restaurant = restaurantRepository.findById(id);
-                restaurant.orElseThrow(() -> new RuntimeException("Restaurant not found"));
-            }
-            
-            List<MenuItem> availableItems = allItems.stream()
-            .filter(item -> item.getIsAvailable() != null && item.getIsAvailable())
-            .collect(java.util.stream.Collectors.toList());
-            
-            return availableItems.stream().map(this::convertToMenuItemDTO).collect(java.util.stream.Collectors.toList());
-        } catch (Exception e) {
-            throw e;
-        }
+    public ResponseEntity<byte[]> getMenuForCustomer(@PathVariable Long id, WebRequest request) {
+        return httpCaching.serialized(request, httpCaching.menuTag(id), () -> menuPayloadCache.customerMenu(id));
     }
 
     @GetMapping("/{id}/orders")
-    public List<Map<String, Object>> getOrdersForRestaurant(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
-        // Verify that the authenticated user owns this restaurant
-        User authenticatedUser = customerRepository.findByUsername(userDetails.getUsername())
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        Restaurant restaurant = restaurantRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Restaurant not found"));
-        
-        if (!restaurant.getOwner().getId().equals(authenticatedUser.getId())) {
-            throw new RuntimeException("Access denied. You can only view orders for your own restaurant.");
-        }
-        return orderRepository.findByRestaurantIdOrderByCreatedAtDesc(id).stream()
-            .map(o -> {
-                Map<String, Object> map = new java.util.HashMap<>();
-                map.put("id", o.getId());
-                map.put("userId", o.getUserId());
-                map.put("restaurantId", o.getRestaurantId());
-                map.put("status", o.getStatus());
-                map.put("total", o.getTotal());
-                map.put("items", o.getItems());
-                map.put("createdAt", o.getCreatedAt());
-                map.put("created_at", o.getCreatedAt());
-                // Add customer name
-                String customerName = "";
-                if (o.getUserId() != null) {
-                    var custOpt = customerRepository.findById(o.getUserId());
-                    if (custOpt.isPresent()) customerName = custOpt.get().getUsername();
-                }
-                map.put("customerName", customerName);
-                return map;
-            })
-            .toList();
+    @PreAuthorize("@restaurantOwnership.owns(authentication, #id)")
+    public List<?> getOrdersForRestaurant(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails,
+                                          @RequestParam(required = false) String fields) {
+        return orderSummaryService.forRestaurant(id, fields);
     }
 
     @GetMapping("/{id}/reviews")
-    public List<Review> getReviewsForRestaurant(@PathVariable Long id) {
-        return reviewRepository.findByRestaurantIdOrderByCreatedAtDesc(id);
+    public CompletableFuture<List<Review>> getReviewsForRestaurant(@PathVariable Long id) {
+        return bulkheads.submit(Bulkheads.REVIEWS, () -> reviewRepository.findByRestaurantIdOrderByCreatedAtDesc(id));
     }
 
     @GetMapping("/{id}/analytics")
-    public Map<String, Object> getAnalytics(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
-        // Verify that the authenticated user owns this restaurant
-        User authenticatedUser = customerRepository.findByUsername(userDetails.getUsername())
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        Restaurant restaurant = restaurantRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Restaurant not found"));
-        
-        if (!restaurant.getOwner().getId().equals(authenticatedUser.getId())) {
-            throw new RuntimeException("Access denied. You can only view analytics for your own restaurant.");
-        }
+    @PreAuthorize("@restaurantOwnership.owns(authentication, #id)")
+    public CompletableFuture<Map<String, Object>> getAnalytics(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
+        return bulkheads.submit(Bulkheads.ANALYTICS, () -> analytics(id));
+    }
+
+    private Map<String, Object> analytics(Long id) {
         Map<String, Object> analytics = new java.util.HashMap<>();
         // Orders for this restaurant (sorted by latest first)
         List<Order> orders = orderRepository.findByRestaurantIdOrderByCreatedAtDesc(id);
@@ -400,7 +408,13 @@ public class RestaurantController {
             }
             restaurant.setSlug(uniqueSlug);
         }
-        return restaurantRepository.save(restaurant);
+        Restaurant saved = restaurantRepository.save(restaurant);
+        contentVersions.restaurantChanged(saved.getId());
+        contentVersions.catalogChanged();
+        if (saved.getOwner() != null) {
+            restaurantOwnership.evictOwner(saved.getOwner().getId());
+        }
+        return saved;
     }
 
     @PutMapping("/{id}")
@@ -409,6 +423,8 @@ public class RestaurantController {
         if (restaurant.getOwner() == null || !restaurant.getOwner().getUsername().equals(userDetails.getUsername())) {
             throw new RuntimeException("Access denied. You can only update your own restaurant.");
         }
+        String previousName = restaurant.getName();
+        String previousSlug = restaurant.getSlug();
         // Do not allow owner change, always keep the owner as is
         restaurant.setName(restaurantDetails.getName());
         restaurant.setAddress(restaurantDetails.getAddress());
@@ -428,7 +444,12 @@ public class RestaurantController {
             }
             restaurant.setSlug(uniqueSlug);
         }
-        return restaurantRepository.save(restaurant);
+        Restaurant saved = restaurantRepository.save(restaurant);
+        contentVersions.restaurantChanged(id);
+        if (!Objects.equals(previousName, saved.getName()) || !Objects.equals(previousSlug, saved.getSlug())) {
+            contentVersions.catalogChanged();
+        }
+        return saved;
     }
 
     @PostMapping("/{id}/menu")
@@ -441,6 +462,7 @@ public class RestaurantController {
         menuItem.setRestaurant(restaurant);
         // No need to manually set category/veg, already bound from request body
         MenuItem saved = menuItemRepository.save(menuItem);
+        contentVersions.restaurantChanged(id);
         
         // Create a response without circular references
         Map<String, Object> response = new java.util.HashMap<>();
@@ -519,6 +541,7 @@ public class RestaurantController {
             }
             
             MenuItem updated = menuItemRepository.save(menuItem);
+            contentVersions.restaurantChanged(restaurantId);
             
             // Create a response without circular references
             Map<String, Object> response = new java.util.HashMap<>();
@@ -576,6 +599,7 @@ public class RestaurantController {
             }
             
             MenuItem updated = menuItemRepository.save(menuItem);
+            contentVersions.restaurantChanged(restaurantId);
             
             // Create a response without circular references
             Map<String, Object> response = new java.util.HashMap<>();
@@ -617,6 +641,7 @@ public class RestaurantController {
             }
             
             menuItemRepository.delete(menuItem);
+            contentVersions.restaurantChanged(restaurantId);
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             // Check if it's a constraint violation
@@ -634,6 +659,9 @@ public class RestaurantController {
             throw new RuntimeException("Access denied. You can only delete your own restaurant.");
         }
         restaurantRepository.deleteById(id);
+        restaurantOwnership.evictOwner(restaurant.getOwner().getId());
+        contentVersions.restaurantChanged(id);
+        contentVersions.catalogChanged();
     }
 
     // Helper method to slugify a string
@@ -643,18 +671,22 @@ public class RestaurantController {
         String slug = Pattern.compile("[^a-zA-Z0-9-]").matcher(normalized).replaceAll("");
         return slug.toLowerCase();
     }
-    
-    // Helper method to convert MenuItem to DTO
-    private Map<String, Object> convertToMenuItemDTO(MenuItem item) {
-        Map<String, Object> dto = new java.util.HashMap<>();
-        dto.put("id", item.getId());
-        dto.put("name", item.getName());
-        dto.put("price", item.getPrice());
-        dto.put("category", item.getCategory());
-        dto.put("veg", item.getVeg());
-        dto.put("isAvailable", item.getIsAvailable());
-        dto.put("quantityAvailable", item.getQuantityAvailable());
-        dto.put("showQuantity", item.getShowQuantity());
-        return dto;
+
+    private static Map<String, Field> summaryFields() {
+        Map<String, Field> fields = new LinkedHashMap<>();
+        fields.put("id", Field.column("r.id"));
+        fields.put("name", Field.column("r.name"));
+        fields.put("address", Field.column("r.address"));
+        fields.put("phone", Field.column("r.phone"));
+        fields.put("cuisine", Field.column("r.cuisineType"));
+        fields.put("description", Field.column("r.description"));
+        fields.put("openingHours", Field.column("r.openingHours"));
+        fields.put("slug", Field.column("r.slug"));
+        fields.put("isActive", Field.column("r.isActive"));
+        // Same placeholders as RestaurantSummary.
+        fields.put("rating", Field.constant(4.5));
+        fields.put("reviewCount", Field.constant(10));
+        fields.put("eta", Field.constant(30));
+        return fields;
     }
-} 
+}
@@ -8,6 +8,9 @@ import com.example.demo.repository.RestaurantRepository;
 import com.example.demo.repository.OrderRepository;
 import com.example.demo.repository.MenuItemRepository;
 import com.example.demo.repository.OrderItemRepository;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.AuthenticatedUserResolver;
+import com.example.demo.service.Bulkheads;
 import com.example.demo.model.Order;
 import com.example.demo.model.Restaurant;
 import com.example.demo.model.MenuItem;
@@ -17,6 +20,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/reviews")
@@ -33,10 +37,14 @@ public class ReviewController {
     private MenuItemRepository menuItemRepository;
     @Autowired
     private OrderItemRepository orderItemRepository;
+    @Autowired
+    private AuthenticatedUserResolver authenticatedUserResolver;
+    @Autowired
+    private Bulkheads bulkheads;
 
     @GetMapping("/my")
     public List<Map<String, Object>> getMyReviews(@AuthenticationPrincipal UserDetails userDetails) {
-        User customer = customerRepository.findByUsername(userDetails.getUsername()).orElseThrow();
+        AuthenticatedUser customer = authenticatedUserResolver.resolve(userDetails);
         List<Review> reviews = reviewRepository.findByCustomerIdOrderByCreatedAtDesc(customer.getId());
         return reviews.stream()
             .map(review -> {
@@ -56,9 +64,9 @@ public class ReviewController {
     }
 
     @GetMapping("/restaurant/{restaurantId}")
-    public List<Map<String, Object>> getRestaurantReviews(@PathVariable Long restaurantId) {
-        List<Review> reviews = reviewRepository.findByRestaurantIdOrderByCreatedAtDesc(restaurantId);
-        return reviews.stream()
+    public CompletableFuture<List<Map<String, Object>>> getRestaurantReviews(@PathVariable Long restaurantId) {
+        return bulkheads.submit(Bulkheads.REVIEWS, () -> reviewRepository.findByRestaurantIdOrderByCreatedAtDesc(restaurantId)
+            .stream()
             .map(review -> {
                 Map<String, Object> map = new HashMap<>();
                 map.put("id", review.getId());
@@ -69,20 +77,19 @@ public class ReviewController {
                 map.put("customerName", review.getCustomer() != null ? review.getCustomer().getUsername() : "Anonymous");
                 return map;
             })
-            .toList();
+            .toList());
     }
 
     @PostMapping
     public Review createReview(@RequestBody Map<String, Object> request, @AuthenticationPrincipal UserDetails userDetails) {
         try {
-            // Check if user exists and is a customer
-            User customer = customerRepository.findByUsername(userDetails.getUsername())
-                .orElseThrow(() -> new RuntimeException("Customer not found"));
-            
-            // Verify user role is CUSTOMER
-            if (!"CUSTOMER".equals(customer.getRole())) {
+            // Verify user role is CUSTOMER before loading anything
+            AuthenticatedUser authenticated = authenticatedUserResolver.resolve(userDetails);
+            if (!"CUSTOMER".equals(authenticated.getRole())) {
                 throw new RuntimeException("Only customers can submit reviews");
             }
+            User customer = customerRepository.findById(authenticated.getId())
+                .orElseThrow(() -> new RuntimeException("Customer not found"));
             
             Review review = new Review();
             review.setCustomer(customer);
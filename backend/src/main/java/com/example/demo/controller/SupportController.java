@@ -1,45 +1,48 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.ChatNotification;
 import com.example.demo.exception.ApiException;
 import com.example.demo.model.ChatMessage;
 import com.example.demo.model.Order;
-import com.example.demo.model.Restaurant;
-import com.example.demo.model.User;
 import com.example.demo.repository.ChatMessageRepository;
-import com.example.demo.repository.CustomerRepository;
 import com.example.demo.repository.OrderRepository;
-import com.example.demo.repository.RestaurantRepository;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.AuthenticatedUserResolver;
+import com.example.demo.security.RestaurantOwnership;
+import com.example.demo.service.ChatMessageWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/support")
 public class SupportController {
-    private static final String ORDER_STATUS_NOTIFICATION_PREFIX = "Order status update:";
+    private static final int DEFAULT_NOTIFICATION_LIMIT = 50;
+    private static final int MAX_NOTIFICATION_LIMIT = 100;
 
     @Autowired
     private ChatMessageRepository chatRepo;
     @Autowired
     private OrderRepository orderRepository;
     @Autowired
-    private CustomerRepository customerRepository;
+    private AuthenticatedUserResolver authenticatedUserResolver;
     @Autowired
-    private RestaurantRepository restaurantRepository;
+    private RestaurantOwnership restaurantOwnership;
+    @Autowired
+    private ChatMessageWriter chatMessageWriter;
 
     @GetMapping("/messages")
     public List<ChatMessage> getMessages(
@@ -48,7 +51,7 @@ public class SupportController {
         @RequestParam(required = false) Long restaurantId,
         @AuthenticationPrincipal UserDetails userDetails
     ) {
-        User user = authenticatedUser(userDetails);
+        AuthenticatedUser user = authenticatedUser(userDetails);
         Order order = chatOrder(orderId);
         requireOrderChatAccess(user, order);
         requireOptionalScopeMatchesOrder(customerId, restaurantId, order);
@@ -58,16 +61,15 @@ public class SupportController {
     }
 
     @GetMapping("/messages/restaurant/{restaurantId}")
+    @PreAuthorize("@restaurantOwnership.owns(authentication, #restaurantId)")
     public List<ChatMessage> getMessagesForRestaurant(@PathVariable Long restaurantId,
                                                       @AuthenticationPrincipal UserDetails userDetails) {
-        User user = authenticatedUser(userDetails);
-        requireRestaurantOwner(user, restaurantId);
         return chatRepo.findByRestaurantIdOrderByTimestamp(restaurantId);
     }
     
     @PostMapping("/messages")
     public ChatMessage addMessage(@RequestBody ChatMessage msg, @AuthenticationPrincipal UserDetails userDetails) {
-        User user = authenticatedUser(userDetails);
+        AuthenticatedUser user = authenticatedUser(userDetails);
         Order order = activeChatOrder(msg.getOrderId());
         requireOrderChatAccess(user, order);
 
@@ -79,7 +81,15 @@ public class SupportController {
         message.setMessage(msg.getMessage());
         message.setTimestamp(new java.util.Date());
         message.setIsRead(false);
-        return chatRepo.save(message);
+        message.setClientMessageId(clientMessageId(msg.getClientMessageId()));
+        if (!chatMessageWriter.isWriteBehind()) {
+            Optional<ChatMessage> retried = chatRepo.findByOrderIdAndSenderAndClientMessageId(
+                message.getOrderId(), message.getSender(), message.getClientMessageId());
+            if (retried.isPresent()) {
+                return retried.get();
+            }
+        }
+        return chatMessageWriter.submit(message);
     }
 
     @GetMapping("/messages/unread-count")
@@ -88,7 +98,7 @@ public class SupportController {
         @RequestParam(required = false) Long restaurantId,
         @AuthenticationPrincipal UserDetails userDetails
     ) {
-        User user = authenticatedUser(userDetails);
+        AuthenticatedUser user = authenticatedUser(userDetails);
         Map<String, Object> result = new HashMap<>();
         
         if ("CUSTOMER".equals(user.getRole())) {
@@ -99,7 +109,7 @@ public class SupportController {
             return result;
         }
 
-        Long ownedRestaurantId = ownedRestaurantId(user);
+        Long ownedRestaurantId = restaurantOwnership.requireOwnedRestaurantId(user);
         if (restaurantId != null && !restaurantId.equals(ownedRestaurantId)) {
             throw new AccessDeniedException("Forbidden");
         }
@@ -108,81 +118,54 @@ public class SupportController {
     }
 
     @GetMapping("/messages/notifications")
-    public Map<String, Object> getUnreadNotifications(@AuthenticationPrincipal UserDetails userDetails) {
-        User user = authenticatedUser(userDetails);
-        boolean customer = "CUSTOMER".equals(user.getRole());
-        List<ChatMessage> unreadMessages = customer
-            ? chatRepo.findByCustomerIdAndSenderAndIsReadFalseOrderByTimestampDesc(user.getId(), "restaurant")
-            : chatRepo.findByRestaurantIdAndSenderAndIsReadFalseOrderByTimestampDesc(ownedRestaurantId(user), "customer");
-
-        Set<Long> restaurantIds = unreadMessages.stream()
-            .map(ChatMessage::getRestaurantId)
-            .filter(id -> id != null)
-            .collect(Collectors.toSet());
-        Set<Long> orderIds = unreadMessages.stream()
-            .map(ChatMessage::getOrderId)
-            .filter(id -> id != null)
-            .collect(Collectors.toSet());
-        Set<Long> customerIds = unreadMessages.stream()
-            .map(ChatMessage::getCustomerId)
-            .filter(id -> id != null)
-            .collect(Collectors.toSet());
-
-        Map<Long, Restaurant> restaurantsById = restaurantRepository.findAllById(restaurantIds).stream()
-            .collect(Collectors.toMap(Restaurant::getId, Function.identity()));
-        Map<Long, Order> ordersById = orderRepository.findAllById(orderIds).stream()
-            .collect(Collectors.toMap(Order::getId, Function.identity()));
-        Map<Long, User> customersById = customerRepository.findAllById(customerIds).stream()
-            .collect(Collectors.toMap(User::getId, Function.identity()));
-
-        List<Map<String, Object>> notifications = new ArrayList<>();
-        for (ChatMessage message : unreadMessages) {
-            Restaurant restaurant = restaurantsById.get(message.getRestaurantId());
-            Order order = ordersById.get(message.getOrderId());
-            User customerUser = customersById.get(message.getCustomerId());
-
-            Map<String, Object> notification = new HashMap<>();
-            notification.put("id", message.getId());
-            notification.put("messageId", message.getId());
-            notification.put("orderId", message.getOrderId());
-            notification.put("restaurantId", message.getRestaurantId());
-            notification.put("customerId", message.getCustomerId());
-            notification.put("sender", message.getSender());
-            notification.put("message", message.getMessage());
-            notification.put("timestamp", message.getTimestamp());
-            notification.put("isRead", Boolean.TRUE.equals(message.getIsRead()));
-            notification.put("restaurantName", restaurant != null ? restaurant.getName() : "Restaurant");
-            notification.put("restaurantSlug", restaurant != null ? restaurant.getSlug() : null);
-            notification.put("customerName", customerUser != null ? customerUser.getUsername() : "Customer");
-            notification.put("orderStatus", order != null ? order.getStatus() : null);
-            notification.put("orderTotal", order != null ? order.getTotal() : null);
-            boolean orderStatusNotification = message.getMessage() != null
-                && message.getMessage().startsWith(ORDER_STATUS_NOTIFICATION_PREFIX);
-            notification.put("type", orderStatusNotification ? "ORDER_STATUS" : "SUPPORT_MESSAGE");
-            notification.put("targetPath", customer
-                ? customerNotificationTarget(message, orderStatusNotification)
-                : "/restaurant/orders?orderId=" + message.getOrderId()
-            );
-            notifications.add(notification);
+    public Map<String, Object> getUnreadNotifications(
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limit,
+        @AuthenticationPrincipal UserDetails userDetails
+    ) {
+        AuthenticatedUser user = authenticatedUser(userDetails);
+        int pageSize = limit == null ? DEFAULT_NOTIFICATION_LIMIT : Math.min(Math.max(limit, 1), MAX_NOTIFICATION_LIMIT);
+        Date beforeTimestamp = null;
+        Long beforeId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = cursor.split("_", 2);
+            try {
+                beforeTimestamp = new Date(Long.parseLong(parts[0]));
+                beforeId = Long.valueOf(parts[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid notification cursor");
+            }
         }
 
-        notifications.sort(Comparator.comparing(
-            notification -> Optional.ofNullable(notification.get("timestamp"))
-                .filter(java.util.Date.class::isInstance)
-                .map(java.util.Date.class::cast)
-                .orElse(new java.util.Date(0)),
-            Comparator.reverseOrder()
-        ));
+        // Fetch one extra row to know whether another page exists.
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        long unreadCount;
+        List<ChatNotification> notifications;
+        if ("CUSTOMER".equals(user.getRole())) {
+            unreadCount = chatRepo.countByCustomerIdAndSenderAndIsReadFalse(user.getId(), "restaurant");
+            notifications = chatRepo.findCustomerNotifications(user.getId(), beforeTimestamp, beforeId, page);
+        } else {
+            Long restaurantId = restaurantOwnership.requireOwnedRestaurantId(user);
+            unreadCount = chatRepo.countByRestaurantIdAndSenderAndIsReadFalse(restaurantId, "customer");
+            notifications = chatRepo.findRestaurantNotifications(restaurantId, beforeTimestamp, beforeId, page);
+        }
 
-        return Map.of(
-            "unreadCount", notifications.size(),
-            "notifications", notifications
-        );
+        Map<String, Object> result = new HashMap<>();
+        if (notifications.size() > pageSize) {
+            notifications = notifications.subList(0, pageSize);
+            ChatNotification last = notifications.get(pageSize - 1);
+            result.put("nextCursor", last.timestamp().getTime() + "_" + last.messageId());
+        } else {
+            result.put("nextCursor", null);
+        }
+        result.put("unreadCount", Math.toIntExact(unreadCount));
+        result.put("notifications", notifications);
+        return result;
     }
 
     @PutMapping("/messages/{messageId}/mark-read")
     public ChatMessage markMessageAsRead(@PathVariable Long messageId, @AuthenticationPrincipal UserDetails userDetails) {
-        User user = authenticatedUser(userDetails);
+        AuthenticatedUser user = authenticatedUser(userDetails);
         ChatMessage message = chatRepo.findById(messageId).orElseThrow(() -> new RuntimeException("Message not found"));
         Order order = orderRepository.findById(message.getOrderId()).orElseThrow(() -> new RuntimeException("Order not found"));
         requireOrderChatAccess(user, order);
@@ -202,7 +185,7 @@ public class SupportController {
         if (orderId == null) {
             throw new IllegalArgumentException("orderId is required");
         }
-        User user = authenticatedUser(userDetails);
+        AuthenticatedUser user = authenticatedUser(userDetails);
         Order order = orderRepository.findById(orderId).orElseThrow(() -> new RuntimeException("Order not found"));
         requireOrderChatAccess(user, order);
         requireOptionalScopeMatchesOrder(customerId, restaurantId, order);
@@ -225,7 +208,7 @@ public class SupportController {
 
     private Order activeChatOrder(Long orderId) {
         Order order = chatOrder(orderId);
-        if ("Delivered".equalsIgnoreCase(order.getStatus()) || "Cancelled".equalsIgnoreCase(order.getStatus())) {
+        if (Order.isClosedStatus(order.getStatus())) {
             throw new ApiException("CHAT_CLOSED", "Chat is disabled for delivered or cancelled orders.", HttpStatus.CONFLICT);
         }
         return order;
@@ -236,17 +219,17 @@ public class SupportController {
             .orElseThrow(() -> new ApiException("ORDER_NOT_FOUND", "Order not found", HttpStatus.NOT_FOUND));
     }
 
-    private void requireOrderChatAccess(User user, Order order) {
+    private void requireOrderChatAccess(AuthenticatedUser user, Order order) {
         if ("CUSTOMER".equals(user.getRole()) && order.getUserId().equals(user.getId())) {
             return;
         }
-        if (isRestaurantRole(user) && ownsRestaurant(user, order.getRestaurantId())) {
+        if (isRestaurantRole(user) && restaurantOwnership.owns(user, order.getRestaurantId())) {
             return;
         }
         throw new AccessDeniedException("Forbidden");
     }
 
-    private void requireRecipient(User user, ChatMessage message) {
+    private void requireRecipient(AuthenticatedUser user, ChatMessage message) {
         if ("CUSTOMER".equals(user.getRole()) && "restaurant".equals(message.getSender())) {
             return;
         }
@@ -265,41 +248,22 @@ public class SupportController {
         }
     }
 
-    private void requireRestaurantOwner(User user, Long restaurantId) {
-        if (!isRestaurantRole(user) || !ownsRestaurant(user, restaurantId)) {
-            throw new AccessDeniedException("Forbidden");
+    private String clientMessageId(String requested) {
+        if (requested == null || requested.isBlank()) {
+            return UUID.randomUUID().toString();
         }
-    }
-
-    private boolean ownsRestaurant(User user, Long restaurantId) {
-        return restaurantId != null
-            && restaurantRepository.findByOwner_Id(user.getId())
-                .map(Restaurant::getId)
-                .filter(restaurantId::equals)
-                .isPresent();
-    }
-
-    private Long ownedRestaurantId(User user) {
-        return restaurantRepository.findByOwner_Id(user.getId())
-            .map(Restaurant::getId)
-            .orElseThrow(() -> new AccessDeniedException("Restaurant not found for this user"));
-    }
-
-    private String customerNotificationTarget(ChatMessage message, boolean orderStatusNotification) {
-        if (orderStatusNotification) {
-            return "/customer/orders?orderId=" + message.getOrderId();
+        String trimmed = requested.trim();
+        if (trimmed.length() > 64) {
+            throw new IllegalArgumentException("clientMessageId must be at most 64 characters");
         }
-        return "/customer/support?orderId=" + message.getOrderId() + "&restaurantId=" + message.getRestaurantId();
+        return trimmed;
     }
 
-    private boolean isRestaurantRole(User user) {
-        return "RESTAURANT".equals(user.getRole()) || "RESTAURANT_OWNER".equals(user.getRole());
+    private boolean isRestaurantRole(AuthenticatedUser user) {
+        return user.isRestaurant();
     }
 
-    private User authenticatedUser(UserDetails userDetails) {
-        if (userDetails == null) {
-            throw new ApiException("UNAUTHENTICATED", "Authentication required", HttpStatus.UNAUTHORIZED);
-        }
-        return customerRepository.findByUsername(userDetails.getUsername()).orElseThrow();
+    private AuthenticatedUser authenticatedUser(UserDetails userDetails) {
+        return authenticatedUserResolver.resolve(userDetails);
     }
 } 
@@ -0,0 +1,13 @@
+package com.example.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** One cart entry, projected from the cart and menu item tables in a single join. */
+public record CartLine(
+    String name,
+    Double price,
+    Integer qty,
+    Long restaurantId,
+    @JsonProperty("menu_item_id") Long menuItemId
+) {
+}
@@ -0,0 +1,10 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/** The cart response; the address is not stored server-side and is always empty. */
+public record CartView(List<CartLine> items, String address) {
+    public CartView(List<CartLine> items) {
+        this(items, "");
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.ChatMessage;
+
+import java.util.Date;
+
+/**
+ * Unread chat message as shown in the notification bell. Populated directly by a
+ * JPQL constructor expression in {@code ChatMessageRepository}, so no message,
+ * restaurant, order or user entities are loaded to build the feed.
+ */
+public record ChatNotification(
+    Long id,
+    Long messageId,
+    Long orderId,
+    Long restaurantId,
+    Long customerId,
+    String sender,
+    String message,
+    Date timestamp,
+    boolean isRead,
+    String restaurantName,
+    String restaurantSlug,
+    String customerName,
+    String orderStatus,
+    Double orderTotal,
+    String type,
+    String targetPath
+) {
+    public ChatNotification(Long messageId, Long orderId, Long restaurantId, Long customerId, String sender,
+                            String message, Date timestamp, Boolean isRead, String restaurantName,
+                            String restaurantSlug, String customerName, String orderStatus, Double orderTotal) {
+        this(
+            messageId,
+            messageId,
+            orderId,
+            restaurantId,
+            customerId,
+            sender,
+            message,
+            timestamp,
+            Boolean.TRUE.equals(isRead),
+            restaurantName != null ? restaurantName : "Restaurant",
+            restaurantSlug,
+            customerName != null ? customerName : "Customer",
+            orderStatus,
+            orderTotal,
+            isOrderStatus(message) ? "ORDER_STATUS" : "SUPPORT_MESSAGE",
+            targetPath(sender, message, orderId, restaurantId)
+        );
+    }
+
+    private static boolean isOrderStatus(String message) {
+        return message != null && message.startsWith(ChatMessage.ORDER_STATUS_PREFIX);
+    }
+
+    // Restaurant-sent messages are addressed to the customer and vice versa.
+    private static String targetPath(String sender, String message, Long orderId, Long restaurantId) {
+        if (!"restaurant".equals(sender)) {
+            return "/restaurant/orders?orderId=" + orderId;
+        }
+        if (isOrderStatus(message)) {
+            return "/customer/orders?orderId=" + orderId;
+        }
+        return "/customer/support?orderId=" + orderId + "&restaurantId=" + restaurantId;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.dto;
+
+/**
+ * Menu item as listed to owners and customers, projected straight from
+ * {@code MenuItemRepository} without loading the restaurant.
+ */
+public record MenuItemView(
+    Long id,
+    String name,
+    Double price,
+    String category,
+    Boolean veg,
+    Boolean isAvailable,
+    Integer quantityAvailable,
+    Boolean showQuantity
+) {
+}
@@ -0,0 +1,14 @@
+package com.example.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/** One line of an {@link OrderSummary}; {@code orderId} is only used to group lines. */
+public record OrderLine(
+    @JsonIgnore Long orderId,
+    Long id,
+    Long menuItemId,
+    String name,
+    Double price,
+    Integer quantity
+) {
+}
@@ -0,0 +1,54 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Order;
+import com.example.demo.model.Restaurant;
+import com.example.demo.model.User;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Order as shown in order lists. The header row comes from one JPQL constructor
+ * expression joined to the customer and restaurant, and the lines from a second
+ * query for the whole page, so a list costs two statements and hydrates no
+ * entities. Customer and restaurant fields are omitted when the row is gone.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OrderSummary(
+    Long id,
+    Long userId,
+    Long restaurantId,
+    String status,
+    Double total,
+    Date createdAt,
+    String customerName,
+    String customerEmail,
+    String restaurantName,
+    String restaurantAddress,
+    List<OrderLine> items
+) {
+    public OrderSummary(Long id, Long userId, Long restaurantId, String status, Double total, Date createdAt,
+                        String customerName, String customerEmail, String restaurantName, String restaurantAddress) {
+        this(id, userId, restaurantId, status, total, createdAt, customerName, customerEmail,
+            restaurantName, restaurantAddress, List.of());
+    }
+
+    /** For single orders already loaded as entities, e.g. right after checkout. */
+    public static OrderSummary of(Order order, User customer, Restaurant restaurant) {
+        List<OrderLine> lines = order.getItems() == null ? List.of() : order.getItems().stream()
+            .map(item -> new OrderLine(order.getId(), item.getId(), item.getMenuItemId(), item.getName(),
+                item.getPrice(), item.getQuantity()))
+            .toList();
+        return new OrderSummary(order.getId(), order.getUserId(), order.getRestaurantId(), order.getStatus(),
+            order.getTotal(), order.getCreatedAt(),
+            customer != null ? customer.getUsername() : null, customer != null ? customer.getEmail() : null,
+            restaurant != null ? restaurant.getName() : null, restaurant != null ? restaurant.getAddress() : null,
+            lines);
+    }
+
+    public OrderSummary withItems(List<OrderLine> lines) {
+        return new OrderSummary(id, userId, restaurantId, status, total, createdAt, customerName, customerEmail,
+            restaurantName, restaurantAddress, List.copyOf(lines));
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.demo.dto;
+
+/** Number of reviews with one star rating, grouped in JPQL. */
+public record RatingCount(Integer rating, Long count) {
+}
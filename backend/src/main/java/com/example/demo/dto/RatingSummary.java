@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Review count, average rating and the number of reviews per star for one restaurant. */
+public record RatingSummary(long count, double average, Map<Integer, Long> distribution) {
+
+    public static RatingSummary of(List<RatingCount> counts) {
+        Map<Integer, Long> distribution = new TreeMap<>();
+        long count = 0;
+        long stars = 0;
+        for (RatingCount bucket : counts) {
+            distribution.put(bucket.rating(), bucket.count());
+            count += bucket.count();
+            stars += (long) bucket.rating() * bucket.count();
+        }
+        return new RatingSummary(count, count == 0 ? 0 : (double) stars / count, distribution);
+    }
+}
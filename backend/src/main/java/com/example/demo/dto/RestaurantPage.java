@@ -0,0 +1,31 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Offer;
+import com.example.demo.model.Review;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the customer restaurant page shows, in one response: the same
+ * restaurant details as the slug lookup, the available menu grouped by
+ * category, rating aggregates, the latest reviews and the offers that apply.
+ */
+public record RestaurantPage(
+    Map<String, Object> restaurant,
+    Map<String, List<MenuItemView>> menu,
+    RatingSummary rating,
+    List<Review> recentReviews,
+    List<Offer> offers
+) {
+    /** Groups items by category in menu order; items without one go under "Other", as on the page. */
+    public static Map<String, List<MenuItemView>> byCategory(List<MenuItemView> items) {
+        Map<String, List<MenuItemView>> menu = new LinkedHashMap<>();
+        for (MenuItemView item : items) {
+            String category = item.category() == null || item.category().isBlank() ? "Other" : item.category();
+            menu.computeIfAbsent(category, key -> new java.util.ArrayList<>()).add(item);
+        }
+        return menu;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+/**
+ * Restaurant card in the public listing. Built by a JPQL constructor expression
+ * in {@code RestaurantRepository}, so owners and menus are never loaded.
+ */
+public record RestaurantSummary(
+    Long id,
+    String name,
+    String address,
+    String phone,
+    String cuisine,
+    String description,
+    String openingHours,
+    String slug,
+    Boolean isActive,
+    double rating,
+    int reviewCount,
+    int eta
+) {
+    public RestaurantSummary(Long id, String name, String address, String phone, String cuisine,
+                             String description, String openingHours, String slug, Boolean isActive) {
+        // Rating, review count and ETA are demo placeholders until they are computed.
+        this(id, name, address, phone, cuisine, description, openingHours, slug, isActive, 4.5, 10, 30);
+    }
+}
@@ -2,16 +2,26 @@ package com.example.demo.exception;
 
 import org.springframework.http.HttpStatus;
 
+import java.time.Duration;
+
 public class ApiException extends RuntimeException {
     private final String code;
     private final HttpStatus status;
+    private final Duration retryAfter;
 
     public ApiException(String code, String message, HttpStatus status) {
+        this(code, message, status, null);
+    }
+
+    /** For load-shed responses; {@code retryAfter} is sent as the Retry-After header. */
+    public ApiException(String code, String message, HttpStatus status, Duration retryAfter) {
         super(message);
         this.code = code;
         this.status = status;
+        this.retryAfter = retryAfter;
     }
 
     public String getCode() { return code; }
     public HttpStatus getStatus() { return status; }
+    public Duration getRetryAfter() { return retryAfter; }
 }
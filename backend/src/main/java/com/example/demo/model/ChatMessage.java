@@ -4,8 +4,12 @@ import jakarta.persistence.*;
 import java.util.Date;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", uniqueConstraints = @UniqueConstraint(
+    name = "uq_chat_messages_order_sender_client_message_id",
+    columnNames = {"order_id", "sender", "client_message_id"}))
 public class ChatMessage {
+    public static final String ORDER_STATUS_PREFIX = "Order status update:";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -16,6 +20,9 @@ public class ChatMessage {
     private String message;
     private Date timestamp = new Date();
     private Boolean isRead = false; // Track if message has been read
+    // Client-supplied (or server-generated) id used to acknowledge queued writes; unique per order and sender
+    @Column(name = "client_message_id", length = 64)
+    private String clientMessageId;
 
     // Getters and setters
     public Long getId() { return id; }
@@ -34,4 +41,6 @@ public class ChatMessage {
     public void setTimestamp(Date timestamp) { this.timestamp = timestamp; }
     public Boolean getIsRead() { return isRead; }
     public void setIsRead(Boolean isRead) { this.isRead = isRead; }
+    public String getClientMessageId() { return clientMessageId; }
+    public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
 } 
\ No newline at end of file
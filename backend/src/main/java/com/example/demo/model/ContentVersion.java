@@ -0,0 +1,40 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import java.time.Instant;
+
+/**
+ * Version counter for content that public GET endpoints serve with an ETag:
+ * {@code restaurant:<id>} for a restaurant and its menu, {@code offers} and
+ * {@code catalog} (which slug names which restaurant). Incremented in the same
+ * transaction as the change it describes.
+ */
+@Entity
+@Table(name = "content_versions", indexes = @Index(name = "idx_content_versions_updated_at", columnList = "updated_at"))
+public class ContentVersion {
+    @Id
+    @Column(length = 64)
+    private String scope;
+    @Column(nullable = false)
+    private Long version;
+    @Column(name = "updated_at", nullable = false)
+    @JdbcTypeCode(SqlTypes.TIMESTAMP)
+    private Instant updatedAt;
+
+    public ContentVersion() {}
+
+    public ContentVersion(String scope, Long version, Instant updatedAt) {
+        this.scope = scope;
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getScope() { return scope; }
+    public void setScope(String scope) { this.scope = scope; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -20,6 +20,11 @@ public class Order {
     @Temporal(TemporalType.TIMESTAMP)
     private Date createdAt = new Date();
 
+    // When the order last became Delivered or Cancelled; drives chat retention.
+    @Column(name = "closed_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date closedAt;
+
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonManagedReference
     private List<OrderItem> items;
@@ -37,6 +42,22 @@ public class Order {
     public void setTotal(Double total) { this.total = total; }
     public Date getCreatedAt() { return createdAt; }
     public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+    public Date getClosedAt() { return closedAt; }
+    public void setClosedAt(Date closedAt) { this.closedAt = closedAt; }
     public List<OrderItem> getItems() { return items; }
     public void setItems(List<OrderItem> items) { this.items = items; }
+
+    public static boolean isClosedStatus(String status) {
+        return "Delivered".equalsIgnoreCase(status) || "Cancelled".equalsIgnoreCase(status);
+    }
+
+    @PrePersist
+    @PreUpdate
+    private void trackClosedAt() {
+        if (!isClosedStatus(status)) {
+            closedAt = null;
+        } else if (closedAt == null) {
+            closedAt = new Date();
+        }
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Shared fixed-window counter used by {@code JdbcRateLimitStore}. Rows are
+ * written with plain JDBC; the mapping exists so the schema is generated for
+ * tests like every other table.
+ */
+@Entity
+@Table(name = "rate_limit_counters", indexes = @Index(name = "idx_rate_limit_counters_expires_at", columnList = "expires_at"))
+@IdClass(RateLimitCounter.Key.class)
+public class RateLimitCounter {
+    @Id
+    @Column(name = "bucket_key", length = 200)
+    private String bucketKey;
+    @Id
+    @Column(name = "window_start")
+    private Long windowStart;
+    @Column(nullable = false)
+    private Integer used;
+    // Epoch seconds after which the row can be deleted.
+    @Column(name = "expires_at", nullable = false)
+    private Long expiresAt;
+
+    public String getBucketKey() { return bucketKey; }
+    public void setBucketKey(String bucketKey) { this.bucketKey = bucketKey; }
+    public Long getWindowStart() { return windowStart; }
+    public void setWindowStart(Long windowStart) { this.windowStart = windowStart; }
+    public Integer getUsed() { return used; }
+    public void setUsed(Integer used) { this.used = used; }
+    public Long getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Long expiresAt) { this.expiresAt = expiresAt; }
+
+    public static class Key implements Serializable {
+        private String bucketKey;
+        private Long windowStart;
+
+        public Key() {}
+
+        public Key(String bucketKey, Long windowStart) {
+            this.bucketKey = bucketKey;
+            this.windowStart = windowStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && Objects.equals(bucketKey, other.bucketKey)
+                    && Objects.equals(windowStart, other.windowStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucketKey, windowStart);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import java.time.Instant;
+
+/**
+ * One link in a chain of rotated refresh tokens. Only the SHA-256 hash of the
+ * token is stored; all tokens rotated from the same login share a family id so
+ * a replayed token can revoke the whole chain.
+ */
+@Entity
+@Table(name = "refresh_tokens")
+public class RefreshToken {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    @Column(name = "token_hash", nullable = false, unique = true, length = 64)
+    private String tokenHash;
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+    // Instants stored in plain TIMESTAMP columns (V10), like the other tables.
+    @Column(name = "created_at", nullable = false)
+    @JdbcTypeCode(SqlTypes.TIMESTAMP)
+    private Instant createdAt = Instant.now();
+    @Column(name = "expires_at", nullable = false)
+    @JdbcTypeCode(SqlTypes.TIMESTAMP)
+    private Instant expiresAt;
+    @Column(name = "revoked_at")
+    @JdbcTypeCode(SqlTypes.TIMESTAMP)
+    private Instant revokedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public String getTokenHash() { return tokenHash; }
+    public void setTokenHash(String tokenHash) { this.tokenHash = tokenHash; }
+    public String getFamilyId() { return familyId; }
+    public void setFamilyId(String familyId) { this.familyId = familyId; }
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+    public Instant getRevokedAt() { return revokedAt; }
+    public void setRevokedAt(Instant revokedAt) { this.revokedAt = revokedAt; }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import java.time.Instant;
+
+/**
+ * Revocation of a single access token ({@code tokenId}) or of every access token
+ * a user was issued up to {@code revokedAt} ({@code userId}). Rows are only
+ * needed until the affected tokens would have expired anyway.
+ */
+@Entity
+@Table(name = "token_revocations")
+public class TokenRevocation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "token_id", length = 36)
+    private String tokenId;
+    @Column(name = "user_id")
+    private Long userId;
+    // Instants stored in plain TIMESTAMP columns (V10), like the other tables.
+    @Column(name = "revoked_at", nullable = false)
+    @JdbcTypeCode(SqlTypes.TIMESTAMP)
+    private Instant revokedAt = Instant.now();
+    @Column(name = "expires_at", nullable = false)
+    @JdbcTypeCode(SqlTypes.TIMESTAMP)
+    private Instant expiresAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getTokenId() { return tokenId; }
+    public void setTokenId(String tokenId) { this.tokenId = tokenId; }
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public Instant getRevokedAt() { return revokedAt; }
+    public void setRevokedAt(Instant revokedAt) { this.revokedAt = revokedAt; }
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
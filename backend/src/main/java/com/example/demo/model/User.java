@@ -23,6 +23,8 @@ public class User {
     private Boolean emailVerified = false;
     private LocalDateTime lastLoginAt;
     private LocalDateTime disabledAt;
+    @JsonIgnore
+    private Integer tokenVersion = 0; // Bumped to invalidate every JWT issued before the change
 
     // Getters and setters
     public Long getId() { return id; }
@@ -53,4 +55,7 @@ public class User {
 
     public LocalDateTime getDisabledAt() { return disabledAt; }
     public void setDisabledAt(LocalDateTime disabledAt) { this.disabledAt = disabledAt; }
+
+    public Integer getTokenVersion() { return tokenVersion; }
+    public void setTokenVersion(Integer tokenVersion) { this.tokenVersion = tokenVersion; }
 } 
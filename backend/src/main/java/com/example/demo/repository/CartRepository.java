@@ -1,14 +1,24 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.CartLine;
 import com.example.demo.model.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
     List<Cart> findByCustomerId(Long customerId);
+
+    @Query("""
+        SELECT new com.example.demo.dto.CartLine(m.name, m.price, c.quantity, m.restaurant.id, m.id)
+        FROM Cart c JOIN c.menuItem m
+        WHERE c.customer.id = :customerId
+        ORDER BY c.id
+        """)
+    List<CartLine> findLinesByCustomerId(@Param("customerId") Long customerId);
     boolean existsByMenuItemId(Long menuItemId);
 
     @Transactional
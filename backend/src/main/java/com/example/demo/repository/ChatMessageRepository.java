@@ -1,8 +1,16 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.ChatNotification;
 import com.example.demo.model.ChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
     List<ChatMessage> findByOrderIdAndCustomerIdAndRestaurantIdOrderByTimestamp(
@@ -11,6 +19,8 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     List<ChatMessage> findByOrderIdAndRestaurantIdOrderByTimestamp(Long orderId, Long restaurantId);
     List<ChatMessage> findByOrderIdOrderByTimestamp(Long orderId);
     List<ChatMessage> findByRestaurantIdOrderByTimestamp(Long restaurantId);
+    // Client ids are only unique within one side of one order's chat.
+    Optional<ChatMessage> findByOrderIdAndSenderAndClientMessageId(Long orderId, String sender, String clientMessageId);
     
     // Unread message methods
     long countByCustomerIdAndSenderAndIsReadFalse(Long customerId, String sender);
@@ -22,4 +32,59 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     List<ChatMessage> findByOrderIdAndCustomerIdAndRestaurantIdAndSenderAndIsReadFalse(
         Long orderId, Long customerId, Long restaurantId, String sender
     );
-} 
+
+    // Notification feed: one keyset-paginated join per page, newest first.
+    // A null cursor timestamp returns the first page.
+    @Query("""
+        SELECT new com.example.demo.dto.ChatNotification(
+            m.id, m.orderId, m.restaurantId, m.customerId, m.sender, m.message, m.timestamp, m.isRead,
+            r.name, r.slug, u.username, o.status, o.total)
+        FROM ChatMessage m
+        LEFT JOIN Restaurant r ON r.id = m.restaurantId
+        LEFT JOIN com.example.demo.model.Order o ON o.id = m.orderId
+        LEFT JOIN User u ON u.id = m.customerId
+        WHERE m.customerId = :customerId AND m.sender = 'restaurant' AND m.isRead = false
+          AND (:beforeTimestamp IS NULL OR m.timestamp < :beforeTimestamp
+               OR (m.timestamp = :beforeTimestamp AND m.id < :beforeId))
+        ORDER BY m.timestamp DESC, m.id DESC
+        """)
+    List<ChatNotification> findCustomerNotifications(
+        @Param("customerId") Long customerId,
+        @Param("beforeTimestamp") Date beforeTimestamp,
+        @Param("beforeId") Long beforeId,
+        Pageable page
+    );
+
+    @Query("""
+        SELECT new com.example.demo.dto.ChatNotification(
+            m.id, m.orderId, m.restaurantId, m.customerId, m.sender, m.message, m.timestamp, m.isRead,
+            r.name, r.slug, u.username, o.status, o.total)
+        FROM ChatMessage m
+        LEFT JOIN Restaurant r ON r.id = m.restaurantId
+        LEFT JOIN com.example.demo.model.Order o ON o.id = m.orderId
+        LEFT JOIN User u ON u.id = m.customerId
+        WHERE m.restaurantId = :restaurantId AND m.sender = 'customer' AND m.isRead = false
+          AND (:beforeTimestamp IS NULL OR m.timestamp < :beforeTimestamp
+               OR (m.timestamp = :beforeTimestamp AND m.id < :beforeId))
+        ORDER BY m.timestamp DESC, m.id DESC
+        """)
+    List<ChatNotification> findRestaurantNotifications(
+        @Param("restaurantId") Long restaurantId,
+        @Param("beforeTimestamp") Date beforeTimestamp,
+        @Param("beforeId") Long beforeId,
+        Pageable page
+    );
+
+    // Retention: ids of messages whose order closed before the cutoff, oldest first.
+    @Query("""
+        SELECT m.id FROM ChatMessage m, com.example.demo.model.Order o
+        WHERE o.id = m.orderId AND o.status IN ('Delivered', 'Cancelled') AND o.closedAt < :closedBefore
+        ORDER BY m.id
+        """)
+    List<Long> findIdsForClosedOrdersBefore(@Param("closedBefore") Date closedBefore, Pageable page);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChatMessage m WHERE m.id IN :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
+}
@@ -0,0 +1,24 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.ContentVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface ContentVersionRepository extends JpaRepository<ContentVersion, String> {
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ContentVersion v SET v.version = v.version + 1, v.updatedAt = :now WHERE v.scope = :scope")
+    int increment(@Param("scope") String scope, @Param("now") Instant now);
+
+    // A scalar read, so a version cached in the persistence context is never returned.
+    @Query("SELECT v.version FROM ContentVersion v WHERE v.scope = :scope")
+    Optional<Long> findVersion(@Param("scope") String scope);
+
+    // Rows bumped since the last sync, by this or any other instance.
+    List<ContentVersion> findByUpdatedAtAfter(Instant since);
+}
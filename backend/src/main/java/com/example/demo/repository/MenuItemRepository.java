@@ -1,9 +1,23 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.MenuItemView;
 import com.example.demo.model.MenuItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
 
 public interface MenuItemRepository extends JpaRepository<MenuItem, Long> {
     List<MenuItem> findByRestaurant_Id(Long restaurantId);
+
+    // Menu listings: one row per item, no restaurant or owner joins.
+    @Query("""
+        SELECT new com.example.demo.dto.MenuItemView(
+            m.id, m.name, m.price, m.category, m.veg, m.isAvailable, m.quantityAvailable, m.showQuantity)
+        FROM MenuItem m
+        WHERE m.restaurant.id = :restaurantId AND (:availableOnly = false OR m.isAvailable = true)
+        ORDER BY m.id
+        """)
+    List<MenuItemView> findViewsByRestaurantId(@Param("restaurantId") Long restaurantId,
+                                               @Param("availableOnly") boolean availableOnly);
 } 
\ No newline at end of file
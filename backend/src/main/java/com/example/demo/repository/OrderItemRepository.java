@@ -1,9 +1,23 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.OrderLine;
 import com.example.demo.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
- 
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     boolean existsByMenuItemId(Long menuItemId);
     boolean existsByOrderIdAndMenuItemId(Long orderId, Long menuItemId);
+
+    @Query("""
+        SELECT new com.example.demo.dto.OrderLine(i.order.id, i.id, i.menuItemId, i.name, i.price, i.quantity)
+        FROM OrderItem i
+        WHERE i.order.id IN :orderIds
+        ORDER BY i.id
+        """)
+    List<OrderLine> findLinesByOrderIds(@Param("orderIds") Collection<Long> orderIds);
 } 
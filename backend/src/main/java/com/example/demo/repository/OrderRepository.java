@@ -1,8 +1,11 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.OrderSummary;
 import com.example.demo.model.Order;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,4 +24,37 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     @EntityGraph(attributePaths = "items")
     List<Order> findByRestaurantIdOrderByCreatedAtDesc(Long restaurantId);
-} 
+
+    // Order list headers joined to their customer and restaurant; lines come from OrderItemRepository.
+    @Query("""
+        SELECT new com.example.demo.dto.OrderSummary(
+            o.id, o.userId, o.restaurantId, o.status, o.total, o.createdAt, u.username, u.email, r.name, r.address)
+        FROM com.example.demo.model.Order o
+        LEFT JOIN User u ON u.id = o.userId
+        LEFT JOIN Restaurant r ON r.id = o.restaurantId
+        WHERE o.userId = :userId
+        ORDER BY o.createdAt DESC, o.id DESC
+        """)
+    List<OrderSummary> findSummariesByUserId(@Param("userId") Long userId);
+
+    @Query("""
+        SELECT new com.example.demo.dto.OrderSummary(
+            o.id, o.userId, o.restaurantId, o.status, o.total, o.createdAt, u.username, u.email, r.name, r.address)
+        FROM com.example.demo.model.Order o
+        LEFT JOIN User u ON u.id = o.userId
+        LEFT JOIN Restaurant r ON r.id = o.restaurantId
+        WHERE o.restaurantId = :restaurantId
+        ORDER BY o.createdAt DESC, o.id DESC
+        """)
+    List<OrderSummary> findSummariesByRestaurantId(@Param("restaurantId") Long restaurantId);
+
+    @Query("""
+        SELECT new com.example.demo.dto.OrderSummary(
+            o.id, o.userId, o.restaurantId, o.status, o.total, o.createdAt, u.username, u.email, r.name, r.address)
+        FROM com.example.demo.model.Order o
+        LEFT JOIN User u ON u.id = o.userId
+        LEFT JOIN Restaurant r ON r.id = o.restaurantId
+        ORDER BY o.createdAt DESC, o.id DESC
+        """)
+    List<OrderSummary> findAllSummaries();
+}
@@ -1,11 +1,26 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.RestaurantSummary;
 import com.example.demo.model.Restaurant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface RestaurantRepository extends JpaRepository<Restaurant, Long> {
     Optional<Restaurant> findBySlug(String slug);
     Optional<Restaurant> findByOwner_Id(Long ownerId);
-} 
\ No newline at end of file
+
+    @Query("SELECT r.id FROM Restaurant r WHERE r.owner.id = :ownerId")
+    Optional<Long> findIdByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Query("""
+        SELECT new com.example.demo.dto.RestaurantSummary(
+            r.id, r.name, r.address, r.phone, r.cuisineType, r.description, r.openingHours, r.slug, r.isActive)
+        FROM Restaurant r
+        ORDER BY r.id
+        """)
+    List<RestaurantSummary> findSummaries();
+} 
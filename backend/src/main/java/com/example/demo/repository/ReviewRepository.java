@@ -1,14 +1,26 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.RatingCount;
 import com.example.demo.model.Review;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
  
 public interface ReviewRepository extends JpaRepository<Review, Long> {
     List<Review> findByCustomerIdOrderByCreatedAtDesc(Long customerId);
     List<Review> findByRestaurantIdOrderByCreatedAtDesc(Long restaurantId);
+    List<Review> findTop5ByRestaurantIdOrderByCreatedAtDesc(Long restaurantId);
     List<Review> findByOrderId(Long orderId);
     List<Review> findByMenuItemId(Long menuItemId);
     boolean existsByOrderIdAndMenuItemIdAndCustomerId(Long orderId, Long menuItemId, Long customerId);
     boolean existsByMenuItemId(Long menuItemId);
+
+    @Query("""
+        SELECT new com.example.demo.dto.RatingCount(r.rating, COUNT(r))
+        FROM Review r
+        WHERE r.restaurantId = :restaurantId AND r.rating IS NOT NULL
+        GROUP BY r.rating
+        """)
+    List<RatingCount> countRatingsByRestaurantId(@Param("restaurantId") Long restaurantId);
 } 
@@ -0,0 +1,21 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.TokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocation, Long> {
+    // Rows written since the last sync, by this or any other instance.
+    List<TokenRevocation> findByIdGreaterThanAndExpiresAtAfterOrderByIdAsc(Long id, Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TokenRevocation r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
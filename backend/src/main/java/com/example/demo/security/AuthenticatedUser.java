@@ -0,0 +1,68 @@
+package com.example.demo.security;
+
+import com.example.demo.model.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal installed by {@code JwtRequestFilter}. Carries the user id, role and
+ * owned restaurant id from the token, so controllers can resolve identity without
+ * loading the user. {@code restaurantId} reflects the time the token was issued;
+ * authorization decisions go through {@link RestaurantOwnership}.
+ */
+public class AuthenticatedUser implements UserDetails {
+    private final Long id;
+    private final String username;
+    private final String password;
+    private final String role;
+    private final Long restaurantId;
+    private final int tokenVersion;
+    private final List<GrantedAuthority> authorities;
+
+    public AuthenticatedUser(Long id, String username, String password, String role, Long restaurantId, int tokenVersion) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.role = role != null ? role.toUpperCase() : "CUSTOMER";
+        this.restaurantId = restaurantId;
+        this.tokenVersion = tokenVersion;
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + this.role));
+    }
+
+    public static AuthenticatedUser of(User user, Long restaurantId) {
+        return new AuthenticatedUser(
+                user.getId(),
+                user.getUsername(),
+                user.getPassword() != null ? user.getPassword() : "",
+                user.getRole(),
+                restaurantId,
+                user.getTokenVersion() != null ? user.getTokenVersion() : 0);
+    }
+
+    /** Copy without the password hash, safe to keep in the security context. */
+    public AuthenticatedUser withoutPassword() {
+        return new AuthenticatedUser(id, username, null, role, restaurantId, tokenVersion);
+    }
+
+    public Long getId() { return id; }
+    public String getRole() { return role; }
+    public Long getRestaurantId() { return restaurantId; }
+    public int getTokenVersion() { return tokenVersion; }
+
+    public boolean isRestaurant() {
+        return "RESTAURANT".equals(role) || "RESTAURANT_OWNER".equals(role);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() { return authorities; }
+
+    @Override
+    public String getPassword() { return password; }
+
+    @Override
+    public String getUsername() { return username; }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.security;
+
+import com.example.demo.exception.ApiException;
+import com.example.demo.service.CustomUserDetailsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns the controller's {@code @AuthenticationPrincipal} into an
+ * {@link AuthenticatedUser}. Requests authenticated by a JWT already carry one,
+ * so this costs no queries; other principals are loaded from the database.
+ */
+@Component
+public class AuthenticatedUserResolver {
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    public AuthenticatedUser resolve(UserDetails userDetails) {
+        if (userDetails == null) {
+            throw new ApiException("UNAUTHENTICATED", "Authentication required", HttpStatus.UNAUTHORIZED);
+        }
+        if (userDetails instanceof AuthenticatedUser authenticated) {
+            return authenticated;
+        }
+        return userDetailsService.loadUserByUsername(userDetails.getUsername()).withoutPassword();
+    }
+}
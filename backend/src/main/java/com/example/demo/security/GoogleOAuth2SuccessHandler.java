@@ -2,7 +2,8 @@ package com.example.demo.security;
 
 import com.example.demo.model.User;
 import com.example.demo.repository.CustomerRepository;
-import com.example.demo.service.JwtUtil;
+import com.example.demo.repository.RestaurantRepository;
+import com.example.demo.service.AuthTokenService;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -19,16 +20,17 @@ import java.time.LocalDateTime;
 @Component
 public class GoogleOAuth2SuccessHandler implements AuthenticationSuccessHandler {
     private final CustomerRepository customerRepository;
-    private final JwtUtil jwtUtil;
-    private final JwtCookieService jwtCookieService;
+    private final RestaurantRepository restaurantRepository;
+    private final AuthTokenService authTokenService;
 
     @Value("${app.oauth2.authorized-redirect-uri:http://localhost:3000/auth/callback}")
     private String authorizedRedirectUri;
 
-    public GoogleOAuth2SuccessHandler(CustomerRepository customerRepository, JwtUtil jwtUtil, JwtCookieService jwtCookieService) {
+    public GoogleOAuth2SuccessHandler(CustomerRepository customerRepository, RestaurantRepository restaurantRepository,
+                                      AuthTokenService authTokenService) {
         this.customerRepository = customerRepository;
-        this.jwtUtil = jwtUtil;
-        this.jwtCookieService = jwtCookieService;
+        this.restaurantRepository = restaurantRepository;
+        this.authTokenService = authTokenService;
     }
 
     @Override
@@ -59,8 +61,11 @@ public class GoogleOAuth2SuccessHandler implements AuthenticationSuccessHandler
         customerRepository.save(user);
 
         String role = user.getRole() != null ? user.getRole().toUpperCase() : "CUSTOMER";
-        String token = jwtUtil.generateToken(user.getUsername(), role);
-        response.addHeader(HttpHeaders.SET_COOKIE, jwtCookieService.createTokenCookie(token).toString());
+        Long restaurantId = "RESTAURANT".equals(role) || "RESTAURANT_OWNER".equals(role)
+                ? restaurantRepository.findIdByOwnerId(user.getId()).orElse(null)
+                : null;
+        authTokenService.issue(user, restaurantId).cookies()
+                .forEach(cookie -> response.addHeader(HttpHeaders.SET_COOKIE, cookie));
         response.sendRedirect(authorizedRedirectUri + "?login=success");
     }
 
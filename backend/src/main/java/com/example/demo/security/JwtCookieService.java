@@ -21,15 +21,33 @@ public class JwtCookieService {
     @Value("${jwt.cookie-same-site:Lax}")
     private String sameSite;
 
-    @Value("${jwt.expiration:86400000}")
+    @Value("${jwt.expiration:900000}")
     private long expirationMillis;
 
+    @Value("${jwt.refresh-cookie-name:FOODLY_REFRESH_TOKEN}")
+    private String refreshCookieName;
+
+    // The refresh token is only ever sent to the auth endpoints.
+    @Value("${jwt.refresh-cookie-path:/api/v1/auth}")
+    private String refreshCookiePath;
+
+    @Value("${app.auth.refresh-token.ttl-days:14}")
+    private long refreshTtlDays;
+
     public Optional<String> readToken(HttpServletRequest request) {
+        return readCookie(request, cookieName);
+    }
+
+    public Optional<String> readRefreshToken(HttpServletRequest request) {
+        return readCookie(request, refreshCookieName);
+    }
+
+    private Optional<String> readCookie(HttpServletRequest request, String name) {
         if (request.getCookies() == null) {
             return Optional.empty();
         }
         return Arrays.stream(request.getCookies())
-                .filter(cookie -> cookieName.equals(cookie.getName()))
+                .filter(cookie -> name.equals(cookie.getName()))
                 .map(Cookie::getValue)
                 .filter(value -> value != null && !value.isBlank())
                 .findFirst();
@@ -54,4 +72,24 @@ public class JwtCookieService {
                 .maxAge(Duration.ZERO)
                 .build();
     }
+
+    public ResponseCookie createRefreshCookie(String refreshToken) {
+        return ResponseCookie.from(refreshCookieName, refreshToken)
+                .httpOnly(true)
+                .secure(secure)
+                .sameSite(sameSite)
+                .path(refreshCookiePath)
+                .maxAge(Duration.ofDays(refreshTtlDays))
+                .build();
+    }
+
+    public ResponseCookie clearRefreshCookie() {
+        return ResponseCookie.from(refreshCookieName, "")
+                .httpOnly(true)
+                .secure(secure)
+                .sameSite(sameSite)
+                .path(refreshCookiePath)
+                .maxAge(Duration.ZERO)
+                .build();
+    }
 }
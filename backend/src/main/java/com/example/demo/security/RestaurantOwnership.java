@@ -0,0 +1,78 @@
+package com.example.demo.security;
+
+import com.example.demo.repository.RestaurantRepository;
+import com.example.demo.service.BoundedCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Single place that answers "which restaurant does this user own". Results are
+ * cached by owner id, including "owns none", so ownership checks cost no SQL once
+ * warm. Code that creates, deletes or reassigns a restaurant must call
+ * {@link #evictOwner(Long)}; the TTL only bounds changes made outside the
+ * application.
+ *
+ * Also usable from method security:
+ * {@code @PreAuthorize("@restaurantOwnership.owns(authentication, #restaurantId)")}.
+ */
+@Component("restaurantOwnership")
+public class RestaurantOwnership {
+    private final BoundedCache<Long, Optional<Long>> restaurantIdByOwner;
+    private final RestaurantRepository restaurantRepository;
+    private final AuthenticatedUserResolver authenticatedUserResolver;
+
+    public RestaurantOwnership(RestaurantRepository restaurantRepository,
+                               AuthenticatedUserResolver authenticatedUserResolver, MeterRegistry meterRegistry,
+                               @Value("${app.auth.ownership-cache.ttl-seconds:300}") long ttlSeconds,
+                               @Value("${app.auth.ownership-cache.max-entries:10000}") int maxEntries) {
+        this.restaurantIdByOwner = new BoundedCache<>("foodly.auth.ownership.cache", maxEntries,
+                Duration.ofSeconds(ttlSeconds), meterRegistry);
+        this.restaurantRepository = restaurantRepository;
+        this.authenticatedUserResolver = authenticatedUserResolver;
+    }
+
+    /** Id of the restaurant owned by {@code user}, or null for non-restaurant users and owners without one. */
+    public Long restaurantIdOf(AuthenticatedUser user) {
+        if (!user.isRestaurant()) {
+            return null;
+        }
+        return restaurantIdByOwner.get(user.getId(), restaurantRepository::findIdByOwnerId).orElse(null);
+    }
+
+    public boolean owns(AuthenticatedUser user, Long restaurantId) {
+        return restaurantId != null && restaurantId.equals(restaurantIdOf(user));
+    }
+
+    public boolean owns(Authentication authentication, Long restaurantId) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserDetails principal)) {
+            return false;
+        }
+        return owns(authenticatedUserResolver.resolve(principal), restaurantId);
+    }
+
+    public Long requireOwnedRestaurantId(AuthenticatedUser user) {
+        Long restaurantId = restaurantIdOf(user);
+        if (restaurantId == null) {
+            throw new AccessDeniedException("Restaurant not found for this user");
+        }
+        return restaurantId;
+    }
+
+    /**
+     * Forgets the cached restaurant of {@code ownerId}. Inside a transaction the
+     * eviction runs again after commit, so a concurrent read cannot re-cache the
+     * pre-commit state.
+     */
+    public void evictOwner(Long ownerId) {
+        if (ownerId != null) {
+            restaurantIdByOwner.invalidate(ownerId);
+        }
+    }
+}
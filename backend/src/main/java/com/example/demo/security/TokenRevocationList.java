@@ -0,0 +1,185 @@
+package com.example.demo.security;
+
+import com.example.demo.model.TokenRevocation;
+import com.example.demo.repository.TokenRevocationRepository;
+import com.example.demo.service.JwtClaims;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory view of the token_revocations table, consulted by
+ * {@code JwtRequestFilter} on every authenticated request without touching the
+ * database. Revoked token ids sit behind a Bloom filter, so the common "not
+ * revoked" answer is a few bit reads; a filter hit is confirmed against the exact
+ * set. User-wide revocations (admin blocks) are kept per user id.
+ *
+ * The state is rebuilt from the table at startup and new rows are pulled every
+ * {@code app.auth.revocation.sync-interval-ms}, so a logout or block on another
+ * instance takes effect here within that interval.
+ */
+@Component
+public class TokenRevocationList {
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+    private static final int HASH_FUNCTIONS = 4;
+    // Ids from concurrent writers can commit out of order; re-reading a short tail catches late ones.
+    private static final long SYNC_LOOKBACK_IDS = 100;
+
+    private final TokenRevocationRepository revocationRepository;
+    private final Map<String, Instant> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<Long, Revocation> revokedUsers = new ConcurrentHashMap<>();
+    private final AtomicLong lastSyncedId = new AtomicLong();
+    private final Object writeLock = new Object();
+    private volatile AtomicLongArray bloom;
+
+    @Value("${app.auth.revocation.bloom-bits:1048576}")
+    private int bloomBits;
+
+    @Value("${jwt.expiration:900000}")
+    private long accessTokenMillis;
+
+    private record Revocation(Instant revokedAt, Instant expiresAt) {}
+
+    public TokenRevocationList(TokenRevocationRepository revocationRepository, MeterRegistry meterRegistry) {
+        this.revocationRepository = revocationRepository;
+        meterRegistry.gaugeMapSize("foodly.auth.revocations.tokens", List.of(), revokedTokens);
+        meterRegistry.gaugeMapSize("foodly.auth.revocations.users", List.of(), revokedUsers);
+    }
+
+    @PostConstruct
+    void load() {
+        bloom = new AtomicLongArray(Math.max(64, bloomBits) / 64);
+        sync();
+        logger.info("Loaded {} revoked tokens and {} revoked users", revokedTokens.size(), revokedUsers.size());
+    }
+
+    public boolean isRevoked(JwtClaims claims) {
+        String tokenId = claims.tokenId();
+        if (tokenId != null && mightContain(bloom, tokenId) && revokedTokens.containsKey(tokenId)) {
+            return true;
+        }
+        if (claims.userId() != null) {
+            Revocation revocation = revokedUsers.get(claims.userId());
+            // iat has second precision, so a token from the same second counts as revoked.
+            return revocation != null && claims.issuedAt() != null
+                    && !claims.issuedAt().isAfter(revocation.revokedAt());
+        }
+        return false;
+    }
+
+    /** Revokes one access token until it expires. */
+    public void revokeToken(String tokenId, Instant expiresAt) {
+        if (tokenId == null || expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+        TokenRevocation row = new TokenRevocation();
+        row.setTokenId(tokenId);
+        row.setExpiresAt(expiresAt);
+        apply(revocationRepository.save(row));
+    }
+
+    /** Revokes every access token issued to {@code userId} so far. */
+    public void revokeUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        TokenRevocation row = new TokenRevocation();
+        row.setUserId(userId);
+        row.setRevokedAt(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+        row.setExpiresAt(row.getRevokedAt().plusMillis(accessTokenMillis));
+        apply(revocationRepository.save(row));
+    }
+
+    @Scheduled(fixedDelayString = "${app.auth.revocation.sync-interval-ms:5000}",
+            initialDelayString = "${app.auth.revocation.sync-interval-ms:5000}")
+    public void sync() {
+        List<TokenRevocation> rows = revocationRepository
+                .findByIdGreaterThanAndExpiresAtAfterOrderByIdAsc(lastSyncedId.get() - SYNC_LOOKBACK_IDS, Instant.now());
+        rows.forEach(this::apply);
+    }
+
+    /**
+     * Drops revocations whose tokens have expired, both here and in the table, and
+     * rebuilds the Bloom filter so it does not fill up over time.
+     */
+    @Scheduled(fixedDelayString = "${app.auth.revocation.prune-interval-ms:3600000}",
+            initialDelayString = "${app.auth.revocation.prune-interval-ms:3600000}")
+    public void prune() {
+        Instant now = Instant.now();
+        revocationRepository.deleteExpired(now);
+        synchronized (writeLock) {
+            revokedTokens.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+            revokedUsers.values().removeIf(revocation -> !revocation.expiresAt().isAfter(now));
+            AtomicLongArray rebuilt = new AtomicLongArray(bloom.length());
+            revokedTokens.keySet().forEach(tokenId -> add(rebuilt, tokenId));
+            bloom = rebuilt;
+        }
+    }
+
+    private void apply(TokenRevocation row) {
+        synchronized (writeLock) {
+            if (row.getTokenId() != null) {
+                // Exact set first: a concurrent reader that sees the bloom bit must also see the entry.
+                revokedTokens.put(row.getTokenId(), row.getExpiresAt());
+                add(bloom, row.getTokenId());
+            }
+            if (row.getUserId() != null) {
+                revokedUsers.merge(row.getUserId(), new Revocation(row.getRevokedAt(), row.getExpiresAt()),
+                        (existing, added) -> existing.revokedAt().isAfter(added.revokedAt()) ? existing : added);
+            }
+            lastSyncedId.accumulateAndGet(row.getId(), Math::max);
+        }
+    }
+
+    private static void add(AtomicLongArray bits, String tokenId) {
+        long hash = hash(tokenId);
+        int bitCount = bits.length() * 64;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            int bit = index(hash, i, bitCount);
+            long mask = 1L << (bit & 63);
+            bits.getAndAccumulate(bit >>> 6, mask, (word, m) -> word | m);
+        }
+    }
+
+    private static boolean mightContain(AtomicLongArray bits, String tokenId) {
+        long hash = hash(tokenId);
+        int bitCount = bits.length() * 64;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            int bit = index(hash, i, bitCount);
+            if ((bits.get(bit >>> 6) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Double hashing (Kirsch-Mitzenmacher): derive k indexes from the two halves of one 64-bit hash.
+    private static int index(long hash, int i, int bitCount) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return Math.floorMod(h1 + i * h2, bitCount);
+    }
+
+    // 64-bit FNV-1a; token ids are server-generated UUIDs, so no keyed hash is needed.
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
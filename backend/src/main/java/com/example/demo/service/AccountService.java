@@ -0,0 +1,112 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.SignupRequest;
+import com.example.demo.exception.ApiException;
+import com.example.demo.model.Restaurant;
+import com.example.demo.model.User;
+import com.example.demo.repository.CustomerRepository;
+import com.example.demo.repository.RestaurantRepository;
+import com.example.demo.security.RestaurantOwnership;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+/**
+ * Writes local accounts. Passwords arrive already hashed: callers run BCrypt on
+ * {@link PasswordHashingService} before calling in, so a request waiting for a
+ * hashing slot never holds a database connection or an open transaction.
+ */
+@Service
+public class AccountService {
+    private final CustomerRepository customerRepository;
+    private final RestaurantRepository restaurantRepository;
+    private final RestaurantOwnership restaurantOwnership;
+    private final ContentVersions contentVersions;
+
+    /** The new user, and the restaurant created with it for restaurant signups. */
+    public record Registration(User user, Long restaurantId) {}
+
+    public AccountService(CustomerRepository customerRepository, RestaurantRepository restaurantRepository,
+                          RestaurantOwnership restaurantOwnership, ContentVersions contentVersions) {
+        this.customerRepository = customerRepository;
+        this.restaurantRepository = restaurantRepository;
+        this.restaurantOwnership = restaurantOwnership;
+        this.contentVersions = contentVersions;
+    }
+
+    @Transactional
+    public Registration register(SignupRequest req, String username, String email, String role, String passwordHash) {
+        if (customerRepository.findByUsername(username).isPresent()) {
+            throw new ApiException("USERNAME_EXISTS", "Username already exists", HttpStatus.CONFLICT);
+        }
+        if (customerRepository.findByEmail(email).isPresent()) {
+            throw new ApiException("EMAIL_EXISTS", "Email already exists", HttpStatus.CONFLICT);
+        }
+
+        User customer = new User();
+        customer.setUsername(username);
+        customer.setPassword(passwordHash);
+        customer.setEmail(email);
+        customer.setRole(role);
+        customer.setProvider("LOCAL");
+        customer.setEmailVerified(false);
+        customer = customerRepository.save(customer);
+        Long restaurantId = null;
+
+        // If registering as restaurant, create restaurant entity
+        if ("RESTAURANT".equals(role) || "RESTAURANT_OWNER".equals(role)) {
+            Restaurant restaurant = new Restaurant();
+            restaurant.setName(req.getRestaurantName());
+            restaurant.setAddress(req.getRestaurantAddress());
+            restaurant.setPhone(req.getRestaurantPhone());
+            restaurant.setCuisineType(req.getCuisineType());
+            restaurant.setDescription(req.getDescription());
+            restaurant.setOpeningHours(req.getOpeningHours());
+            restaurant.setIsActive(true);
+            restaurant.setSlug(generateUniqueSlug(req.getRestaurantName()));
+            restaurant.setOwner(customer);
+            restaurantId = restaurantRepository.save(restaurant).getId();
+            restaurantOwnership.evictOwner(customer.getId());
+            contentVersions.restaurantChanged(restaurantId);
+            contentVersions.catalogChanged();
+        }
+        return new Registration(customer, restaurantId);
+    }
+
+    /**
+     * Stores a rehashed password, unless the stored hash changed since
+     * {@code previousHash} was read, e.g. by a password reset in between.
+     */
+    @Transactional
+    public boolean replacePasswordHash(Long userId, String previousHash, String newHash) {
+        User user = customerRepository.findById(userId).orElse(null);
+        if (user == null || !previousHash.equals(user.getPassword())) {
+            return false;
+        }
+        user.setPassword(newHash);
+        return true;
+    }
+
+    private String generateUniqueSlug(String name) {
+        String baseSlug = slugify(name);
+        String uniqueSlug = baseSlug;
+        int count = 1;
+        while (restaurantRepository.findBySlug(uniqueSlug).isPresent()) {
+            uniqueSlug = baseSlug + "-" + count;
+            count++;
+        }
+        return uniqueSlug;
+    }
+
+    private String slugify(String input) {
+        String safeInput = input == null || input.isBlank() ? "restaurant" : input.trim();
+        String nowhitespace = Pattern.compile("\\s+").matcher(safeInput).replaceAll("-");
+        String normalized = Normalizer.normalize(nowhitespace, Normalizer.Form.NFD);
+        String slug = Pattern.compile("[^a-zA-Z0-9-]").matcher(normalized).replaceAll("");
+        slug = slug.toLowerCase();
+        return slug.isBlank() ? "restaurant" : slug;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.ApiException;
+import com.example.demo.model.RefreshToken;
+import com.example.demo.model.User;
+import com.example.demo.repository.CustomerRepository;
+import com.example.demo.repository.RefreshTokenRepository;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.JwtCookieService;
+import com.example.demo.security.RestaurantOwnership;
+import com.example.demo.security.TokenRevocationList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Issues the access/refresh token pair and handles refresh and logout.
+ *
+ * Access tokens are short-lived JWTs checked purely in memory. Refresh tokens are
+ * opaque random values stored as SHA-256 hashes; each refresh revokes the
+ * presented token and issues a new one in the same family. Presenting a token
+ * that was already rotated means it was copied, so the whole family is revoked.
+ */
+@Service
+public class AuthTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(AuthTokenService.class);
+
+    private final JwtUtil jwtUtil;
+    private final JwtCookieService jwtCookieService;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final CustomerRepository customerRepository;
+    private final RestaurantOwnership restaurantOwnership;
+    private final TokenRevocationList revocationList;
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${app.auth.refresh-token.ttl-days:14}")
+    private long refreshTtlDays;
+
+    /** Set-Cookie values for a freshly issued pair, access cookie first. */
+    public record IssuedTokens(User user, Long restaurantId, List<String> cookies) {}
+
+    public AuthTokenService(JwtUtil jwtUtil, JwtCookieService jwtCookieService,
+                            RefreshTokenRepository refreshTokenRepository, CustomerRepository customerRepository,
+                            RestaurantOwnership restaurantOwnership, TokenRevocationList revocationList) {
+        this.jwtUtil = jwtUtil;
+        this.jwtCookieService = jwtCookieService;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.customerRepository = customerRepository;
+        this.restaurantOwnership = restaurantOwnership;
+        this.revocationList = revocationList;
+    }
+
+    /** Starts a new refresh-token family for a successful login or signup. */
+    @Transactional
+    public IssuedTokens issue(User user, Long restaurantId) {
+        return issue(user, restaurantId, UUID.randomUUID().toString());
+    }
+
+    @Transactional(noRollbackFor = ApiException.class)
+    public IssuedTokens refresh(String presentedToken) {
+        if (presentedToken == null || presentedToken.isBlank()) {
+            throw new ApiException("REFRESH_TOKEN_MISSING", "Refresh token required", HttpStatus.UNAUTHORIZED);
+        }
+        Instant now = Instant.now();
+        RefreshToken current = refreshTokenRepository.findByTokenHash(hash(presentedToken))
+                .orElseThrow(() -> new ApiException("INVALID_REFRESH_TOKEN", "Invalid refresh token", HttpStatus.UNAUTHORIZED));
+        if (current.getRevokedAt() != null || refreshTokenRepository.revokeIfActive(current.getId(), now) == 0) {
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            logger.warn("Refresh token reuse detected for user {}; revoked token family", current.getUserId());
+            throw new ApiException("REFRESH_TOKEN_REUSED", "Refresh token is no longer valid", HttpStatus.UNAUTHORIZED);
+        }
+        if (!current.getExpiresAt().isAfter(now)) {
+            throw new ApiException("REFRESH_TOKEN_EXPIRED", "Refresh token expired", HttpStatus.UNAUTHORIZED);
+        }
+        User user = customerRepository.findById(current.getUserId())
+                .orElseThrow(() -> new ApiException("INVALID_REFRESH_TOKEN", "Invalid refresh token", HttpStatus.UNAUTHORIZED));
+        if (Boolean.TRUE.equals(user.getIsBlocked())) {
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            throw new ApiException("ACCOUNT_BLOCKED", "Your account has been blocked. Please contact support.", HttpStatus.FORBIDDEN);
+        }
+        Long restaurantId = restaurantOwnership.restaurantIdOf(AuthenticatedUser.of(user, null));
+        return issue(user, restaurantId, current.getFamilyId());
+    }
+
+    /** Revokes the presented access token and the refresh family it belongs to. Both are optional. */
+    @Transactional
+    public void logout(String accessToken, String refreshToken) {
+        if (accessToken != null && !accessToken.isBlank()) {
+            try {
+                JwtClaims claims = jwtUtil.verify(accessToken);
+                revocationList.revokeToken(claims.tokenId(), claims.expiresAt());
+            } catch (Exception e) {
+                logger.debug("Ignoring invalid access token on logout");
+            }
+        }
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                    .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), Instant.now()));
+        }
+    }
+
+    /** Signs the user out everywhere: no refresh, and outstanding access tokens stop working within seconds. */
+    @Transactional
+    public void revokeAllForUser(Long userId) {
+        refreshTokenRepository.revokeAllForUser(userId, Instant.now());
+        revocationList.revokeUser(userId);
+    }
+
+    public List<String> clearCookies() {
+        return List.of(jwtCookieService.clearTokenCookie().toString(), jwtCookieService.clearRefreshCookie().toString());
+    }
+
+    @Scheduled(cron = "${app.auth.refresh-token.purge-cron:0 15 4 * * *}")
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            logger.info("Removed {} expired refresh tokens", deleted);
+        }
+    }
+
+    private IssuedTokens issue(User user, Long restaurantId, String familyId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String refreshValue = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUserId(user.getId());
+        refreshToken.setTokenHash(hash(refreshValue));
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setExpiresAt(Instant.now().plus(Duration.ofDays(refreshTtlDays)));
+        refreshTokenRepository.save(refreshToken);
+
+        String accessToken = jwtUtil.generateToken(user, restaurantId);
+        return new IssuedTokens(user, restaurantId, List.of(
+                jwtCookieService.createTokenCookie(accessToken).toString(),
+                jwtCookieService.createRefreshCookie(refreshValue).toString()));
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Small in-process cache with a size bound and a time to live, shared by the
+ * lookups on the authentication path. Loaders run outside any lock, so two
+ * concurrent misses may both load; null results are never cached. When the
+ * cache is full, expired entries go first, then arbitrary live ones until a
+ * tenth of the room is free again.
+ *
+ * For a cache named {@code foodly.auth.user.cache}, that name counts lookups by
+ * {@code result} ({@code hit}, {@code miss}), {@code .size} is the number of
+ * entries and {@code .evictions} counts live entries dropped to make room.
+ */
+public class BoundedCache<K, V> {
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter evictionCounter;
+
+    public BoundedCache(String name, int maxEntries, Duration ttl, MeterRegistry meterRegistry) {
+        if (maxEntries < 1 || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException(name + " needs a positive size bound and time to live");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.hitCounter = meterRegistry.counter(name, "result", "hit");
+        this.missCounter = meterRegistry.counter(name, "result", "miss");
+        this.evictionCounter = meterRegistry.counter(name + ".evictions");
+        meterRegistry.gaugeMapSize(name + ".size", Tags.empty(), entries);
+    }
+
+    /** The live entry for {@code key}, or the result of {@code loader}, cached unless it is null. */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V cached = getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        V loaded = loader.apply(key);
+        put(key, loaded);
+        return loaded;
+    }
+
+    public V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            if (System.nanoTime() - entry.expiresAtNanos < 0) {
+                hitCounter.increment();
+                return entry.value;
+            }
+            entries.remove(key, entry);
+        }
+        missCounter.increment();
+        return null;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttlNanos);
+    }
+
+    /** Caches {@code value} for {@code ttl} or the cache's own time to live, whichever is shorter. */
+    public void put(K key, V value, Duration ttl) {
+        put(key, value, Math.min(ttl.toNanos(), ttlNanos));
+    }
+
+    /**
+     * Removes {@code key}. Inside a transaction it is removed again once the
+     * transaction completes, so a concurrent reader that loaded the old state
+     * before the commit cannot keep it cached.
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    entries.remove(key);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void put(K key, V value, long ttlNanos) {
+        if (value == null || ttlNanos <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            makeRoom(now);
+        }
+        entries.put(key, new Entry<>(value, now + ttlNanos));
+    }
+
+    private void makeRoom(long now) {
+        entries.values().removeIf(entry -> now - entry.expiresAtNanos >= 0);
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        Iterator<K> keys = entries.keySet().iterator();
+        while (entries.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+            evictionCounter.increment();
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.ApiException;
+import com.example.demo.web.RequestTrace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Isolates heavy read workloads from checkout. Analytics, admin listings,
+ * review listings and the reads behind the composite restaurant page each run
+ * on their own small executor instead of on Tomcat threads. A bulkhead's thread count is also its connection budget: each task
+ * holds at most one Hikari connection, so analytics can never hold more than
+ * {@code app.bulkhead.analytics.threads} connections however many owners open
+ * their dashboards. When a bulkhead's queue is full the request fails fast with
+ * 503 and Retry-After.
+ */
+@Service
+public class Bulkheads {
+    public static final String ANALYTICS = "analytics";
+    public static final String ADMIN = "admin";
+    public static final String REVIEWS = "reviews";
+    public static final String PAGE = "page";
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final Map<String, Bulkhead> bulkheads;
+
+    private record Bulkhead(ThreadPoolExecutor executor, Timer queueWait, Counter rejected) {}
+
+    public Bulkheads(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry, Environment environment) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.bulkheads = Map.of(
+                ANALYTICS, create(ANALYTICS, 2, 20, meterRegistry, environment),
+                ADMIN, create(ADMIN, 2, 10, meterRegistry, environment),
+                REVIEWS, create(REVIEWS, 4, 50, meterRegistry, environment),
+                PAGE, create(PAGE, 8, 200, meterRegistry, environment));
+    }
+
+    @PreDestroy
+    void stop() {
+        bulkheads.values().forEach(bulkhead -> bulkhead.executor().shutdownNow());
+    }
+
+    /**
+     * Runs {@code work} in a read-only transaction on the named bulkhead. The
+     * future completes with the work's result or exception.
+     *
+     * @throws ApiException 503 BULKHEAD_FULL if the bulkhead cannot take more work
+     */
+    public <T> CompletableFuture<T> submit(String name, Supplier<T> work) {
+        Bulkhead bulkhead = bulkheads.get(name);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        RequestTrace trace = RequestTrace.current();
+        long queuedAt = System.nanoTime();
+        try {
+            bulkhead.executor().execute(() -> {
+                bulkhead.queueWait().record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    result.complete(RequestTrace.supplyWith(trace,
+                            () -> readOnlyTransaction.execute(status -> work.get())));
+                } catch (Throwable e) {
+                    // An Error must still settle the future, or the request waits for the async timeout.
+                    result.completeExceptionally(e);
+                    if (e instanceof Error error) {
+                        throw error;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.rejected().increment();
+            throw new ApiException("BULKHEAD_FULL", "This page is busy right now, please retry shortly",
+                    HttpStatus.SERVICE_UNAVAILABLE, Duration.ofSeconds(1));
+        }
+        return result;
+    }
+
+    private static Bulkhead create(String name, int defaultThreads, int defaultQueue,
+                                   MeterRegistry meterRegistry, Environment environment) {
+        int threads = environment.getProperty("app.bulkhead." + name + ".threads", Integer.class, defaultThreads);
+        int queueCapacity = environment.getProperty("app.bulkhead." + name + ".queue-capacity", Integer.class, defaultQueue);
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "bulkhead-" + name + "-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("foodly.bulkhead.active", executor, ThreadPoolExecutor::getActiveCount)
+                .tag("bulkhead", name).register(meterRegistry);
+        Gauge.builder("foodly.bulkhead.queue.depth", executor, e -> e.getQueue().size())
+                .tag("bulkhead", name).register(meterRegistry);
+        // 1.0 means every thread is busy and the queue is full: the next request is rejected.
+        Gauge.builder("foodly.bulkhead.saturation", executor,
+                        e -> (double) (e.getActiveCount() + e.getQueue().size()) / (threads + queueCapacity))
+                .tag("bulkhead", name).register(meterRegistry);
+        return new Bulkhead(executor,
+                meterRegistry.timer("foodly.bulkhead.queue.wait", "bulkhead", name),
+                meterRegistry.counter("foodly.bulkhead.rejected", "bulkhead", name));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Counters for what the business cares about rather than what the server is
+ * doing. Events raised inside a transaction are only counted once it commits,
+ * so a rolled-back checkout is not reported as an order.
+ */
+@Component
+public class BusinessMetrics {
+    private final MeterRegistry meterRegistry;
+    private final Counter ordersPlaced;
+    private final DistributionSummary orderTotal;
+
+    public BusinessMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.ordersPlaced = meterRegistry.counter("foodly.orders.placed");
+        this.orderTotal = DistributionSummary.builder("foodly.orders.total")
+                .description("Order value at checkout")
+                .register(meterRegistry);
+    }
+
+    public void orderPlaced(double total) {
+        afterCommit(() -> {
+            ordersPlaced.increment();
+            orderTotal.record(total);
+        });
+    }
+
+    /**
+     * {@code reason} is {@code unavailable} or {@code insufficient_quantity} when
+     * an order was refused, {@code sold_out} when an order took the last unit.
+     */
+    public void stockOut(String reason) {
+        Counter counter = meterRegistry.counter("foodly.menu.stockouts", "reason", reason);
+        if ("sold_out".equals(reason)) {
+            afterCommit(counter::increment);
+        } else {
+            counter.increment();
+        }
+    }
+
+    /** {@code result} is {@code valid}, {@code invalid} or {@code wrong_restaurant}. */
+    public void couponValidated(String result) {
+        meterRegistry.counter("foodly.coupons.validations", "result", result).increment();
+    }
+
+    public void chatMessageSent(String sender) {
+        meterRegistry.counter("foodly.chat.messages", "sender", sender).increment();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.ApiException;
+import com.example.demo.model.ChatMessage;
+import com.example.demo.repository.ChatMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind persistence for support chat messages. Messages are acknowledged
+ * as soon as they are queued and written by dedicated threads as JDBC batch
+ * inserts, so chat bursts do not hold request threads or pool connections that
+ * checkout needs.
+ *
+ * Each order id hashes to one lane, and each lane is a bounded FIFO drained by a
+ * single thread, so messages of one conversation are inserted in the order they
+ * were accepted. A full lane rejects with 429 rather than blocking the caller.
+ *
+ * Accepted messages are only dropped when the database rejects the row itself
+ * (a constraint violation); a client retry of a stored message is skipped. Any
+ * other failure, such as an outage or a lock timeout, is retried with backoff
+ * before the lane moves on, so the lane fills up and starts answering 429
+ * instead of losing messages.
+ */
+@Service
+public class ChatMessageWriter {
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageWriter.class);
+    private static final String INSERT_SQL = "INSERT INTO chat_messages "
+            + "(order_id, customer_id, restaurant_id, sender, message, timestamp, is_read, client_message_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final ChatMessageRepository chatRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final BusinessMetrics businessMetrics;
+
+    @Value("${app.chat.write-behind.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.chat.write-behind.lanes:4}")
+    private int laneCount;
+
+    @Value("${app.chat.write-behind.lane-capacity:1000}")
+    private int laneCapacity;
+
+    @Value("${app.chat.write-behind.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.chat.write-behind.shutdown-timeout-seconds:10}")
+    private long shutdownTimeoutSeconds;
+
+    @Value("${app.chat.write-behind.retry-backoff-ms:100}")
+    private long retryBackoffMs;
+
+    @Value("${app.chat.write-behind.max-retry-backoff-ms:5000}")
+    private long maxRetryBackoffMs;
+
+    private List<BlockingQueue<ChatMessage>> lanes;
+    private ExecutorService executor;
+    private volatile boolean accepting;
+    private Counter acceptedCounter;
+    private Counter rejectedCounter;
+    private Counter writtenCounter;
+    private Counter failedCounter;
+    private Counter retriedCounter;
+    private Timer flushTimer;
+
+    public ChatMessageWriter(ChatMessageRepository chatRepo, JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                             BusinessMetrics businessMetrics) {
+        this.chatRepo = chatRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.businessMetrics = businessMetrics;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        acceptedCounter = meterRegistry.counter("foodly.chat.writer.accepted");
+        rejectedCounter = meterRegistry.counter("foodly.chat.writer.rejected");
+        writtenCounter = meterRegistry.counter("foodly.chat.writer.written");
+        failedCounter = meterRegistry.counter("foodly.chat.writer.failed");
+        retriedCounter = meterRegistry.counter("foodly.chat.writer.retried");
+        flushTimer = meterRegistry.timer("foodly.chat.writer.flush");
+
+        lanes = new ArrayList<>(laneCount);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(laneCount, runnable -> {
+            Thread thread = new Thread(runnable, "chat-writer-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < laneCount; i++) {
+            BlockingQueue<ChatMessage> lane = new ArrayBlockingQueue<>(laneCapacity);
+            lanes.add(lane);
+            Gauge.builder("foodly.chat.writer.queue.depth", lane, BlockingQueue::size)
+                    .tag("lane", Integer.toString(i))
+                    .register(meterRegistry);
+        }
+        accepting = true;
+        for (BlockingQueue<ChatMessage> lane : lanes) {
+            executor.execute(() -> drain(lane));
+        }
+    }
+
+    /**
+     * Accepts a fully populated message. With write-behind enabled the message is
+     * returned without a database id; {@code clientMessageId} identifies it until
+     * it is flushed. With write-behind disabled it is saved synchronously.
+     * Either way the message only counts as sent once its row is stored, so
+     * client retries that turn out to be duplicates are not counted twice.
+     */
+    public ChatMessage submit(ChatMessage message) {
+        if (!enabled) {
+            ChatMessage saved = chatRepo.save(message);
+            businessMetrics.chatMessageSent(saved.getSender());
+            return saved;
+        }
+        if (!accepting) {
+            throw new ApiException("CHAT_UNAVAILABLE", "Chat is temporarily unavailable", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        BlockingQueue<ChatMessage> lane = lanes.get(Math.floorMod(Long.hashCode(message.getOrderId()), lanes.size()));
+        if (!lane.offer(message)) {
+            rejectedCounter.increment();
+            throw new ApiException("CHAT_BUSY", "Too many chat messages right now, please retry shortly", HttpStatus.TOO_MANY_REQUESTS);
+        }
+        acceptedCounter.increment();
+        return message;
+    }
+
+    public boolean isWriteBehind() {
+        return enabled;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        accepting = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+            logger.warn("Chat writer did not drain within {}s", shutdownTimeoutSeconds);
+            executor.shutdownNow();
+        }
+        // Anything that slipped in while the lane threads were exiting.
+        for (BlockingQueue<ChatMessage> lane : lanes) {
+            List<ChatMessage> batch = new ArrayList<>();
+            while (lane.drainTo(batch, batchSize) > 0) {
+                lost(batch.subList(write(batch), batch.size()));
+                batch.clear();
+            }
+        }
+    }
+
+    private void drain(BlockingQueue<ChatMessage> lane) {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        long backoffMs = 0;
+        while (accepting || !lane.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    ChatMessage first = lane.poll(200, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    lane.drainTo(batch, batchSize - 1);
+                } else {
+                    // The unwritten rest of the last batch goes first, so conversations keep their order.
+                    Thread.sleep(backoffMs);
+                }
+                batch.subList(0, write(batch)).clear();
+                if (batch.isEmpty()) {
+                    backoffMs = 0;
+                } else {
+                    backoffMs = Math.min(maxRetryBackoffMs, Math.max(retryBackoffMs, backoffMs * 2));
+                    retriedCounter.increment(batch.size());
+                    logger.warn("Chat writer could not write {} messages, retrying in {}ms", batch.size(), backoffMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lost(batch);
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Chat writer lane failed to flush {} messages", batch.size(), e);
+                failedCounter.increment(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes {@code batch} and returns how many messages from its start are
+     * settled: stored, skipped as duplicates or rejected by a constraint. The
+     * rest failed for a reason worth retrying.
+     */
+    private int write(List<ChatMessage> batch) {
+        return flushTimer.record(() -> {
+            try {
+                // One transaction per batch so a failing row rolls back the whole batch before the retry below.
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (statement, message) -> {
+                    statement.setObject(1, message.getOrderId());
+                    statement.setObject(2, message.getCustomerId());
+                    statement.setObject(3, message.getRestaurantId());
+                    statement.setString(4, message.getSender());
+                    statement.setString(5, message.getMessage());
+                    statement.setTimestamp(6, new Timestamp(message.getTimestamp().getTime()));
+                    statement.setBoolean(7, Boolean.TRUE.equals(message.getIsRead()));
+                    statement.setString(8, message.getClientMessageId());
+                }));
+                writtenCounter.increment(batch.size());
+                batch.forEach(message -> businessMetrics.chatMessageSent(message.getSender()));
+                return batch.size();
+            } catch (DataAccessException | TransactionException batchFailure) {
+                // Isolate the bad row (typically a retried clientMessageId) and keep the rest.
+                for (int i = 0; i < batch.size(); i++) {
+                    if (!writeOne(batch.get(i))) {
+                        return i;
+                    }
+                }
+                return batch.size();
+            }
+        });
+    }
+
+    private boolean writeOne(ChatMessage message) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, message.getOrderId(), message.getCustomerId(), message.getRestaurantId(),
+                    message.getSender(), message.getMessage(), new Timestamp(message.getTimestamp().getTime()),
+                    Boolean.TRUE.equals(message.getIsRead()), message.getClientMessageId());
+            writtenCounter.increment();
+            businessMetrics.chatMessageSent(message.getSender());
+        } catch (DuplicateKeyException e) {
+            // A client retry of a message that is already stored.
+            logger.debug("Skipped duplicate chat message {} for order {}", message.getClientMessageId(), message.getOrderId());
+        } catch (DataIntegrityViolationException e) {
+            // The row itself is invalid, so no retry can store it.
+            failedCounter.increment();
+            logger.warn("Dropped chat message {} for order {}: {}", message.getClientMessageId(), message.getOrderId(),
+                    e.getMostSpecificCause().getMessage());
+        } catch (DataAccessException e) {
+            return false;
+        }
+        return true;
+    }
+
+    private void lost(List<ChatMessage> messages) {
+        if (!messages.isEmpty()) {
+            failedCounter.increment(messages.size());
+            logger.error("Lost {} accepted chat messages that could not be written before shutdown", messages.size());
+        }
+    }
+}
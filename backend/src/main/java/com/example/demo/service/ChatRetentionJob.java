@@ -0,0 +1,106 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.ChatMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes chat messages (including automatic order status notifications) for
+ * orders that were delivered or cancelled longer than the retention period ago.
+ * Each batch is its own short transaction, so the purge never holds row locks on
+ * chat_messages for long while customers and restaurants keep chatting.
+ */
+@Component
+public class ChatRetentionJob {
+    private static final Logger logger = LoggerFactory.getLogger(ChatRetentionJob.class);
+
+    private final ChatMessageRepository chatRepo;
+    private final Counter deletedCounter;
+    private final Counter batchCounter;
+    private final Timer runTimer;
+    private final AtomicLong lastRunDeleted = new AtomicLong();
+    private final AtomicLong lastRunCompletedAt = new AtomicLong();
+
+    @Value("${app.chat-retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.chat-retention.retention-days:90}")
+    private long retentionDays;
+
+    @Value("${app.chat-retention.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.chat-retention.max-batches-per-run:200}")
+    private int maxBatchesPerRun;
+
+    public ChatRetentionJob(ChatMessageRepository chatRepo, MeterRegistry meterRegistry) {
+        this.chatRepo = chatRepo;
+        this.deletedCounter = Counter.builder("foodly.chat.retention.deleted")
+                .description("Chat messages deleted by the retention job")
+                .register(meterRegistry);
+        this.batchCounter = Counter.builder("foodly.chat.retention.batches")
+                .description("Delete batches executed by the retention job")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("foodly.chat.retention.run")
+                .description("Duration of chat retention runs")
+                .register(meterRegistry);
+        meterRegistry.gauge("foodly.chat.retention.last.run.deleted", lastRunDeleted);
+        meterRegistry.gauge("foodly.chat.retention.last.run.completed", lastRunCompletedAt);
+    }
+
+    @Scheduled(cron = "${app.chat-retention.cron:0 30 3 * * *}")
+    public void scheduledPurge() {
+        if (!enabled) {
+            return;
+        }
+        purgeExpiredMessages();
+    }
+
+    /**
+     * Runs one bounded purge pass and returns the number of deleted messages.
+     * Work left over after {@code max-batches-per-run} is picked up by the next run.
+     */
+    public long purgeExpiredMessages() {
+        Date cutoff = Date.from(Instant.now().minus(Duration.ofDays(retentionDays)));
+        return runTimer.record(() -> purgeClosedBefore(cutoff));
+    }
+
+    long purgeClosedBefore(Date cutoff) {
+        long deleted = 0;
+        int batches = 0;
+        while (batches < maxBatchesPerRun) {
+            List<Long> ids = chatRepo.findIdsForClosedOrdersBefore(cutoff, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            int removed = chatRepo.deleteByIdIn(ids);
+            deleted += removed;
+            batches++;
+            deletedCounter.increment(removed);
+            batchCounter.increment();
+            logger.debug("Chat retention batch {} deleted {} messages ({} so far)", batches, removed, deleted);
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+        lastRunDeleted.set(deleted);
+        lastRunCompletedAt.set(System.currentTimeMillis() / 1000);
+        if (deleted > 0) {
+            logger.info("Chat retention removed {} messages in {} batches for orders closed before {}", deleted, batches, cutoff);
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.service;
+
+import com.example.demo.model.ContentVersion;
+import com.example.demo.repository.ContentVersionRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory view of the content_versions table, read on every conditional GET
+ * without touching the database. Code that changes a restaurant, its menu or
+ * the offers calls one of the {@code ...Changed} methods: the row is
+ * incremented inside the caller's transaction, and this instance sees the new
+ * version once that transaction commits. Other instances pick it up within
+ * {@code app.http-cache.version-sync-interval-ms}.
+ *
+ * Writes made outside the application must increment the matching row too, or
+ * clients keep being told their copy is current.
+ */
+@Service
+public class ContentVersions {
+    private static final String OFFERS = "offers";
+    private static final String CATALOG = "catalog";
+    // Rows can commit a little after their updated_at, or come from an instance with a slower clock.
+    private static final Duration SYNC_LOOKBACK = Duration.ofMinutes(1);
+
+    private final ContentVersionRepository repository;
+    private final TransactionTemplate transaction;
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private final AtomicLong changes = new AtomicLong();
+    private volatile Instant lastSync = Instant.EPOCH;
+
+    public ContentVersions(ContentVersionRepository repository, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void load() {
+        sync();
+    }
+
+    /** Covers the restaurant's own fields, its owner and its menu. */
+    public long restaurant(Long restaurantId) {
+        return versions.getOrDefault(restaurantScope(restaurantId), 0L);
+    }
+
+    /** Covers which slug resolves to which restaurant. */
+    public long catalog() {
+        return versions.getOrDefault(CATALOG, 0L);
+    }
+
+    public long offers() {
+        return versions.getOrDefault(OFFERS, 0L);
+    }
+
+    /**
+     * Number of version changes this instance has seen. A response whose content
+     * was read while this moved must not be tagged with the newer version.
+     */
+    public long changeCount() {
+        return changes.get();
+    }
+
+    public void restaurantChanged(Long restaurantId) {
+        if (restaurantId != null) {
+            bump(restaurantScope(restaurantId));
+        }
+    }
+
+    /** A restaurant was created or deleted, or its name or slug changed. */
+    public void catalogChanged() {
+        bump(CATALOG);
+    }
+
+    public void offersChanged() {
+        bump(OFFERS);
+    }
+
+    @Scheduled(fixedDelayString = "${app.http-cache.version-sync-interval-ms:5000}",
+            initialDelayString = "${app.http-cache.version-sync-interval-ms:5000}")
+    public void sync() {
+        Instant started = Instant.now();
+        repository.findByUpdatedAtAfter(lastSync.minus(SYNC_LOOKBACK))
+                .forEach(row -> apply(row.getScope(), row.getVersion()));
+        lastSync = started;
+    }
+
+    private void bump(String scope) {
+        long version = transaction.execute(status -> {
+            Instant now = Instant.now();
+            if (repository.increment(scope, now) == 0) {
+                repository.save(new ContentVersion(scope, 1L, now));
+                return 1L;
+            }
+            return repository.findVersion(scope).orElseThrow();
+        });
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(scope, version);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(scope, version);
+            }
+        });
+    }
+
+    private void apply(String scope, long version) {
+        Long previous = versions.get(scope);
+        if (previous == null || previous < version) {
+            // Count first: a reader that sees the new version must also see the change count move.
+            changes.incrementAndGet();
+            versions.merge(scope, version, Math::max);
+        }
+    }
+
+    private static String restaurantScope(Long restaurantId) {
+        return "restaurant:" + restaurantId;
+    }
+}
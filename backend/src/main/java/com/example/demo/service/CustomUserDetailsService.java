@@ -2,23 +2,24 @@ package com.example.demo.service;
 
 import com.example.demo.model.User;
 import com.example.demo.repository.CustomerRepository;
+import com.example.demo.repository.RestaurantRepository;
+import com.example.demo.security.AuthenticatedUser;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
 import java.util.Optional;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private CustomerRepository customerRepository;
+    @Autowired
+    private RestaurantRepository restaurantRepository;
 
     @Override
-    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    public AuthenticatedUser loadUserByUsername(String username) throws UsernameNotFoundException {
         // Try to find user by username first, then by email
         Optional<User> userOpt = customerRepository.findByUsername(username);
         if (userOpt.isEmpty()) {
@@ -34,12 +35,10 @@ public class CustomUserDetailsService implements UserDetailsService {
             throw new UsernameNotFoundException("User account is blocked");
         }
         
-        // Add ROLE_ prefix for Spring Security and ensure role is uppercase
-        String role = customer.getRole() != null ? customer.getRole().toUpperCase() : "CUSTOMER";
-        return new org.springframework.security.core.userdetails.User(
-                customer.getUsername(),
-                customer.getPassword() != null ? customer.getPassword() : "",
-                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role))
-        );
+        Long restaurantId = null;
+        if ("RESTAURANT".equalsIgnoreCase(customer.getRole()) || "RESTAURANT_OWNER".equalsIgnoreCase(customer.getRole())) {
+            restaurantId = restaurantRepository.findIdByOwnerId(customer.getId()).orElse(null);
+        }
+        return AuthenticatedUser.of(customer, restaurantId);
     }
 }
@@ -0,0 +1,16 @@
+package com.example.demo.service;
+
+import java.time.Instant;
+
+/**
+ * Verified contents of a JWT. Produced only by {@link JwtUtil#verify(String)}
+ * after the signature has been checked, so callers can read it freely.
+ * {@code userId} and {@code tokenId} are null for tokens issued before those
+ * claims were added.
+ */
+public record JwtClaims(String tokenId, String subject, Long userId, String role, Long restaurantId,
+                        int tokenVersion, Instant issuedAt, Instant expiresAt) {
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+}
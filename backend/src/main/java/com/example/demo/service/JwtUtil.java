@@ -1,64 +1,141 @@
 package com.example.demo.service;
 
+import com.example.demo.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Value;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.UUID;
 
 @Service
 public class JwtUtil {
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLE_CLAIM = "role";
+    static final String RESTAURANT_ID_CLAIM = "rid";
+    static final String TOKEN_VERSION_CLAIM = "ver";
+
     @Value("${jwt.secret}")
     private String SECRET_KEY;
-    
-    @Value("${jwt.expiration:86400000}")
+
+    @Value("${jwt.expiration:900000}")
     private Long JWT_EXPIRATION;
 
+    // Verified claims keyed by SHA-256 of the token, kept until the token or the entry expires.
+    private final BoundedCache<String, JwtClaims> verifiedTokens;
+
+    public JwtUtil(MeterRegistry meterRegistry,
+                   @Value("${app.auth.token-cache.ttl-seconds:900}") long cacheTtlSeconds,
+                   @Value("${app.auth.token-cache.max-entries:10000}") int maxCachedTokens) {
+        this.verifiedTokens = new BoundedCache<>("foodly.auth.token.cache", maxCachedTokens,
+                Duration.ofSeconds(cacheTtlSeconds), meterRegistry);
+    }
+
+    /**
+     * Verifies the signature and expiry of {@code token} and returns its claims.
+     * The HMAC check and JSON parse happen once per distinct token; repeat calls
+     * with the same token are served from the cache until {@code exp}.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, forged or expired
+     * @throws IllegalArgumentException if the token is empty
+     */
+    public JwtClaims verify(String token) {
+        Instant now = Instant.now();
+        String digest = digest(token);
+        JwtClaims cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null && !cached.isExpired(now)) {
+            return cached;
+        }
+
+        Claims claims = Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
+        Integer tokenVersion = claims.get(TOKEN_VERSION_CLAIM, Integer.class);
+        JwtClaims verified = new JwtClaims(
+                claims.getId(),
+                claims.getSubject(),
+                claims.get(USER_ID_CLAIM, Long.class),
+                claims.get(ROLE_CLAIM, String.class),
+                claims.get(RESTAURANT_ID_CLAIM, Long.class),
+                tokenVersion != null ? tokenVersion : 0,
+                toInstant(claims.getIssuedAt()),
+                toInstant(claims.getExpiration()));
+        if (verified.isExpired(now)) {
+            throw new ExpiredJwtException(null, claims, "JWT expired at " + verified.expiresAt());
+        }
+        if (verified.expiresAt() != null) {
+            verifiedTokens.put(digest, verified, Duration.between(now, verified.expiresAt()));
+        }
+        return verified;
+    }
+
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).subject();
     }
 
     public String extractRole(String token) {
-        Claims claims = extractAllClaims(token);
-        return claims.get("role", String.class);
+        return verify(token).role();
     }
 
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        Instant expiresAt = verify(token).expiresAt();
+        return expiresAt != null ? Date.from(expiresAt) : null;
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-    
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
-    }
-    
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-    
-    public String generateToken(String username, String role) {
+    /**
+     * Issues a short-lived access token carrying the user's id, role, owned
+     * restaurant id and token version, so authenticated requests can be served
+     * without loading the user. Each token gets a random {@code jti} so it can be
+     * revoked individually.
+     */
+    public String generateToken(User user, Long restaurantId) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("role", role);
-        return createToken(claims, username);
+        claims.put(USER_ID_CLAIM, user.getId());
+        claims.put(ROLE_CLAIM, user.getRole() != null ? user.getRole().toUpperCase() : "CUSTOMER");
+        if (restaurantId != null) {
+            claims.put(RESTAURANT_ID_CLAIM, restaurantId);
+        }
+        claims.put(TOKEN_VERSION_CLAIM, user.getTokenVersion() != null ? user.getTokenVersion() : 0);
+        return createToken(claims, user.getUsername());
     }
-    
+
     private String createToken(Map<String, Object> claims, String subject) {
-        return Jwts.builder().setClaims(claims).setSubject(subject).setIssuedAt(new Date(System.currentTimeMillis()))
+        return Jwts.builder().setClaims(claims).setId(UUID.randomUUID().toString()).setSubject(subject).setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + JWT_EXPIRATION))
                 .signWith(SignatureAlgorithm.HS256, SECRET_KEY).compact();
     }
-    
+
+    public long getExpirationMillis() {
+        return JWT_EXPIRATION;
+    }
+
     public Boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+        return verify(token).subject().equals(username);
+    }
+
+    private static String digest(String token) {
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("JWT is empty");
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static Instant toInstant(Date date) {
+        return date != null ? date.toInstant() : null;
     }
-} 
+}
@@ -0,0 +1,83 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.MenuItemView;
+import com.example.demo.repository.MenuItemRepository;
+import com.example.demo.repository.RestaurantRepository;
+import com.example.demo.web.SerializedJson;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Customer menus, serialized once per restaurant and content version. Entries
+ * carry the {@link ContentVersions#restaurant} version they were built from,
+ * so every write that bumps it (menu create, update, availability and delete,
+ * stock sold at checkout, on any instance) also retires the cached bytes; there
+ * is no separate eviction to forget. The version is read before the menu is
+ * loaded, so an entry is never labelled newer than its content. Concurrent
+ * misses for the same restaurant and version share one load through
+ * {@link SingleFlight}.
+ */
+@Component
+public class MenuPayloadCache {
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final MenuItemRepository menuItemRepository;
+    private final RestaurantRepository restaurantRepository;
+    private final ContentVersions contentVersions;
+    private final ObjectMapper objectMapper;
+    private final SingleFlight singleFlight;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    @Value("${app.menu-cache.max-entries:1000}")
+    private int maxEntries;
+
+    private record Entry(long version, SerializedJson payload) {}
+
+    public MenuPayloadCache(MenuItemRepository menuItemRepository, RestaurantRepository restaurantRepository,
+                            ContentVersions contentVersions, ObjectMapper objectMapper, SingleFlight singleFlight,
+                            MeterRegistry meterRegistry) {
+        this.menuItemRepository = menuItemRepository;
+        this.restaurantRepository = restaurantRepository;
+        this.contentVersions = contentVersions;
+        this.objectMapper = objectMapper;
+        this.singleFlight = singleFlight;
+        this.hitCounter = meterRegistry.counter("foodly.menu.payload.cache", "result", "hit");
+        this.missCounter = meterRegistry.counter("foodly.menu.payload.cache", "result", "miss");
+        meterRegistry.gaugeMapSize("foodly.menu.payload.cache.size", Tags.empty(), entries);
+    }
+
+    /** Available items of the restaurant's menu as JSON; unknown restaurants are not cached. */
+    public SerializedJson customerMenu(Long restaurantId) {
+        long version = contentVersions.restaurant(restaurantId);
+        Entry cached = entries.get(restaurantId);
+        if (cached != null && cached.version() == version) {
+            hitCounter.increment();
+            return cached.payload();
+        }
+        missCounter.increment();
+        SerializedJson payload = singleFlight.load("menu", restaurantId + ":" + version, () -> load(restaurantId));
+        if (cached == null && entries.size() >= maxEntries) {
+            entries.clear();
+        }
+        // A slower request that read an older version must not replace a newer entry.
+        entries.merge(restaurantId, new Entry(version, payload),
+                (existing, built) -> existing.version() > built.version() ? existing : built);
+        return payload;
+    }
+
+    private SerializedJson load(Long restaurantId) {
+        List<MenuItemView> availableItems = menuItemRepository.findViewsByRestaurantId(restaurantId, true);
+        if (availableItems.isEmpty() && !restaurantRepository.existsById(restaurantId)) {
+            throw new RuntimeException("Restaurant not found");
+        }
+        return SerializedJson.of(objectMapper, availableItems);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderLine;
+import com.example.demo.dto.OrderSummary;
+import com.example.demo.repository.OrderItemRepository;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.service.SparseFields.Field;
+import com.example.demo.service.SparseFields.Row;
+import com.example.demo.service.SparseFields.Shape;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Order lists for customers, owners and admins. Each list is one header query
+ * plus one line query per {@value #LINE_BATCH} orders, both constructor
+ * projections, so no Order or OrderItem entities are hydrated or dirty-checked.
+ * With {@code fields=} the header query selects only those columns, joins
+ * users or restaurants only for the name fields, and skips the line query
+ * unless {@code items} is asked for.
+ */
+@Service
+@Transactional(readOnly = true)
+public class OrderSummaryService {
+    // Keeps the IN list well under driver bind-parameter limits for the admin list.
+    private static final int LINE_BATCH = 500;
+    private static final String CUSTOMER = "LEFT JOIN User u ON u.id = o.userId";
+    private static final String RESTAURANT = "LEFT JOIN Restaurant r ON r.id = o.restaurantId";
+    private static final Shape SHAPE = new Shape("com.example.demo.model.Order o", "o.id",
+        "o.createdAt DESC, o.id DESC", orderedFields());
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final SparseFields sparseFields;
+
+    public OrderSummaryService(OrderRepository orderRepository, OrderItemRepository orderItemRepository,
+                               SparseFields sparseFields) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.sparseFields = sparseFields;
+    }
+
+    public List<OrderSummary> forCustomer(Long userId) {
+        return withLines(orderRepository.findSummariesByUserId(userId));
+    }
+
+    public List<OrderSummary> forRestaurant(Long restaurantId) {
+        return withLines(orderRepository.findSummariesByRestaurantId(restaurantId));
+    }
+
+    public List<OrderSummary> all() {
+        return withLines(orderRepository.findAllSummaries());
+    }
+
+    /** {@link #forCustomer(Long)}, or only {@code fields} of it when given. */
+    public List<?> forCustomer(Long userId, String fields) {
+        List<String> names = sparseFields.parse(SHAPE, fields);
+        return names == null ? forCustomer(userId) : sparse(names, "o.userId = :userId", Map.of("userId", userId));
+    }
+
+    public List<?> forRestaurant(Long restaurantId, String fields) {
+        List<String> names = sparseFields.parse(SHAPE, fields);
+        return names == null ? forRestaurant(restaurantId)
+            : sparse(names, "o.restaurantId = :restaurantId", Map.of("restaurantId", restaurantId));
+    }
+
+    public List<?> all(String fields) {
+        List<String> names = sparseFields.parse(SHAPE, fields);
+        return names == null ? all() : sparse(names, null, Map.of());
+    }
+
+    private List<Map<String, Object>> sparse(List<String> names, String where, Map<String, Object> params) {
+        List<Row> rows = sparseFields.rows(SHAPE, names, where, params);
+        if (!names.contains("items")) {
+            return rows.stream().map(Row::values).toList();
+        }
+        Map<Long, List<OrderLine>> linesByOrder = linesFor(rows.stream().map(row -> (Long) row.key()).toList());
+        return rows.stream().map(row -> {
+            row.values().put("items", linesByOrder.getOrDefault((Long) row.key(), List.of()));
+            return row.values();
+        }).toList();
+    }
+
+    private List<OrderSummary> withLines(List<OrderSummary> orders) {
+        if (orders.isEmpty()) {
+            return orders;
+        }
+        Map<Long, List<OrderLine>> linesByOrder = linesFor(orders.stream().map(OrderSummary::id).toList());
+        return orders.stream()
+            .map(order -> order.withItems(linesByOrder.getOrDefault(order.id(), List.of())))
+            .toList();
+    }
+
+    private Map<Long, List<OrderLine>> linesFor(List<Long> orderIds) {
+        List<OrderLine> lines = new ArrayList<>();
+        for (int from = 0; from < orderIds.size(); from += LINE_BATCH) {
+            lines.addAll(orderItemRepository.findLinesByOrderIds(
+                orderIds.subList(from, Math.min(from + LINE_BATCH, orderIds.size()))));
+        }
+        return lines.stream().collect(Collectors.groupingBy(OrderLine::orderId));
+    }
+
+    // Same names as OrderSummary, so a narrowed list reads like the full one.
+    private static Map<String, Field> orderedFields() {
+        Map<String, Field> fields = new LinkedHashMap<>();
+        fields.put("id", Field.column("o.id"));
+        fields.put("userId", Field.column("o.userId"));
+        fields.put("restaurantId", Field.column("o.restaurantId"));
+        fields.put("status", Field.column("o.status"));
+        fields.put("total", Field.column("o.total"));
+        fields.put("createdAt", Field.column("o.createdAt"));
+        fields.put("customerName", Field.joined("u.username", CUSTOMER));
+        fields.put("customerEmail", Field.joined("u.email", CUSTOMER));
+        fields.put("restaurantName", Field.joined("r.name", RESTAURANT));
+        fields.put("restaurantAddress", Field.joined("r.address", RESTAURANT));
+        fields.put("items", Field.derived());
+        return fields;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.ApiException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt on a small dedicated pool instead of on request threads. At most
+ * {@code threads} hashes run at once and at most {@code queue-capacity} wait;
+ * anything beyond that, or anything that waits longer than {@code timeout-ms},
+ * is shed with 503 and Retry-After. A login storm therefore costs a bounded
+ * amount of CPU and leaves request threads free for checkout.
+ */
+@Service
+public class PasswordHashingService {
+    private final PasswordEncoder passwordEncoder;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.password.hashing.threads:0}")
+    private int threads;
+
+    @Value("${app.password.hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${app.password.hashing.timeout-ms:3000}")
+    private long timeoutMillis;
+
+    private ThreadPoolExecutor executor;
+    private Timer encodeTimer;
+    private Timer matchesTimer;
+    private Timer queueWaitTimer;
+    private Counter queueFullCounter;
+    private Counter timeoutCounter;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void start() {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        encodeTimer = meterRegistry.timer("foodly.auth.password.hash", "op", "encode");
+        matchesTimer = meterRegistry.timer("foodly.auth.password.hash", "op", "matches");
+        queueWaitTimer = meterRegistry.timer("foodly.auth.password.queue.wait");
+        queueFullCounter = meterRegistry.counter("foodly.auth.password.rejected", "reason", "queue_full");
+        timeoutCounter = meterRegistry.counter("foodly.auth.password.rejected", "reason", "timeout");
+        Gauge.builder("foodly.auth.password.queue.depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("foodly.auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    public String encode(String rawPassword) {
+        return run(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /** True when {@code encodedPassword} was hashed with a lower cost than the configured one. */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Timer hashTimer, Callable<T> hash) {
+        long queuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return hashTimer.recordCallable(hash);
+            });
+        } catch (RejectedExecutionException e) {
+            queueFullCounter.increment();
+            throw busy();
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timeoutCounter.increment();
+            throw busy();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw busy();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private ApiException busy() {
+        return new ApiException("AUTH_BUSY", "Too many sign-in attempts right now, please retry shortly",
+                HttpStatus.SERVICE_UNAVAILABLE, Duration.ofSeconds(2));
+    }
+}
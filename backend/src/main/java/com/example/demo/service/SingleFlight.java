@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Request coalescing for hot reads. While one caller is loading a key, others
+ * asking for the same key wait for its result instead of running the same
+ * query, so a cold menu or slug hit by a push campaign costs one load rather
+ * than one per request. Nothing is kept once the load finishes; caching is the
+ * caller's business.
+ *
+ * Results are shared between threads and must not be modified. Keys must
+ * carry whatever the result depends on, such as the content version it will
+ * be tagged with. Waiters hold no connection, and give up after
+ * {@code app.single-flight.wait-timeout-ms} and load on their own.
+ *
+ * {@code foodly.singleflight.calls} counts callers per flight by result:
+ * {@code leader} ran the load and {@code coalesced} joined one in flight, so
+ * the coalescing ratio is coalesced over leader plus coalesced.
+ * {@code timeout} counts the coalesced callers that stopped waiting.
+ */
+@Component
+public class SingleFlight {
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Duration waitTimeout;
+
+    public SingleFlight(MeterRegistry meterRegistry,
+                        @Value("${app.single-flight.wait-timeout-ms:5000}") long waitTimeoutMs) {
+        this.meterRegistry = meterRegistry;
+        this.waitTimeout = Duration.ofMillis(waitTimeoutMs);
+        meterRegistry.gaugeMapSize("foodly.singleflight.inflight", Tags.empty(), inFlight);
+    }
+
+    /** {@code flight} names the query, e.g. {@code menu}, and is the metric tag; {@code key} picks the row. */
+    @SuppressWarnings("unchecked")
+    public <T> T load(String flight, Object key, Supplier<T> loader) {
+        String id = flight + ':' + key;
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(id, mine);
+        if (leader != null) {
+            count(flight, "coalesced");
+            try {
+                return (T) leader.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                count(flight, "timeout");
+                return loader.get();
+            } catch (ExecutionException e) {
+                throw rethrow(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }
+        count(flight, "leader");
+        try {
+            T value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            // Waiters see the same failure, e.g. a 404, rather than each retrying it.
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    private void count(String flight, String result) {
+        meterRegistry.counter("foodly.singleflight.calls", "flight", flight, "result", result).increment();
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new CompletionException(cause);
+    }
+}
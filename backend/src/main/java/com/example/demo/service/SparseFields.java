@@ -0,0 +1,167 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.ApiException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sparse fieldsets for list endpoints, e.g. {@code GET /api/restaurants?fields=id,name,slug}.
+ * Each list describes itself as a {@link Shape}: the JPQL expression behind
+ * every field and the join it needs. Only the requested expressions are
+ * selected and only their joins are added, so narrowing a list narrows the SQL
+ * rather than filtering a fully loaded response. Without {@code fields} the
+ * endpoints return their usual records.
+ *
+ * Dotted names such as {@code owner.email} are written as nested objects, and
+ * asking for {@code owner} selects every {@code owner.*} field.
+ */
+@Component
+public class SparseFields {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * How one field is produced: a selected {@code expression} that may need a
+     * {@code join}, a {@code constant} filled in without touching the database,
+     * or neither when the caller fills it in from the row key (order lines).
+     */
+    public record Field(String expression, String join, Object constant) {
+        public static Field column(String expression) {
+            return new Field(expression, null, null);
+        }
+
+        public static Field joined(String expression, String join) {
+            return new Field(expression, join, null);
+        }
+
+        public static Field constant(Object value) {
+            return new Field(null, null, value);
+        }
+
+        public static Field derived() {
+            return new Field(null, null, null);
+        }
+
+        boolean selected() {
+            return expression != null;
+        }
+    }
+
+    /**
+     * A list that can be narrowed. {@code key} is always selected, first, so
+     * rows can be told apart and matched to derived fields; it costs no join.
+     */
+    public record Shape(String from, String key, String orderBy, Map<String, Field> fields) {}
+
+    /** A row of a narrowed list; {@code values} holds only what was asked for. */
+    public record Row(Object key, Map<String, Object> values) {}
+
+    /**
+     * The requested field names in request order, or null when {@code fields}
+     * is absent. Unknown names are a 400 rather than silently dropped, so a typo
+     * does not look like missing data.
+     */
+    public List<String> parse(Shape shape, String fields) {
+        if (fields == null) {
+            return null;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (String token : fields.split(",")) {
+            String name = token.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (shape.fields().containsKey(name)) {
+                names.add(name);
+                continue;
+            }
+            List<String> nested = shape.fields().keySet().stream()
+                .filter(field -> field.startsWith(name + "."))
+                .toList();
+            if (nested.isEmpty()) {
+                throw new ApiException("INVALID_FIELDS", "Unknown field '" + name + "'; expected one of "
+                    + String.join(", ", shape.fields().keySet()), HttpStatus.BAD_REQUEST);
+            }
+            names.addAll(nested);
+        }
+        if (names.isEmpty()) {
+            throw new ApiException("INVALID_FIELDS", "fields must name at least one field", HttpStatus.BAD_REQUEST);
+        }
+        return List.copyOf(names);
+    }
+
+    /** The whole list, narrowed to {@code fields}; null when {@code fields} is absent. */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> list(Shape shape, String fields) {
+        List<String> names = parse(shape, fields);
+        return names == null ? null : rows(shape, names, null, Map.of()).stream().map(Row::values).toList();
+    }
+
+    /** {@code where} is a JPQL condition over the shape's aliases, bound from {@code params}. */
+    @Transactional(readOnly = true)
+    public List<Row> rows(Shape shape, List<String> names, String where, Map<String, Object> params) {
+        List<String> selected = new ArrayList<>();
+        Set<String> joins = new LinkedHashSet<>();
+        StringBuilder select = new StringBuilder("SELECT ").append(shape.key());
+        for (String name : names) {
+            Field field = shape.fields().get(name);
+            if (field.selected()) {
+                select.append(", ").append(field.expression());
+                selected.add(name);
+                if (field.join() != null) {
+                    joins.add(field.join());
+                }
+            }
+        }
+        select.append(" FROM ").append(shape.from());
+        joins.forEach(join -> select.append(' ').append(join));
+        if (where != null) {
+            select.append(" WHERE ").append(where);
+        }
+        select.append(" ORDER BY ").append(shape.orderBy());
+
+        TypedQuery<Tuple> query = entityManager.createQuery(select.toString(), Tuple.class);
+        params.forEach(query::setParameter);
+        return query.getResultList().stream().map(tuple -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            int column = 1;
+            for (String name : names) {
+                Field field = shape.fields().get(name);
+                if (field.selected()) {
+                    put(values, name, tuple.get(column++));
+                } else if (field.constant() != null) {
+                    put(values, name, field.constant());
+                }
+            }
+            return new Row(tuple.get(0), values);
+        }).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> values, String name, Object value) {
+        int dot = name.indexOf('.');
+        if (dot < 0) {
+            values.put(name, value);
+            return;
+        }
+        // A LEFT JOIN that found nothing leaves the nested object out, as the full responses do.
+        String parent = name.substring(0, dot);
+        if (value == null && !values.containsKey(parent)) {
+            return;
+        }
+        Map<String, Object> nested = (Map<String, Object>) values.computeIfAbsent(parent, key -> new LinkedHashMap<>());
+        nested.put(name.substring(dot + 1), value);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.service;
+
+import com.example.demo.model.User;
+import com.example.demo.security.AuthenticatedUser;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Short-lived cache of resolved principals for JWT authentication, keyed by the
+ * token subject. Only successful lookups are cached, so unknown and blocked
+ * users are always checked against the database. Admin actions that change
+ * whether or how a user may authenticate evict the entry explicitly; the TTL
+ * bounds staleness for changes made outside the application. Eviction inside
+ * a transaction is repeated once it completes, so a request that reloaded the
+ * old row before the commit cannot keep it cached.
+ */
+@Component
+public class UserDetailsCache {
+    private final BoundedCache<String, AuthenticatedUser> entries;
+    private final boolean enabled;
+
+    public UserDetailsCache(MeterRegistry meterRegistry,
+                            @Value("${app.auth.user-cache.enabled:true}") boolean enabled,
+                            @Value("${app.auth.user-cache.ttl-seconds:60}") long ttlSeconds,
+                            @Value("${app.auth.user-cache.max-entries:10000}") int maxEntries) {
+        this.entries = new BoundedCache<>("foodly.auth.user.cache", maxEntries, Duration.ofSeconds(ttlSeconds),
+                meterRegistry);
+        this.enabled = enabled;
+    }
+
+    public AuthenticatedUser get(String username, Function<String, AuthenticatedUser> loader) {
+        return enabled ? entries.get(username, loader) : loader.apply(username);
+    }
+
+    /** Evicts every key a token subject for this user may take (username or email). */
+    public void evict(User user) {
+        if (user == null) {
+            return;
+        }
+        evict(user.getUsername());
+        evict(user.getEmail());
+    }
+
+    public void evict(String username) {
+        if (username != null) {
+            entries.invalidate(username);
+        }
+    }
+
+    public void evictAll() {
+        entries.invalidateAll();
+    }
+}
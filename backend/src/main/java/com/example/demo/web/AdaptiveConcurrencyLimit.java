@@ -0,0 +1,99 @@
+package com.example.demo.web;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrency limit that adapts to observed latency, after the gradient
+ * algorithm used by TCP Vegas and Netflix's concurrency-limits. Latencies are
+ * averaged over short windows and compared with a slow moving average of past
+ * windows: while the two agree the limit grows by roughly its square root per
+ * window, and when recent requests get slower than usual (a database under
+ * pressure, a saturated pool) the limit shrinks in proportion, down to half per
+ * window. Requests beyond the limit are refused rather than queued.
+ */
+public class AdaptiveConcurrencyLimit {
+    // Window averages enter the long-term average at 5%, i.e. it remembers about 20 windows.
+    private static final double LONG_RTT_WEIGHT = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final long windowNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    private double estimatedLimit;
+    private double longRttNanos;
+    private long windowStartNanos;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double smoothing, long windowNanos) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.windowNanos = windowNanos;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+        this.windowStartNanos = System.nanoTime();
+    }
+
+    /** Takes a slot if fewer than {@link #getLimit()} requests are in flight. */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** Returns a slot taken by {@link #tryAcquire()} and feeds the request's latency into the limit. */
+    public void release(long latencyNanos) {
+        int before = inFlight.getAndDecrement();
+        onSample(latencyNanos, before, System.nanoTime());
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    synchronized void onSample(long latencyNanos, int inFlightAtCompletion, long now) {
+        windowRttSum += latencyNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtCompletion);
+        if (now - windowStartNanos < windowNanos || windowSamples < 10) {
+            return;
+        }
+
+        double shortRtt = (double) windowRttSum / windowSamples;
+        boolean appLimited = windowMaxInFlight < estimatedLimit / 2;
+        windowStartNanos = now;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+
+        longRttNanos = longRttNanos == 0 ? shortRtt : longRttNanos * (1 - LONG_RTT_WEIGHT) + shortRtt * LONG_RTT_WEIGHT;
+        if (shortRtt < longRttNanos) {
+            // Recovering from a slow period: let the baseline drop back quickly instead of over ~20 windows.
+            longRttNanos = Math.max(shortRtt, longRttNanos * 0.9);
+        }
+        // Traffic that never came near the limit says nothing about whether the limit is too low.
+        if (appLimited) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, longRttNanos / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - smoothing) + newLimit * smoothing));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.web;
+
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Serves every controller route under both its legacy path and {@code /api/v1}:
+ * {@code /api/orders} is also {@code /api/v1/orders}, and {@code /auth/login} is
+ * also {@code /api/v1/auth/login}. Both spellings are registered on the same
+ * handler, so a versioned request goes through the filters once and straight to
+ * the controller.
+ */
+@Configuration
+public class ApiVersionConfig {
+    public static final String VERSION_PREFIX = "/api/v1";
+
+    @Bean
+    public WebMvcRegistrations versionedHandlerMapping() {
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerMapping getRequestMappingHandlerMapping() {
+                return new VersionedRequestMappingHandlerMapping();
+            }
+        };
+    }
+
+    /** {@code /api/orders} becomes {@code /api/v1/orders}; other paths are not versioned. */
+    public static String versioned(String path) {
+        if (path.startsWith("/api/")) {
+            return VERSION_PREFIX + path.substring("/api".length());
+        }
+        if (path.equals("/auth") || path.startsWith("/auth/")) {
+            return VERSION_PREFIX + path;
+        }
+        return null;
+    }
+
+    static class VersionedRequestMappingHandlerMapping extends RequestMappingHandlerMapping {
+        @Override
+        protected RequestMappingInfo getMappingForMethod(Method method, Class<?> handlerType) {
+            RequestMappingInfo info = super.getMappingForMethod(method, handlerType);
+            if (info == null || info.getPathPatternsCondition() == null) {
+                return info;
+            }
+            Set<String> paths = new LinkedHashSet<>(info.getPathPatternsCondition().getPatternValues());
+            for (String path : info.getPathPatternsCondition().getPatternValues()) {
+                String versioned = versioned(path);
+                if (versioned != null) {
+                    paths.add(versioned);
+                }
+            }
+            return info.mutate().paths(paths.toArray(String[]::new)).build();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.demo.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sheds load before it reaches the database. Each endpoint class has its own
+ * {@link AdaptiveConcurrencyLimit}, so when Postgres slows down the limits shrink
+ * with the rising latency and excess requests get an immediate 503 with
+ * Retry-After instead of waiting for a Tomcat thread or a connection.
+ *
+ * Checkout is never competing with the rest: browse, chat and admin together may
+ * hold at most {@code shared-max} requests, which keeps the remaining request
+ * threads free for placing orders. Paths outside /api and /auth, such as health
+ * checks, are not limited.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 3)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    public enum EndpointClass { CHECKOUT, BROWSE, CHAT, ADMIN }
+
+    private final boolean enabled;
+    private final int sharedMax;
+    private final AtomicInteger sharedInFlight = new AtomicInteger();
+    private final Map<EndpointClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> rejected = new EnumMap<>(EndpointClass.class);
+
+    public ConcurrencyLimitFilter(MeterRegistry meterRegistry,
+                                  @Value("${app.concurrency-limit.enabled:true}") boolean enabled,
+                                  @Value("${app.concurrency-limit.initial-limit:20}") int initialLimit,
+                                  @Value("${app.concurrency-limit.min-limit:4}") int minLimit,
+                                  @Value("${app.concurrency-limit.max-limit:200}") int maxLimit,
+                                  @Value("${app.concurrency-limit.shared-max:150}") int sharedMax,
+                                  @Value("${app.concurrency-limit.window-ms:500}") long windowMillis) {
+        this.enabled = enabled;
+        this.sharedMax = sharedMax;
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, 0.2,
+                    TimeUnit.MILLISECONDS.toNanos(windowMillis));
+            String tag = endpointClass.name().toLowerCase();
+            limits.put(endpointClass, limit);
+            rejected.put(endpointClass, meterRegistry.counter("foodly.concurrency.rejected", "class", tag));
+            Gauge.builder("foodly.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .tag("class", tag).register(meterRegistry);
+            Gauge.builder("foodly.concurrency.inflight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .tag("class", tag).register(meterRegistry);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI();
+        if (!enabled || "OPTIONS".equalsIgnoreCase(request.getMethod())
+                || !(path.startsWith("/api/") || path.startsWith("/auth/"))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        EndpointClass endpointClass = classify(request.getMethod(), RateLimitFilter.routeTemplate(path));
+        boolean shared = endpointClass != EndpointClass.CHECKOUT;
+        if (shared && sharedInFlight.incrementAndGet() > sharedMax) {
+            sharedInFlight.decrementAndGet();
+            reject(request, response, endpointClass);
+            return;
+        }
+        AdaptiveConcurrencyLimit limit = limits.get(endpointClass);
+        if (!limit.tryAcquire()) {
+            if (shared) {
+                sharedInFlight.decrementAndGet();
+            }
+            reject(request, response, endpointClass);
+            return;
+        }
+
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                limit.release(System.nanoTime() - start);
+                if (shared) {
+                    sharedInFlight.decrementAndGet();
+                }
+            }
+        };
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Async handlers hold their slot until the response is actually written.
+                request.getAsyncContext().addListener(new ReleasingListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    /** Which limit a request counts against; {@code route} is a {@link RateLimitFilter#routeTemplate} path. */
+    public static EndpointClass classify(String method, String route) {
+        if ("POST".equalsIgnoreCase(method)
+                && (route.equals("/api/orders") || route.equals("/api/offers/validate-coupon"))) {
+            return EndpointClass.CHECKOUT;
+        }
+        if (route.startsWith("/api/support")) {
+            return EndpointClass.CHAT;
+        }
+        if (route.startsWith("/api/admin") || route.startsWith("/api/offers/admin") || route.endsWith("/analytics")) {
+            return EndpointClass.ADMIN;
+        }
+        return EndpointClass.BROWSE;
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, EndpointClass endpointClass)
+            throws IOException {
+        rejected.get(endpointClass).increment();
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":{\"code\":\"OVERLOADED\",\"message\":\"Server is busy, please retry shortly\",\"details\":[]},\"requestId\":\""
+                + request.getAttribute("requestId") + "\"}");
+    }
+
+    private record ReleasingListener(Runnable release) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
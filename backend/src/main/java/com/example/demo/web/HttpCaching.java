@@ -0,0 +1,166 @@
+package com.example.demo.web;
+
+import com.example.demo.service.ContentVersions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Conditional GET for public catalog responses. ETags are built from
+ * {@link ContentVersions} alone, so a matching {@code If-None-Match} is answered
+ * with 304 before the handler runs a single query. Responses are marked public
+ * so a CDN can serve them for {@code app.http-cache.max-age-seconds} and then
+ * revalidate.
+ */
+@Component
+public class HttpCaching {
+    private static final Pattern RESTAURANT_TAG = Pattern.compile("\"r(\\d+)-\\d+-\\d+\"");
+
+    private final ContentVersions contentVersions;
+    private final CacheControl cacheControl;
+    private final long maxAgeSeconds;
+
+    public HttpCaching(ContentVersions contentVersions,
+                       @Value("${app.http-cache.max-age-seconds:30}") long maxAgeSeconds,
+                       @Value("${app.http-cache.stale-while-revalidate-seconds:60}") long staleWhileRevalidateSeconds) {
+        this.contentVersions = contentVersions;
+        this.maxAgeSeconds = Math.max(1, maxAgeSeconds);
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds))
+                .cachePublic()
+                .staleWhileRevalidate(Duration.ofSeconds(staleWhileRevalidateSeconds));
+    }
+
+    public String menuTag(Long restaurantId) {
+        return "\"m" + restaurantId + "-" + contentVersions.restaurant(restaurantId) + "\"";
+    }
+
+    /**
+     * The restaurant page is looked up by slug, so its tag also carries the
+     * catalog version: a renamed or re-assigned slug invalidates it. Returns null
+     * if a version changed after {@code changeCount} was taken, because the
+     * content may predate it.
+     */
+    public String restaurantTag(Long restaurantId, long changeCount) {
+        String tag = restaurantTag(restaurantId);
+        return contentVersions.changeCount() == changeCount ? tag : null;
+    }
+
+    /**
+     * Offers also stop being listed when they expire, which is not a write, so
+     * their tag rolls over every max-age window as well.
+     */
+    public String offersTag() {
+        return "\"o" + contentVersions.offers() + "-" + Instant.now().getEpochSecond() / maxAgeSeconds + "\"";
+    }
+
+    public boolean matches(WebRequest request, String etag) {
+        return anyTag(request, tag -> tag.equals(etag) || tag.equals("*"));
+    }
+
+    /**
+     * The restaurant tag from {@code If-None-Match} that is still current, found
+     * from the restaurant id inside the tag, or null.
+     */
+    public String currentRestaurantTag(WebRequest request) {
+        String[] current = new String[1];
+        anyTag(request, tag -> {
+            Matcher matcher = RESTAURANT_TAG.matcher(tag);
+            if (matcher.matches() && tag.equals(restaurantTag(Long.valueOf(matcher.group(1))))) {
+                current[0] = tag;
+                return true;
+            }
+            return false;
+        });
+        return current[0];
+    }
+
+    public <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+    }
+
+    /** 200 with {@code body}; the ETag is left out when {@code etag} is null. */
+    public <T> ResponseEntity<T> ok(String etag, T body) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(cacheControl);
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Conditional GET for a body serialized ahead of time, written as-is. The
+     * gzip encoding is a different representation, so it gets its own strong
+     * tag; a client holding either one that is still current gets a 304.
+     */
+    public ResponseEntity<byte[]> serialized(WebRequest request, String etag, Supplier<SerializedJson> body) {
+        String gzipTag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+        if (matches(request, etag)) {
+            return notModified(etag);
+        }
+        if (matches(request, gzipTag)) {
+            return notModified(gzipTag);
+        }
+        SerializedJson payload = body.get();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (payload.gzip() != null && acceptsGzip(request)) {
+            return response.eTag(gzipTag).header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.gzip());
+        }
+        return response.eTag(etag).body(payload.json());
+    }
+
+    private String restaurantTag(Long restaurantId) {
+        return "\"r" + restaurantId + "-" + contentVersions.restaurant(restaurantId)
+                + "-" + contentVersions.catalog() + "\"";
+    }
+
+    private static boolean acceptsGzip(WebRequest request) {
+        String[] headers = request.getHeaderValues(HttpHeaders.ACCEPT_ENCODING);
+        if (headers == null) {
+            return false;
+        }
+        for (String header : headers) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.split(";");
+                if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                    return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean anyTag(WebRequest request, Predicate<String> test) {
+        String[] headers = request.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        if (headers == null) {
+            return false;
+        }
+        for (String header : headers) {
+            for (String tag : header.split(",")) {
+                tag = tag.trim();
+                // If-None-Match uses weak comparison, and some proxies weaken tags they re-encode.
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (test.test(tag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
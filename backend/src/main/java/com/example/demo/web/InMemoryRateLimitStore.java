@@ -0,0 +1,100 @@
+package com.example.demo.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-node {@link RateLimitStore}: token buckets held in a bounded map. Each bucket is a single {@link AtomicLong}
+ * holding its "theoretical arrival time" (GCRA, the virtual-scheduling form of a
+ * token bucket): a request is admitted if advancing that time by {@code cost}
+ * emission intervals keeps it within one window of now. Admission is a CAS loop on the
+ * bucket, so callers never lock the map or each other.
+ *
+ * A bucket whose arrival time has passed is full again and indistinguishable from
+ * a new one, so the sweeper can drop it without changing any decision. While the
+ * map is at {@code max-buckets}, new keys are charged to a shared overflow bucket
+ * for their limit instead of growing the map: flooding the map with keys then
+ * throttles newcomers together rather than letting them through unmetered. Only
+ * the scheduled sweep frees room, so a flood of misses never pays for a scan.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRateLimitStore implements RateLimitStore {
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    // One per capacity and window, so the limits configured bound its size.
+    private final Map<String, AtomicLong> overflowBuckets = new ConcurrentHashMap<>();
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private final Counter overflowCounter;
+
+    @Value("${app.rate-limit.max-buckets:100000}")
+    private int maxBuckets = 100_000;
+
+    public InMemoryRateLimitStore(MeterRegistry meterRegistry) {
+        this.overflowCounter = meterRegistry.counter("foodly.ratelimit.buckets.overflow");
+        meterRegistry.gaugeMapSize("foodly.ratelimit.buckets", List.of(), buckets);
+    }
+
+    /** The bucket holds {@code capacity} tokens and refills completely over {@code windowSeconds}. */
+    @Override
+    public Decision tryAcquire(String key, int cost, int capacity, long windowSeconds) {
+        long now = System.nanoTime();
+        long window = TimeUnit.SECONDS.toNanos(windowSeconds);
+        long interval = Math.max(1, window / capacity);
+        // A request costing more than the whole bucket could never pass; charge it a full bucket.
+        long charge = interval * Math.min(cost, capacity);
+
+        AtomicLong bucket = bucketFor(key, now);
+        if (bucket == null) {
+            bucket = overflowBuckets.computeIfAbsent(capacity + "/" + windowSeconds, limit -> new AtomicLong(now));
+        }
+        while (true) {
+            long tat = bucket.get();
+            long newTat = Math.max(tat, now) + charge;
+            long backlog = newTat - now;
+            if (backlog > window) {
+                return new Decision(false, 0, backlog - window, Math.max(0, tat - now));
+            }
+            if (bucket.compareAndSet(tat, newTat)) {
+                return new Decision(true, (window - backlog) / interval, 0, backlog);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval-ms:30000}")
+    public void sweep() {
+        if (!sweepLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private AtomicLong bucketFor(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxBuckets) {
+            overflowCounter.increment();
+            return null;
+        }
+        AtomicLong created = new AtomicLong(now);
+        AtomicLong existing = buckets.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+}
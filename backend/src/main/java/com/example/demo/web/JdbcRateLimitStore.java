@@ -0,0 +1,263 @@
+package com.example.demo.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cluster-wide {@link RateLimitStore} backed by fixed-window counters in the
+ * rate_limit_counters table. A node does not write per request: it reserves a
+ * lease of up to {@code lease-size} requests from the shared counter and spends
+ * it locally, so the database sees one short transaction per lease. Leases left
+ * idle are handed back in one JDBC batch, so quota parked on a node the client
+ * stopped hitting becomes available to the others.
+ *
+ * The total admitted per key and window never exceeds {@code capacity}. As with
+ * any fixed window, a client can use one window's quota at the end of it and the
+ * next one's right after. If the database is unavailable requests are admitted
+ * rather than failing the site. Keys beyond {@code max-buckets} get no lease and
+ * are charged to their shared counter on every request instead.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.store", havingValue = "jdbc")
+public class JdbcRateLimitStore implements RateLimitStore {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcRateLimitStore.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+    private final int leaseSize;
+    private final int maxBuckets;
+    private final long leaseIdleMillis;
+    private final Counter leaseCounter;
+    private final Counter failOpenCounter;
+
+    // Quota reserved from the shared counter for one key and window, spent locally.
+    private record Reservation(int granted, int used) {}
+
+    private static final class Lease {
+        private final long windowStart;
+        private final AtomicInteger remaining = new AtomicInteger();
+        // Not synchronized: refills do JDBC under this lock, which would pin a virtual thread.
+        private final ReentrantLock refillLock = new ReentrantLock();
+        // Unreserved quota in the shared counter as of this node's last reservation.
+        private volatile int sharedLeft;
+        private volatile long lastUsedMillis;
+
+        private Lease(long windowStart) {
+            this.windowStart = windowStart;
+        }
+    }
+
+    public JdbcRateLimitStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.rate-limit.jdbc.lease-size:100}") int leaseSize,
+                              @Value("${app.rate-limit.jdbc.lease-idle-ms:2000}") long leaseIdleMillis,
+                              @Value("${app.rate-limit.max-buckets:100000}") int maxBuckets) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Quota accounting must not roll back with whatever transaction the caller is in.
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.leaseSize = leaseSize;
+        this.leaseIdleMillis = leaseIdleMillis;
+        this.maxBuckets = maxBuckets;
+        this.leaseCounter = meterRegistry.counter("foodly.ratelimit.jdbc.leases");
+        this.failOpenCounter = meterRegistry.counter("foodly.ratelimit.jdbc.fail.open");
+        meterRegistry.gaugeMapSize("foodly.ratelimit.buckets", List.of(), leases);
+    }
+
+    @Override
+    public Decision tryAcquire(String key, int cost, int capacity, long windowSeconds) {
+        long nowMillis = System.currentTimeMillis();
+        long windowMillis = TimeUnit.SECONDS.toMillis(windowSeconds);
+        long windowStart = nowMillis / windowMillis * windowMillis;
+        long resetNanos = TimeUnit.MILLISECONDS.toNanos(windowStart + windowMillis - nowMillis);
+
+        cost = Math.min(cost, capacity);
+        Lease lease = leaseFor(key, windowStart);
+        if (lease == null) {
+            return acquireWithoutLease(key, cost, capacity, windowStart, windowMillis, resetNanos);
+        }
+        lease.lastUsedMillis = nowMillis;
+        if (take(lease, cost)) {
+            return allowed(lease, resetNanos);
+        }
+        lease.refillLock.lock();
+        try {
+            // Another thread may have refilled the lease while we waited.
+            if (take(lease, cost)) {
+                return allowed(lease, resetNanos);
+            }
+            // Claim what is left of the lease and top it up to cover this request.
+            int leftover = Math.max(0, lease.remaining.getAndSet(0));
+            int needed = cost - leftover;
+            Reservation reservation;
+            try {
+                // At most a tenth of the quota per lease, so one node cannot park a client's whole window.
+                reservation = reserve(key, windowStart, windowStart + windowMillis, capacity, needed,
+                        Math.max(needed, Math.min(leaseSize, capacity / 10)));
+            } catch (DataAccessException e) {
+                lease.remaining.addAndGet(leftover);
+                failOpenCounter.increment();
+                logger.warn("Rate limit store unavailable, admitting request: {}", e.getMessage());
+                return new Decision(true, capacity - cost, 0, resetNanos);
+            }
+            lease.sharedLeft = capacity - reservation.used();
+            if (reservation.granted() == 0) {
+                lease.remaining.addAndGet(leftover);
+                return new Decision(false, leftover + lease.sharedLeft, resetNanos, resetNanos);
+            }
+            leaseCounter.increment();
+            lease.remaining.addAndGet(leftover + reservation.granted() - cost);
+            return allowed(lease, resetNanos);
+        } finally {
+            lease.refillLock.unlock();
+        }
+    }
+
+    private Decision acquireWithoutLease(String key, int cost, int capacity, long windowStart, long windowMillis,
+                                         long resetNanos) {
+        Reservation reservation;
+        try {
+            reservation = reserve(key, windowStart, windowStart + windowMillis, capacity, cost, cost);
+        } catch (DataAccessException e) {
+            failOpenCounter.increment();
+            logger.warn("Rate limit store unavailable, admitting request: {}", e.getMessage());
+            return new Decision(true, capacity - cost, 0, resetNanos);
+        }
+        int left = capacity - reservation.used();
+        return reservation.granted() == 0
+                ? new Decision(false, left, resetNanos, resetNanos)
+                : new Decision(true, left, 0, resetNanos);
+    }
+
+    // Remaining is an estimate: this node's lease plus what the shared counter had left at the last reservation.
+    private static Decision allowed(Lease lease, long resetNanos) {
+        return new Decision(true, Math.max(0, lease.remaining.get()) + lease.sharedLeft, 0, resetNanos);
+    }
+
+    /**
+     * Hands unused quota of idle leases back to the shared counters in one batch
+     * and forgets leases of past windows.
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.jdbc.sync-interval-ms:1000}")
+    public void returnIdleLeases() {
+        long nowMillis = System.currentTimeMillis();
+        List<Object[]> returns = new ArrayList<>();
+        leases.forEach((key, lease) -> {
+            if (nowMillis - lease.lastUsedMillis < leaseIdleMillis) {
+                return;
+            }
+            leases.remove(key, lease);
+            int unused = lease.remaining.getAndSet(0);
+            if (unused > 0) {
+                returns.add(new Object[]{unused, key, lease.windowStart});
+            }
+        });
+        if (returns.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                    "UPDATE rate_limit_counters SET used = GREATEST(used - ?, 0) WHERE bucket_key = ? AND window_start = ?",
+                    returns));
+        } catch (DataAccessException e) {
+            logger.warn("Could not return {} rate limit leases: {}", returns.size(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.jdbc.cleanup-interval-ms:60000}")
+    public void deleteExpiredCounters() {
+        try {
+            jdbcTemplate.update("DELETE FROM rate_limit_counters WHERE expires_at < ?",
+                    TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+        } catch (DataAccessException e) {
+            logger.warn("Could not delete expired rate limit counters: {}", e.getMessage());
+        }
+    }
+
+    private Lease leaseFor(String key, long windowStart) {
+        Lease lease = leases.get(key);
+        if (lease != null && lease.windowStart == windowStart) {
+            return lease;
+        }
+        if (lease == null && leases.size() >= maxBuckets) {
+            returnIdleLeases();
+            if (leases.size() >= maxBuckets) {
+                return null;
+            }
+        }
+        Lease created = new Lease(windowStart);
+        if (lease == null) {
+            Lease existing = leases.putIfAbsent(key, created);
+            return existing != null ? existing : created;
+        }
+        // Quota left in a past window's lease expires with that window.
+        lease.remaining.set(0);
+        return leases.replace(key, lease, created) ? created : leases.get(key);
+    }
+
+    private static boolean take(Lease lease, int cost) {
+        while (true) {
+            int remaining = lease.remaining.get();
+            if (remaining < cost) {
+                return false;
+            }
+            if (lease.remaining.compareAndSet(remaining, remaining - cost)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reserves up to {@code wanted} tokens of the shared window quota and returns
+     * how many were granted: 0 if fewer than {@code minimum} are left.
+     */
+    private Reservation reserve(String key, long windowStart, long windowEndMillis, int capacity, int minimum, int wanted) {
+        Reservation reservation = transactionTemplate.execute(status -> {
+            List<Integer> used = jdbcTemplate.queryForList(
+                    "SELECT used FROM rate_limit_counters WHERE bucket_key = ? AND window_start = ? FOR UPDATE",
+                    Integer.class, key, windowStart);
+            if (used.isEmpty()) {
+                int grant = Math.min(wanted, capacity);
+                try {
+                    jdbcTemplate.update("INSERT INTO rate_limit_counters (bucket_key, window_start, used, expires_at) "
+                            + "VALUES (?, ?, ?, ?)", key, windowStart, grant,
+                            TimeUnit.MILLISECONDS.toSeconds(windowEndMillis) + 1);
+                    return new Reservation(grant, grant);
+                } catch (DuplicateKeyException e) {
+                    // Another node created the row first; take the update path on retry.
+                    status.setRollbackOnly();
+                    return null;
+                }
+            }
+            int grant = Math.min(wanted, capacity - used.get(0));
+            if (grant < minimum) {
+                return new Reservation(0, used.get(0));
+            }
+            jdbcTemplate.update("UPDATE rate_limit_counters SET used = used + ? "
+                    + "WHERE bucket_key = ? AND window_start = ?", grant, key, windowStart);
+            return new Reservation(grant, used.get(0) + grant);
+        });
+        return reservation != null ? reservation : reserve(key, windowStart, windowEndMillis, capacity, minimum, wanted);
+    }
+}
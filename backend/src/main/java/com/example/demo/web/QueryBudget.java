@@ -0,0 +1,115 @@
+package com.example.demo.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Counts the SQL Hibernate prepares for each request and checks it against a
+ * per-route budget. A handler that loads rows one at a time inside a loop
+ * shows up here as a count that grows with the data. Going over budget logs a
+ * warning once per request and increments
+ * {@code foodly.http.query.budget.exceeded}. With
+ * {@code app.query-budget.enforce=true}, as in the tests, the statement fails
+ * instead, so a new N+1 breaks the build rather than production.
+ */
+@Component
+public class QueryBudget implements StatementInspector, HibernatePropertiesCustomizer {
+    private static final Logger log = LoggerFactory.getLogger(QueryBudget.class);
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    // "GET /api/restaurants/*/analytics" may run 40 statements, matched against route templates.
+    private record RouteBudget(String method, String pattern, int budget) {}
+
+    private final MeterRegistry meterRegistry;
+    private final int defaultBudget;
+    private final boolean enforce;
+    private final String routesSpec;
+    private List<RouteBudget> routes = List.of();
+
+    public QueryBudget(MeterRegistry meterRegistry,
+                       @Value("${app.query-budget.default:20}") int defaultBudget,
+                       @Value("${app.query-budget.enforce:false}") boolean enforce,
+                       @Value("${app.query-budget.routes:}") String routesSpec) {
+        this.meterRegistry = meterRegistry;
+        this.defaultBudget = defaultBudget;
+        this.enforce = enforce;
+        this.routesSpec = routesSpec;
+    }
+
+    @PostConstruct
+    void parseRoutes() {
+        List<RouteBudget> parsed = new ArrayList<>();
+        for (String entry : routesSpec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int equals = entry.lastIndexOf('=');
+            String[] route = equals > 0 ? entry.substring(0, equals).trim().split("\\s+", 2) : new String[0];
+            if (route.length != 2) {
+                throw new IllegalArgumentException("Invalid app.query-budget.routes entry: " + entry);
+            }
+            parsed.add(new RouteBudget(route[0].toUpperCase(Locale.ROOT), route[1],
+                    Integer.parseInt(entry.substring(equals + 1).trim())));
+        }
+        routes = List.copyOf(parsed);
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+        // The trace's db time comes from Hibernate's own execution events rather than a JDBC proxy.
+        hibernateProperties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, StatementTimingListener.class.getName());
+    }
+
+    /** Called once the handler is known; statements run before that still count. */
+    void begin(HttpServletRequest request, RequestTrace trace) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null) {
+            return;
+        }
+        String route = RateLimitFilter.routeTemplate(pattern.toString());
+        trace.setQueryBudget(route, budgetFor(request.getMethod(), route));
+    }
+
+    int budgetFor(String method, String route) {
+        for (RouteBudget routeBudget : routes) {
+            if (routeBudget.method().equalsIgnoreCase(method) && PATH_MATCHER.match(routeBudget.pattern(), route)) {
+                return routeBudget.budget();
+            }
+        }
+        return defaultBudget;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        RequestTrace trace = RequestTrace.current();
+        if (trace == null) {
+            return sql;
+        }
+        int count = trace.recordQuery();
+        int budget = trace.getQueryBudget();
+        if (budget > 0 && count == budget + 1) {
+            meterRegistry.counter("foodly.http.query.budget.exceeded", "route", trace.getRoute()).increment();
+            if (enforce) {
+                throw new IllegalStateException("Query budget of " + budget + " exceeded on " + trace.getRoute());
+            }
+            log.warn("Route {} ran more than its budget of {} queries; latest: {}", trace.getRoute(), budget, sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.demo.web;
+
+import com.example.demo.security.JwtCookieService;
+import com.example.demo.service.JwtClaims;
+import com.example.demo.service.JwtUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletRequestWrapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Rate limits API traffic per client, where the client is the authenticated user
+ * when the request carries a valid access token and the IP address otherwise.
+ *
+ * Every API request is charged against the client's {@code quota} at the cost of
+ * its route, so one analytics query can weigh as much as fifty menu reads. On top
+ * of that, mutating requests on sensitive routes have a per-route bucket keyed by
+ * client and route template, so {@code /api/orders/123/status} and
+ * {@code /api/orders/456/status} share one bucket and the key space stays bounded
+ * by the number of routes rather than the number of orders. Responses carry
+ * RateLimit-Limit/Remaining/Reset for the quota.
+ *
+ * This runs before Spring Security, so the principal is read from the signed
+ * token directly; a forged or expired token is simply treated as anonymous.
+ * Anonymous clients are keyed by the address that opened the connection.
+ * X-Forwarded-For is only believed when that address is one of
+ * {@code app.rate-limit.trusted-proxies}; otherwise any client could pick a
+ * new key per request. The default trusts loopback and private ranges, where
+ * load balancers usually sit. With no trusted proxies behind a load balancer
+ * every anonymous client would share its address, so startup warns about it.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    // Numeric ids, UUIDs and long hex/ULID-style tokens become {id}.
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|[0-9A-Za-z]{20,}");
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    // Only IP literals are matched against trusted proxies; anything else would mean a DNS lookup.
+    private static final Pattern IP_LITERAL = Pattern.compile("[0-9A-Fa-f.:]+");
+
+    // "GET /api/restaurants/*/analytics" weighs 50, matched against route templates.
+    private record RouteCost(String method, String pattern, int cost) {}
+
+    @Autowired
+    private RateLimitStore rateLimitStore;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private JwtCookieService jwtCookieService;
+
+    @Value("${app.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.rate-limit.window-seconds:60}")
+    private long windowSeconds;
+
+    @Value("${app.rate-limit.auth-limit:10}")
+    private int authLimit;
+
+    @Value("${app.rate-limit.mutation-limit:120}")
+    private int mutationLimit;
+
+    @Value("${app.rate-limit.quota:600}")
+    private int quota;
+
+    @Value("${app.rate-limit.route-costs:GET /api/restaurants/*/analytics=50,GET /api/admin/**=20,GET /api/offers/admin/**=20}")
+    private String routeCostsSpec;
+
+    @Value("${app.rate-limit.trusted-proxies:127.0.0.0/8,::1,10.0.0.0/8,172.16.0.0/12,192.168.0.0/16,fc00::/7}")
+    private String trustedProxiesSpec;
+
+    @Value("${server.forward-headers-strategy:none}")
+    private String forwardHeadersStrategy;
+
+    private List<RouteCost> routeCosts = List.of();
+    private List<IpAddressMatcher> trustedProxies = List.of();
+
+    // Tomcat allows one @PostConstruct per filter class when it starts the filter.
+    @PostConstruct
+    void parseSettings() {
+        parseRouteCosts();
+        parseTrustedProxies();
+    }
+
+    private void parseRouteCosts() {
+        List<RouteCost> parsed = new ArrayList<>();
+        for (String entry : routeCostsSpec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int equals = entry.lastIndexOf('=');
+            String[] route = equals > 0 ? entry.substring(0, equals).trim().split("\\s+", 2) : new String[0];
+            if (route.length != 2) {
+                throw new IllegalArgumentException("Invalid app.rate-limit.route-costs entry: " + entry);
+            }
+            parsed.add(new RouteCost(route[0].toUpperCase(Locale.ROOT), route[1],
+                    Integer.parseInt(entry.substring(equals + 1).trim())));
+        }
+        routeCosts = List.copyOf(parsed);
+    }
+
+    void parseTrustedProxies() {
+        List<IpAddressMatcher> parsed = new ArrayList<>();
+        for (String entry : trustedProxiesSpec.split(",")) {
+            if (!entry.isBlank()) {
+                parsed.add(new IpAddressMatcher(entry.trim()));
+            }
+        }
+        trustedProxies = List.copyOf(parsed);
+        if (trustedProxies.isEmpty() && forwardHeadersStrategy != null
+                && !"none".equalsIgnoreCase(forwardHeadersStrategy.trim())) {
+            log.warn("server.forward-headers-strategy is {} but app.rate-limit.trusted-proxies is empty: "
+                    + "X-Forwarded-For is ignored and all anonymous clients behind the proxy share one rate limit",
+                    forwardHeadersStrategy);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI();
+        if (!enabled || "OPTIONS".equalsIgnoreCase(request.getMethod()) || !isApiPath(path)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String client = principalKey(request);
+        String route = routeTemplate(path);
+        RateLimitStore.Decision decision = rateLimitStore.tryAcquire(
+                client + " quota", routeCost(request.getMethod(), route), quota, windowSeconds);
+        response.setHeader("RateLimit-Limit", Integer.toString(quota));
+        response.setHeader("RateLimit-Remaining", Long.toString(Math.max(0, decision.remaining())));
+        response.setHeader("RateLimit-Reset", Long.toString(toSeconds(decision.resetNanos())));
+        if (!decision.allowed()) {
+            reject(request, response, decision);
+            return;
+        }
+
+        if (!"GET".equalsIgnoreCase(request.getMethod()) && isSensitivePath(route)) {
+            int limit = route.startsWith("/auth/") ? authLimit : mutationLimit;
+            RateLimitStore.Decision routeDecision = rateLimitStore.tryAcquire(client + " " + route, limit, windowSeconds);
+            if (!routeDecision.allowed()) {
+                reject(request, response, routeDecision);
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, RateLimitStore.Decision decision)
+            throws IOException {
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(toSeconds(decision.retryAfterNanos())));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":{\"code\":\"RATE_LIMITED\",\"message\":\"Too many requests\",\"details\":[]},\"requestId\":\""
+                + request.getAttribute("requestId") + "\"}");
+    }
+
+    private static long toSeconds(long nanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + 999_999_999L));
+    }
+
+    private int routeCost(String method, String route) {
+        for (RouteCost routeCost : routeCosts) {
+            if (routeCost.method().equalsIgnoreCase(method) && PATH_MATCHER.match(routeCost.pattern(), route)) {
+                return routeCost.cost();
+            }
+        }
+        return 1;
+    }
+
+    private String principalKey(HttpServletRequest request) {
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        String token = authHeader != null && authHeader.startsWith("Bearer ")
+                ? authHeader.substring(7)
+                : jwtCookieService.readToken(request).orElse(null);
+        if (token != null && !token.isBlank()) {
+            try {
+                JwtClaims claims = jwtUtil.verify(token);
+                return "user:" + (claims.userId() != null ? claims.userId() : claims.subject());
+            } catch (Exception e) {
+                // Anonymous: forged, expired and malformed tokens all fall back to the IP.
+            }
+        }
+        return "ip:" + clientKey(request);
+    }
+
+    /**
+     * {@code /api/v1/orders/123/status} becomes {@code /api/orders/{id}/status};
+     * versioned and unversioned spellings of a route share one template.
+     */
+    public static String routeTemplate(String path) {
+        if (path.startsWith("/api/v1/auth/")) {
+            path = path.substring("/api/v1".length());
+        } else if (path.startsWith("/api/v1/")) {
+            path = "/api/" + path.substring("/api/v1/".length());
+        }
+        String[] segments = path.split("/");
+        StringBuilder template = new StringBuilder(path.length());
+        for (String segment : segments) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            template.append('/').append(ID_SEGMENT.matcher(segment).matches() ? "{id}" : segment);
+        }
+        return template.length() == 0 ? "/" : template.toString();
+    }
+
+    private boolean isApiPath(String path) {
+        return path.startsWith("/api/") || path.startsWith("/auth/");
+    }
+
+    // Takes a route template, so /api/v1 spellings are already folded in.
+    private boolean isSensitivePath(String route) {
+        return route.startsWith("/auth/")
+                || route.startsWith("/api/orders")
+                || route.startsWith("/api/reviews")
+                || route.startsWith("/api/support")
+                || route.startsWith("/api/offers/validate")
+                || route.startsWith("/api/admin");
+    }
+
+    /**
+     * The connecting address, or when that is a trusted proxy, the nearest
+     * X-Forwarded-For hop that is not: hops further left were written by the
+     * client and prove nothing.
+     */
+    String clientKey(HttpServletRequest request) {
+        // ForwardedHeaderFilter rewrites the remote address from these same headers, so read the original request.
+        ServletRequest original = request;
+        while (original instanceof ServletRequestWrapper wrapper) {
+            original = wrapper.getRequest();
+        }
+        String peer = original.getRemoteAddr();
+        if (!isTrustedProxy(peer)) {
+            return peer;
+        }
+        List<String> hops = new ArrayList<>();
+        var headers = ((HttpServletRequest) original).getHeaders("X-Forwarded-For");
+        while (headers.hasMoreElements()) {
+            for (String hop : headers.nextElement().split(",")) {
+                if (!hop.isBlank()) {
+                    hops.add(hop.trim());
+                }
+            }
+        }
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            if (!isTrustedProxy(hops.get(i))) {
+                return hops.get(i);
+            }
+        }
+        return hops.isEmpty() ? peer : hops.get(0);
+    }
+
+    private boolean isTrustedProxy(String address) {
+        if (address == null || trustedProxies.isEmpty() || !IP_LITERAL.matcher(address).matches()) {
+            return false;
+        }
+        try {
+            return trustedProxies.stream().anyMatch(proxy -> proxy.matches(address));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.web;
+
+/**
+ * Backend for {@link RateLimitFilter}. {@code app.rate-limit.store} selects the
+ * implementation: {@code memory} (default) limits per node, {@code jdbc} shares
+ * limits across nodes through the database.
+ */
+public interface RateLimitStore {
+    /** Outcome of one acquire; {@code retryAfterNanos} is 0 when allowed. */
+    record Decision(boolean allowed, long remaining, long retryAfterNanos, long resetNanos) {}
+
+    /**
+     * Takes {@code cost} tokens from the quota of {@code key}, which allows
+     * {@code capacity} tokens per {@code windowSeconds}. A request is either
+     * admitted in full or not at all.
+     */
+    Decision tryAcquire(String key, int cost, int capacity, long windowSeconds);
+
+    default Decision tryAcquire(String key, int capacity, long windowSeconds) {
+        return tryAcquire(key, 1, capacity, windowSeconds);
+    }
+}
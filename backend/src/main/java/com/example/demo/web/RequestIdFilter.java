@@ -1,38 +1,118 @@
 package com.example.demo.web;
 
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
-import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.UUID;
 
+/**
+ * Tags each request with an id and a {@link RequestTrace}. When the response is
+ * complete the trace is recorded by {@link RequestMetrics}, and the timing
+ * breakdown is put in the MDC as {@code timing.*} fields and logged at debug
+ * level, so one line shows where a request's latency went.
+ */
 @Component
 @Order(Ordered.HIGHEST_PRECEDENCE)
 public class RequestIdFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(RequestIdFilter.class);
     private static final String HEADER = "X-Request-Id";
+    private static final String[] TIMING_FIELDS = {
+            "timing.auth", "timing.app", "timing.db", "timing.dbStatements", "timing.serialization", "timing.total"};
+
+    private final RequestMetrics requestMetrics;
+
+    public RequestIdFilter(RequestMetrics requestMetrics) {
+        this.requestMetrics = requestMetrics;
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         String requestId = request.getHeader(HEADER);
         if (requestId == null || requestId.isBlank()) {
-            requestId = UUID.randomUUID().toString();
+            requestId = RequestIds.next();
         }
 
+        RequestTrace trace = new RequestTrace();
         request.setAttribute("requestId", requestId);
+        request.setAttribute(RequestTrace.ATTRIBUTE, trace);
         response.setHeader(HEADER, requestId);
         MDC.put("requestId", requestId);
+        RequestTrace.bind(trace);
         try {
             filterChain.doFilter(request, response);
         } finally {
+            RequestTrace.bind(null);
+            if (request.isAsyncStarted()) {
+                String id = requestId;
+                request.getAsyncContext().addListener(new CompletionListener(() -> complete(request, response, trace, id)));
+            } else {
+                complete(request, response, trace, requestId);
+            }
             MDC.remove("requestId");
         }
     }
+
+    private void complete(HttpServletRequest request, HttpServletResponse response, RequestTrace trace, String requestId) {
+        trace.markEnd();
+        requestMetrics.record(request, response, trace);
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+        // Async requests complete on a container thread that has no MDC of its own.
+        String previousId = MDC.get("requestId");
+        MDC.put("requestId", requestId);
+        MDC.put("timing.auth", RequestTrace.format(trace.authMillis()));
+        MDC.put("timing.app", RequestTrace.format(trace.appMillis()));
+        MDC.put("timing.db", RequestTrace.format(trace.dbMillis()));
+        MDC.put("timing.dbStatements", Long.toString(trace.getDbStatements()));
+        MDC.put("timing.serialization", RequestTrace.format(trace.serializationMillis()));
+        MDC.put("timing.total", RequestTrace.format(trace.totalMillis()));
+        try {
+            log.debug("{} {} -> {} in {}ms (auth {}ms, app {}ms, db {}ms/{} statements, serialization {}ms)",
+                    request.getMethod(), request.getRequestURI(), response.getStatus(),
+                    MDC.get("timing.total"), MDC.get("timing.auth"), MDC.get("timing.app"), MDC.get("timing.db"),
+                    MDC.get("timing.dbStatements"), MDC.get("timing.serialization"));
+        } finally {
+            for (String field : TIMING_FIELDS) {
+                MDC.remove(field);
+            }
+            if (previousId == null) {
+                MDC.remove("requestId");
+            } else {
+                MDC.put("requestId", previousId);
+            }
+        }
+    }
+
+    private record CompletionListener(Runnable onDone) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            onDone.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
 }
@@ -0,0 +1,48 @@
+package com.example.demo.web;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ULID-style request ids: 48 bits of epoch millis and 80 random bits, as 26
+ * Crockford base32 characters, so ids sort by time. Randomness comes from
+ * {@link ThreadLocalRandom} rather than the shared SecureRandom behind
+ * {@code UUID.randomUUID()}; ids are correlation handles, not secrets. Within a
+ * millisecond, or if the clock steps back, a thread increments its previous
+ * random part instead of drawing a new one, so one thread's ids never go backwards.
+ */
+final class RequestIds {
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    private static final class State {
+        private long millis = -1;
+        private long randomHigh;
+        private long randomLow;
+    }
+
+    private RequestIds() {
+    }
+
+    static String next() {
+        State state = STATE.get();
+        long now = System.currentTimeMillis();
+        if (now > state.millis) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            state.millis = now;
+            state.randomHigh = random.nextInt() & 0xFFFFL;
+            state.randomLow = random.nextLong();
+        } else if (++state.randomLow == 0) {
+            state.randomHigh = (state.randomHigh + 1) & 0xFFFFL;
+        }
+
+        long high = (state.millis << 16) | state.randomHigh;
+        long low = state.randomLow;
+        char[] id = new char[26];
+        for (int i = 25; i >= 0; i--) {
+            id[i] = CROCKFORD[(int) (low & 31)];
+            low = (low >>> 5) | (high << 59);
+            high >>>= 5;
+        }
+        return new String(id);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.web;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.http.Outcome;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records {@code foodly.http.requests} per route template, method, role and
+ * outcome, and {@code foodly.http.db.statements} per route, with percentile
+ * histograms and the SLO buckets from {@code app.metrics.*}. Requests that
+ * never reached a controller (404s, requests shed by the rate or concurrency
+ * limiter) share the {@code UNMATCHED} route so that probing random paths
+ * cannot create new series.
+ */
+@Component
+public class RequestMetrics {
+    static final String REQUESTS = "foodly.http.requests";
+    static final String DB_STATEMENTS = "foodly.http.db.statements";
+    private static final String UNMATCHED = "UNMATCHED";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean percentileHistogram;
+    private final Duration[] latencySlo;
+    private final double[] dbStatementsSlo;
+
+    public RequestMetrics(MeterRegistry meterRegistry,
+                          @Value("${app.metrics.percentile-histogram:true}") boolean percentileHistogram,
+                          @Value("${app.metrics.latency-slo:50ms,100ms,250ms,500ms,1s,2s}") Duration[] latencySlo,
+                          @Value("${app.metrics.db-statements-slo:1,5,10,25,50}") double[] dbStatementsSlo) {
+        this.meterRegistry = meterRegistry;
+        this.percentileHistogram = percentileHistogram;
+        this.latencySlo = latencySlo;
+        this.dbStatementsSlo = dbStatementsSlo;
+    }
+
+    void record(HttpServletRequest request, HttpServletResponse response, RequestTrace trace) {
+        String route = route(request);
+        Tags tags = Tags.of(
+                "method", request.getMethod(),
+                "route", route,
+                "role", trace.getRole(),
+                "outcome", Outcome.forStatus(response.getStatus()).name(),
+                "status", Integer.toString(response.getStatus()));
+        Timer.builder(REQUESTS)
+                .description("Server-side request latency by route")
+                .tags(tags)
+                .publishPercentileHistogram(percentileHistogram)
+                .serviceLevelObjectives(latencySlo)
+                .register(meterRegistry)
+                .record(trace.totalNanos(), TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(DB_STATEMENTS)
+                .description("JDBC statements executed per request")
+                .tags("method", request.getMethod(), "route", route)
+                .serviceLevelObjectives(dbStatementsSlo)
+                .register(meterRegistry)
+                .record(trace.getDbStatements());
+    }
+
+    private static String route(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        // Versioned aliases are folded into their legacy route so both spellings share one series.
+        return pattern == null ? UNMATCHED : RateLimitFilter.routeTemplate(pattern.toString());
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.demo.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Where one request spent its time: authentication, the controller, JDBC and
+ * response serialization. {@link RequestIdFilter} starts a trace per request;
+ * the pieces are recorded by the JWT filter, {@link RequestTracingConfig},
+ * {@link ServerTimingAdvice} and {@link StatementTimingListener}. The trace is
+ * bound to the request thread, and {@link #supplyWith} carries it onto the
+ * bulkhead threads.
+ */
+public final class RequestTrace {
+    static final String ATTRIBUTE = RequestTrace.class.getName();
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong authNanos = new AtomicLong();
+    private final AtomicLong dbNanos = new AtomicLong();
+    private final AtomicLong dbStatements = new AtomicLong();
+    private final AtomicInteger queries = new AtomicInteger();
+    private volatile long handlerStartNanos;
+    private volatile long bodyWriteNanos;
+    private volatile long endNanos;
+    private volatile String role = "ANONYMOUS";
+    private volatile String route;
+    private volatile int queryBudget;
+
+    RequestTrace() {
+    }
+
+    /** The trace of the request being served on this thread, or null. */
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    public static RequestTrace of(HttpServletRequest request) {
+        return (RequestTrace) request.getAttribute(ATTRIBUTE);
+    }
+
+    /** Counts one JDBC statement execution against the current request, if any. */
+    public static void recordStatement(long nanos) {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.dbNanos.addAndGet(nanos);
+            trace.dbStatements.incrementAndGet();
+        }
+    }
+
+    /** Runs {@code work} with {@code trace} bound to the calling thread. */
+    public static <T> T supplyWith(RequestTrace trace, Supplier<T> work) {
+        RequestTrace previous = CURRENT.get();
+        bind(trace);
+        try {
+            return work.get();
+        } finally {
+            bind(previous);
+        }
+    }
+
+    static void bind(RequestTrace trace) {
+        if (trace == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(trace);
+        }
+    }
+
+    public void recordAuth(long nanos) {
+        authNanos.addAndGet(nanos);
+    }
+
+    /** The authenticated caller's role, for metric tags; requests without a valid token stay ANONYMOUS. */
+    public void setRole(String role) {
+        if (role != null) {
+            this.role = role;
+        }
+    }
+
+    String getRole() {
+        return role;
+    }
+
+    /** Hibernate statements prepared for this request so far, as seen by {@link QueryBudget}. */
+    public int getQueryCount() {
+        return queries.get();
+    }
+
+    int recordQuery() {
+        return queries.incrementAndGet();
+    }
+
+    void setQueryBudget(String route, int budget) {
+        this.route = route;
+        this.queryBudget = budget;
+    }
+
+    String getRoute() {
+        return route;
+    }
+
+    int getQueryBudget() {
+        return queryBudget;
+    }
+
+    void markHandlerStart() {
+        // Async results are dispatched a second time; the handler started on the first.
+        if (handlerStartNanos == 0) {
+            handlerStartNanos = System.nanoTime();
+        }
+    }
+
+    void markBodyWrite() {
+        if (bodyWriteNanos == 0) {
+            bodyWriteNanos = System.nanoTime();
+        }
+    }
+
+    void markEnd() {
+        endNanos = System.nanoTime();
+    }
+
+    public long getDbStatements() {
+        return dbStatements.get();
+    }
+
+    /**
+     * The Server-Timing value as of now. Headers go out before the body, so
+     * serialization is not known yet and is only reported in the MDC.
+     */
+    String serverTiming() {
+        long now = System.nanoTime();
+        long appEnd = bodyWriteNanos != 0 ? bodyWriteNanos : now;
+        StringBuilder value = new StringBuilder(96);
+        append(value, "auth", authNanos.get());
+        if (handlerStartNanos != 0) {
+            value.append(", ");
+            append(value, "app", appEnd - handlerStartNanos);
+        }
+        value.append(", ");
+        append(value, "db", dbNanos.get());
+        value.append(";desc=\"").append(dbStatements.get()).append(" statements\", ");
+        append(value, "total", now - startNanos);
+        return value.toString();
+    }
+
+    long totalNanos() {
+        return endNanos - startNanos;
+    }
+
+    double authMillis() {
+        return millis(authNanos.get());
+    }
+
+    double appMillis() {
+        return handlerStartNanos == 0 ? 0 : millis((bodyWriteNanos != 0 ? bodyWriteNanos : endNanos) - handlerStartNanos);
+    }
+
+    double dbMillis() {
+        return millis(dbNanos.get());
+    }
+
+    double serializationMillis() {
+        return bodyWriteNanos == 0 ? 0 : millis(endNanos - bodyWriteNanos);
+    }
+
+    double totalMillis() {
+        return millis(endNanos - startNanos);
+    }
+
+    static String format(double millis) {
+        long tenths = Math.round(millis * 10);
+        return (tenths / 10) + "." + (tenths % 10);
+    }
+
+    private static void append(StringBuilder value, String name, long nanos) {
+        value.append(name).append(";dur=").append(format(millis(nanos)));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Marks when the controller starts and hands the route to {@link QueryBudget},
+ * and sets Server-Timing on responses that have no body for
+ * {@link ServerTimingAdvice} to stamp.
+ */
+@Configuration
+public class RequestTracingConfig implements WebMvcConfigurer {
+    static final String SERVER_TIMING = "Server-Timing";
+
+    private final QueryBudget queryBudget;
+
+    public RequestTracingConfig(QueryBudget queryBudget) {
+        this.queryBudget = queryBudget;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AsyncHandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                RequestTrace trace = RequestTrace.of(request);
+                if (trace != null) {
+                    trace.markHandlerStart();
+                    queryBudget.begin(request, trace);
+                }
+                return true;
+            }
+
+            @Override
+            public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                   ModelAndView modelAndView) {
+                RequestTrace trace = RequestTrace.of(request);
+                if (trace != null && !response.isCommitted() && !response.containsHeader(SERVER_TIMING)) {
+                    response.setHeader(SERVER_TIMING, trace.serverTiming());
+                }
+            }
+        });
+    }
+}
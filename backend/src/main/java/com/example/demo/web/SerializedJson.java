@@ -0,0 +1,37 @@
+package com.example.demo.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A response body serialized once to UTF-8 JSON, plus its gzip encoding when
+ * that is actually smaller. Both arrays are shared between requests and must
+ * never be modified.
+ */
+public record SerializedJson(byte[] json, byte[] gzip) {
+
+    public static SerializedJson of(ObjectMapper objectMapper, Object body) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response body", e);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new SerializedJson(json, compressed.size() < json.length ? compressed.toByteArray() : null);
+    }
+
+    public int size() {
+        return json.length + (gzip == null ? 0 : gzip.length);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.web;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Times each statement Hibernate executes and charges it to the current
+ * {@link RequestTrace}. Hibernate creates one per session and calls it around
+ * every execution and batch, so this costs two clock reads per statement and
+ * nothing per bind or result-set call. Statements run through JdbcTemplate are
+ * not seen here.
+ */
+public class StatementTimingListener implements SessionEventListener {
+    private long executeStartNanos;
+    private long batchStartNanos;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executeStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        RequestTrace.recordStatement(System.nanoTime() - executeStartNanos);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        RequestTrace.recordStatement(System.nanoTime() - batchStartNanos);
+    }
+}
@@ -0,0 +1,11 @@
+-- Fixed-window request counters shared by all nodes when app.rate-limit.store=jdbc.
+-- Nodes reserve quota in leases, so rows are updated once per lease, not per request.
+CREATE TABLE IF NOT EXISTS rate_limit_counters (
+    bucket_key VARCHAR(200) NOT NULL,
+    window_start BIGINT NOT NULL,
+    used INTEGER NOT NULL,
+    expires_at BIGINT NOT NULL,
+    PRIMARY KEY (bucket_key, window_start)
+);
+
+CREATE INDEX IF NOT EXISTS idx_rate_limit_counters_expires_at ON rate_limit_counters (expires_at);
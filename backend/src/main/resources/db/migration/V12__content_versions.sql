@@ -0,0 +1,18 @@
+-- Versions behind the ETags of public restaurant, menu and offer responses.
+-- Rows are incremented in the transaction that changes the content.
+CREATE TABLE IF NOT EXISTS content_versions (
+    scope VARCHAR(64) PRIMARY KEY,
+    version BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_content_versions_updated_at ON content_versions (updated_at);
+
+INSERT INTO content_versions (scope, version, updated_at)
+SELECT 'restaurant:' || id, 0, CURRENT_TIMESTAMP FROM restaurants
+ON CONFLICT (scope) DO NOTHING;
+
+INSERT INTO content_versions (scope, version, updated_at) VALUES
+    ('offers', 0, CURRENT_TIMESTAMP),
+    ('catalog', 0, CURRENT_TIMESTAMP)
+ON CONFLICT (scope) DO NOTHING;
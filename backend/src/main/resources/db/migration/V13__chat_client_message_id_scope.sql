@@ -0,0 +1,8 @@
+-- Client message ids are chosen by clients, so they are only unique within one
+-- side of one order's chat. A global index let one user's id collide with, and
+-- suppress, another user's message.
+DROP INDEX IF EXISTS uq_chat_messages_client_message_id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_chat_messages_order_sender_client_message_id
+    ON chat_messages (order_id, sender, client_message_id)
+    WHERE client_message_id IS NOT NULL;
@@ -0,0 +1,9 @@
+-- Unread notification feeds page newest-first per recipient. Partial indexes keep
+-- only unread rows, so they stay small as chat history grows.
+CREATE INDEX IF NOT EXISTS idx_chat_messages_customer_unread_feed
+    ON chat_messages (customer_id, timestamp DESC, id DESC)
+    WHERE is_read = FALSE AND sender = 'restaurant';
+
+CREATE INDEX IF NOT EXISTS idx_chat_messages_restaurant_unread_feed
+    ON chat_messages (restaurant_id, timestamp DESC, id DESC)
+    WHERE is_read = FALSE AND sender = 'customer';
@@ -0,0 +1,17 @@
+-- Record when an order was delivered or cancelled so chat retention can age out
+-- conversations for closed orders. Existing closed orders are backfilled from
+-- their last chat activity, falling back to the order creation time.
+ALTER TABLE orders
+    ADD COLUMN IF NOT EXISTS closed_at TIMESTAMP;
+
+UPDATE orders o
+SET closed_at = COALESCE(
+    (SELECT max(c.timestamp) FROM chat_messages c WHERE c.order_id = o.id),
+    o.created_at
+)
+WHERE o.status IN ('Delivered', 'Cancelled')
+  AND o.closed_at IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_orders_closed_at
+    ON orders (closed_at)
+    WHERE closed_at IS NOT NULL;
@@ -0,0 +1,8 @@
+-- Queued chat writes are acknowledged with a client-generated id before the row
+-- exists; the unique index makes client retries of the same message idempotent.
+ALTER TABLE chat_messages
+    ADD COLUMN IF NOT EXISTS client_message_id VARCHAR(64);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_chat_messages_client_message_id
+    ON chat_messages (client_message_id)
+    WHERE client_message_id IS NOT NULL;
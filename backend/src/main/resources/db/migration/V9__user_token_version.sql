@@ -0,0 +1,4 @@
+-- JWTs carry the user's token version; bumping it (block, role change)
+-- invalidates every token issued before the change.
+ALTER TABLE users
+    ADD COLUMN IF NOT EXISTS token_version INTEGER NOT NULL DEFAULT 0;
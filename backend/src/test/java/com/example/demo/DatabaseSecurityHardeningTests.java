@@ -1,36 +1,86 @@
 package com.example.demo;
 
+import com.example.demo.config.ConnectionLimitingDataSource;
+import com.example.demo.config.JwtRequestFilter;
+import com.example.demo.controller.AdminController;
 import com.example.demo.controller.AuthController;
 import com.example.demo.controller.CustomerController;
 import com.example.demo.controller.OrderController;
 import com.example.demo.controller.RestaurantController;
 import com.example.demo.controller.ReviewController;
 import com.example.demo.controller.SupportController;
+import com.example.demo.dto.ChatNotification;
+import com.example.demo.dto.LoginRequest;
+import com.example.demo.dto.OrderSummary;
 import com.example.demo.dto.SignupRequest;
 import com.example.demo.exception.ApiException;
+import com.example.demo.model.Cart;
 import com.example.demo.model.ChatMessage;
 import com.example.demo.model.MenuItem;
+import com.example.demo.model.Offer;
 import com.example.demo.model.Order;
 import com.example.demo.model.OrderItem;
 import com.example.demo.model.Restaurant;
+import com.example.demo.model.Review;
 import com.example.demo.model.User;
+import com.example.demo.model.Wishlist;
+import com.example.demo.repository.CartRepository;
 import com.example.demo.repository.CustomerRepository;
 import com.example.demo.repository.ChatMessageRepository;
 import com.example.demo.repository.MenuItemRepository;
+import com.example.demo.repository.OfferRepository;
 import com.example.demo.repository.OrderRepository;
 import com.example.demo.repository.RestaurantRepository;
+import com.example.demo.repository.ReviewRepository;
+import com.example.demo.repository.WishlistRepository;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.RestaurantOwnership;
+import com.example.demo.service.AuthTokenService;
+import com.example.demo.service.Bulkheads;
+import com.example.demo.service.ChatRetentionJob;
+import com.example.demo.service.CustomUserDetailsService;
+import com.example.demo.service.JwtClaims;
+import com.example.demo.service.JwtUtil;
+import com.example.demo.service.MenuPayloadCache;
+import com.example.demo.service.UserDetailsCache;
+import com.example.demo.web.ConcurrencyLimitFilter;
+import com.example.demo.web.RateLimitFilter;
+import com.example.demo.web.RequestIdFilter;
+import com.example.demo.web.RequestTrace;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.Cookie;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -60,6 +110,51 @@ class DatabaseSecurityHardeningTests {
     private MenuItemRepository menuItemRepository;
     @Autowired
     private OrderRepository orderRepository;
+    @Autowired
+    private ReviewRepository reviewRepository;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private WishlistRepository wishlistRepository;
+    @Autowired
+    private ChatRetentionJob chatRetentionJob;
+    @Autowired
+    private AdminController adminController;
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private JwtRequestFilter jwtRequestFilter;
+    @Autowired
+    private RestaurantOwnership restaurantOwnership;
+    @Autowired
+    private AuthTokenService authTokenService;
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+    @Autowired
+    private RequestIdFilter requestIdFilter;
+    @Autowired
+    private ConcurrencyLimitFilter concurrencyLimitFilter;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private MenuPayloadCache menuPayloadCache;
+    @Autowired
+    private OfferRepository offerRepository;
+    @Autowired
+    private com.fasterxml.jackson.databind.ObjectMapper objectMapper;
+    @jakarta.persistence.PersistenceContext
+    private jakarta.persistence.EntityManager entityManager;
+    @Autowired
+    @Qualifier("springSecurityFilterChain")
+    private Filter springSecurityFilterChain;
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+    @Autowired
+    private org.springframework.jdbc.core.JdbcTemplate jdbcTemplate;
 
     @Test
     void publicSignupCannotCreateAdmin() {
@@ -90,6 +185,23 @@ class DatabaseSecurityHardeningTests {
         assertThat(response.getBody()).containsEntry("username", "new_customer");
     }
 
+    @Test
+    void loginRehashesPasswordsStoredWithALowerCost() {
+        User user = saveUser("rehash_customer", "rehash-customer@example.com", "CUSTOMER");
+        user.setPassword(new BCryptPasswordEncoder(4).encode("SecurePass123!"));
+        customerRepository.save(user);
+
+        LoginRequest request = new LoginRequest();
+        request.setUsername("rehash_customer");
+        request.setPassword("SecurePass123!");
+        request.setRole("CUSTOMER");
+        assertThat(authController.login(request).getBody()).containsEntry("role", "CUSTOMER");
+
+        String upgraded = customerRepository.findByUsername("rehash_customer").orElseThrow().getPassword();
+        assertThat(upgraded).startsWith("$2a$10$");
+        assertThat(new BCryptPasswordEncoder().matches("SecurePass123!", upgraded)).isTrue();
+    }
+
     @Test
     void restaurantSignupCreatesBrowsableSlug() {
         SignupRequest request = new SignupRequest();
@@ -108,8 +220,10 @@ class DatabaseSecurityHardeningTests {
         Restaurant restaurant = restaurantRepository.findById(restaurantId).orElseThrow();
         assertThat(restaurant.getSlug()).isEqualTo("dhaba-kitchen");
 
-        ResponseEntity<?> slugResponse = restaurantController.getRestaurantBySlug("dhaba-kitchen");
-        ResponseEntity<?> idResponse = restaurantController.getRestaurantBySlug(restaurantId.toString());
+        ResponseEntity<?> slugResponse = restaurantController.getRestaurantBySlug("dhaba-kitchen",
+            new ServletWebRequest(new MockHttpServletRequest()));
+        ResponseEntity<?> idResponse = restaurantController.getRestaurantBySlug(restaurantId.toString(),
+            new ServletWebRequest(new MockHttpServletRequest()));
 
         assertThat(slugResponse.getStatusCode().value()).isEqualTo(200);
         assertThat(idResponse.getStatusCode().value()).isEqualTo(200);
@@ -135,7 +249,7 @@ class DatabaseSecurityHardeningTests {
         Restaurant restaurant = saveRestaurant("Owner", "owner@example.com", "Pizza Place");
         MenuItem item = saveMenuItem(restaurant, "Real Pizza", 12.50, true, 5);
 
-        Map<String, Object> response = orderController.placeOrder(Map.of(
+        OrderSummary response = orderController.placeOrder(Map.of(
             "items", List.of(Map.of(
                 "menu_item_id", item.getId(),
                 "name", "Tampered Name",
@@ -145,11 +259,9 @@ class DatabaseSecurityHardeningTests {
             ))
         ), principal(customer));
 
-        assertThat(response).containsEntry("total", 25.0);
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> items = (List<Map<String, Object>>) response.get("items");
-        assertThat(items.get(0)).containsEntry("name", "Real Pizza");
-        assertThat(items.get(0)).containsEntry("price", 12.50);
+        assertThat(response.total()).isEqualTo(25.0);
+        assertThat(response.items().get(0).name()).isEqualTo("Real Pizza");
+        assertThat(response.items().get(0).price()).isEqualTo(12.50);
         assertThat(menuItemRepository.findById(item.getId()).orElseThrow().getQuantityAvailable()).isEqualTo(3);
     }
 
@@ -180,6 +292,30 @@ class DatabaseSecurityHardeningTests {
         assertThat(saved.getSender()).isEqualTo("customer");
     }
 
+    @Test
+    void clientMessageIdsAreOnlyIdempotentWithinOneSideOfOneChat() {
+        User owner = saveUser("idem_owner", "idem-owner@example.com", "RESTAURANT");
+        User buyer = saveUser("idem_buyer", "idem-buyer@example.com", "CUSTOMER");
+        User stranger = saveUser("idem_stranger", "idem-stranger@example.com", "CUSTOMER");
+        Restaurant restaurant = saveRestaurant(owner, "Idempotent Cafe");
+        MenuItem item = saveMenuItem(restaurant, "Idempotent Tea", 3.00, true, 10);
+        Order buyerOrder = placePersistedOrder(buyer, item, 1);
+        Order strangerOrder = placePersistedOrder(stranger, item, 1);
+
+        ChatMessage original = supportController.addMessage(chatRequest(buyerOrder, "where is my tea", "shared-id"), principal(buyer));
+        assertThat(supportController.addMessage(chatRequest(buyerOrder, "where is my tea", "shared-id"), principal(buyer)).getId())
+            .isEqualTo(original.getId());
+
+        // The same id from someone else's chat, or from the other side of this one, is a new message.
+        ChatMessage guessed = supportController.addMessage(chatRequest(strangerOrder, "hello", "shared-id"), principal(stranger));
+        assertThat(guessed.getId()).isNotEqualTo(original.getId());
+        assertThat(guessed.getOrderId()).isEqualTo(strangerOrder.getId());
+        assertThat(guessed.getMessage()).isEqualTo("hello");
+        ChatMessage reply = supportController.addMessage(chatRequest(buyerOrder, "on its way", "shared-id"), principal(owner));
+        assertThat(reply.getId()).isNotEqualTo(original.getId());
+        assertThat(reply.getSender()).isEqualTo("restaurant");
+    }
+
     @Test
     void customerNotificationsIncludeContextAndDisappearAfterRead() {
         User owner = saveUser("notify_owner", "notify-owner@example.com", "RESTAURANT");
@@ -198,26 +334,25 @@ class DatabaseSecurityHardeningTests {
         message.setIsRead(false);
         ChatMessage saved = chatMessageRepository.save(message);
 
-        Map<String, Object> notificationResponse = supportController.getUnreadNotifications(principal(buyer));
+        Map<String, Object> notificationResponse = supportController.getUnreadNotifications(null, null, principal(buyer));
 
         assertThat(notificationResponse).containsEntry("unreadCount", 1);
         @SuppressWarnings("unchecked")
-        List<Map<String, Object>> notifications = (List<Map<String, Object>>) notificationResponse.get("notifications");
+        List<ChatNotification> notifications = (List<ChatNotification>) notificationResponse.get("notifications");
         assertThat(notifications).hasSize(1);
-        assertThat(notifications.get(0))
-            .containsEntry("messageId", saved.getId())
-            .containsEntry("restaurantName", "Notification Cafe")
-            .containsEntry("orderId", order.getId())
-            .containsEntry("restaurantId", restaurant.getId());
-        assertThat((String) notifications.get(0).get("targetPath"))
+        assertThat(notifications.get(0).messageId()).isEqualTo(saved.getId());
+        assertThat(notifications.get(0).restaurantName()).isEqualTo("Notification Cafe");
+        assertThat(notifications.get(0).orderId()).isEqualTo(order.getId());
+        assertThat(notifications.get(0).restaurantId()).isEqualTo(restaurant.getId());
+        assertThat(notifications.get(0).targetPath())
             .contains("/customer/support")
             .contains("orderId=" + order.getId())
             .contains("restaurantId=" + restaurant.getId());
 
-        assertThat(supportController.getUnreadNotifications(principal(stranger))).containsEntry("unreadCount", 0);
+        assertThat(supportController.getUnreadNotifications(null, null, principal(stranger))).containsEntry("unreadCount", 0);
 
         supportController.markMessageAsRead(saved.getId(), principal(buyer));
-        assertThat(supportController.getUnreadNotifications(principal(buyer))).containsEntry("unreadCount", 0);
+        assertThat(supportController.getUnreadNotifications(null, null, principal(buyer))).containsEntry("unreadCount", 0);
     }
 
     @Test
@@ -239,26 +374,25 @@ class DatabaseSecurityHardeningTests {
         message.setIsRead(false);
         ChatMessage saved = chatMessageRepository.save(message);
 
-        Map<String, Object> notificationResponse = supportController.getUnreadNotifications(principal(owner));
+        Map<String, Object> notificationResponse = supportController.getUnreadNotifications(null, null, principal(owner));
 
         assertThat(notificationResponse).containsEntry("unreadCount", 1);
         @SuppressWarnings("unchecked")
-        List<Map<String, Object>> notifications = (List<Map<String, Object>>) notificationResponse.get("notifications");
+        List<ChatNotification> notifications = (List<ChatNotification>) notificationResponse.get("notifications");
         assertThat(notifications).hasSize(1);
-        assertThat(notifications.get(0))
-            .containsEntry("messageId", saved.getId())
-            .containsEntry("customerName", buyer.getUsername())
-            .containsEntry("restaurantName", "Restaurant Notify Cafe")
-            .containsEntry("orderId", order.getId())
-            .containsEntry("restaurantId", restaurant.getId());
-        assertThat((String) notifications.get(0).get("targetPath"))
+        assertThat(notifications.get(0).messageId()).isEqualTo(saved.getId());
+        assertThat(notifications.get(0).customerName()).isEqualTo(buyer.getUsername());
+        assertThat(notifications.get(0).restaurantName()).isEqualTo("Restaurant Notify Cafe");
+        assertThat(notifications.get(0).orderId()).isEqualTo(order.getId());
+        assertThat(notifications.get(0).restaurantId()).isEqualTo(restaurant.getId());
+        assertThat(notifications.get(0).targetPath())
             .contains("/restaurant/orders")
             .contains("orderId=" + order.getId());
 
-        assertThat(supportController.getUnreadNotifications(principal(otherOwner))).containsEntry("unreadCount", 0);
+        assertThat(supportController.getUnreadNotifications(null, null, principal(otherOwner))).containsEntry("unreadCount", 0);
 
         supportController.markMessageAsRead(saved.getId(), principal(owner));
-        assertThat(supportController.getUnreadNotifications(principal(owner))).containsEntry("unreadCount", 0);
+        assertThat(supportController.getUnreadNotifications(null, null, principal(owner))).containsEntry("unreadCount", 0);
     }
 
     @Test
@@ -271,26 +405,69 @@ class DatabaseSecurityHardeningTests {
 
         orderController.updateOrderStatus(order.getId(), Map.of("status", "Accepted"), principal(owner));
 
-        Map<String, Object> notificationResponse = supportController.getUnreadNotifications(principal(buyer));
+        Map<String, Object> notificationResponse = supportController.getUnreadNotifications(null, null, principal(buyer));
         assertThat(notificationResponse).containsEntry("unreadCount", 1);
         @SuppressWarnings("unchecked")
-        List<Map<String, Object>> notifications = (List<Map<String, Object>>) notificationResponse.get("notifications");
-        assertThat(notifications.get(0))
-            .containsEntry("type", "ORDER_STATUS")
-            .containsEntry("restaurantName", "Status Notify Cafe")
-            .containsEntry("orderId", order.getId())
-            .containsEntry("orderStatus", "Accepted");
-        assertThat((String) notifications.get(0).get("message")).contains("is now Accepted");
-        assertThat((String) notifications.get(0).get("targetPath"))
+        List<ChatNotification> notifications = (List<ChatNotification>) notificationResponse.get("notifications");
+        assertThat(notifications.get(0).type()).isEqualTo("ORDER_STATUS");
+        assertThat(notifications.get(0).restaurantName()).isEqualTo("Status Notify Cafe");
+        assertThat(notifications.get(0).orderId()).isEqualTo(order.getId());
+        assertThat(notifications.get(0).orderStatus()).isEqualTo("Accepted");
+        assertThat(notifications.get(0).message()).contains("is now Accepted");
+        assertThat(notifications.get(0).targetPath())
             .isEqualTo("/customer/orders?orderId=" + order.getId());
 
         orderController.updateOrderStatus(order.getId(), Map.of("status", "Accepted"), principal(owner));
-        assertThat(supportController.getUnreadNotifications(principal(buyer))).containsEntry("unreadCount", 1);
+        assertThat(supportController.getUnreadNotifications(null, null, principal(buyer))).containsEntry("unreadCount", 1);
 
         for (String status : List.of("Preparing", "Out for Delivery", "Delivered", "Cancelled", "Refunded", "New")) {
             orderController.updateOrderStatus(order.getId(), Map.of("status", status), principal(owner));
         }
-        assertThat(supportController.getUnreadNotifications(principal(buyer))).containsEntry("unreadCount", 7);
+        assertThat(supportController.getUnreadNotifications(null, null, principal(buyer))).containsEntry("unreadCount", 7);
+    }
+
+    @Test
+    void notificationFeedPagesNewestFirstWithCursor() {
+        User owner = saveUser("paged_notify_owner", "paged-notify-owner@example.com", "RESTAURANT");
+        User buyer = saveUser("paged_notify_buyer", "paged-notify-buyer@example.com", "CUSTOMER");
+        Restaurant restaurant = saveRestaurant(owner, "Paged Notify Cafe");
+        MenuItem item = saveMenuItem(restaurant, "Dosa", 6.00, true, 10);
+        Order order = placePersistedOrder(buyer, item, 1);
+
+        java.util.Date sameInstant = new java.util.Date();
+        List<Long> savedIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ChatMessage message = new ChatMessage();
+            message.setOrderId(order.getId());
+            message.setCustomerId(buyer.getId());
+            message.setRestaurantId(restaurant.getId());
+            message.setSender("restaurant");
+            message.setMessage("Update " + i);
+            message.setTimestamp(sameInstant);
+            message.setIsRead(false);
+            savedIds.add(chatMessageRepository.save(message).getId());
+        }
+
+        Map<String, Object> firstPage = supportController.getUnreadNotifications(null, 2, principal(buyer));
+        assertThat(firstPage).containsEntry("unreadCount", 5);
+        @SuppressWarnings("unchecked")
+        List<ChatNotification> first = (List<ChatNotification>) firstPage.get("notifications");
+        assertThat(first).extracting(ChatNotification::messageId).containsExactly(savedIds.get(4), savedIds.get(3));
+
+        Map<String, Object> secondPage = supportController.getUnreadNotifications(
+            (String) firstPage.get("nextCursor"), 2, principal(buyer)
+        );
+        @SuppressWarnings("unchecked")
+        List<ChatNotification> second = (List<ChatNotification>) secondPage.get("notifications");
+        assertThat(second).extracting(ChatNotification::messageId).containsExactly(savedIds.get(2), savedIds.get(1));
+
+        Map<String, Object> lastPage = supportController.getUnreadNotifications(
+            (String) secondPage.get("nextCursor"), 2, principal(buyer)
+        );
+        @SuppressWarnings("unchecked")
+        List<ChatNotification> last = (List<ChatNotification>) lastPage.get("notifications");
+        assertThat(last).extracting(ChatNotification::messageId).containsExactly(savedIds.get(0));
+        assertThat(lastPage.get("nextCursor")).isNull();
     }
 
     @Test
@@ -328,6 +505,165 @@ class DatabaseSecurityHardeningTests {
             .hasMessageContaining("Chat is disabled");
     }
 
+    @Test
+    void chatRetentionPurgesOnlyMessagesOfLongClosedOrders() {
+        User buyer = saveUser("retention_buyer", "retention-buyer@example.com", "CUSTOMER");
+        Restaurant restaurant = saveRestaurant("retention_owner", "retention-owner@example.com", "Retention Cafe");
+        MenuItem item = saveMenuItem(restaurant, "Idli", 4.00, true, 10);
+
+        Order oldDelivered = placePersistedOrder(buyer, item, 1);
+        oldDelivered.setStatus("Delivered");
+        oldDelivered.setClosedAt(java.sql.Timestamp.valueOf(java.time.LocalDateTime.now().minusDays(120)));
+        orderRepository.save(oldDelivered);
+        Order recentlyCancelled = placePersistedOrder(buyer, item, 1);
+        recentlyCancelled.setStatus("Cancelled");
+        orderRepository.save(recentlyCancelled);
+        Order active = placePersistedOrder(buyer, item, 1);
+
+        ChatMessage expired = saveChatMessage(oldDelivered, "restaurant", "Enjoy your meal");
+        saveChatMessage(oldDelivered, "customer", "Thanks");
+        ChatMessage recent = saveChatMessage(recentlyCancelled, "restaurant", "Sorry about that");
+        ChatMessage open = saveChatMessage(active, "customer", "Where is my order?");
+
+        assertThat(chatRetentionJob.purgeExpiredMessages()).isEqualTo(2);
+        assertThat(recentlyCancelled.getClosedAt()).isNotNull();
+        assertThat(active.getClosedAt()).isNull();
+        assertThat(chatMessageRepository.existsById(expired.getId())).isFalse();
+        assertThat(chatMessageRepository.existsById(recent.getId())).isTrue();
+        assertThat(chatMessageRepository.existsById(open.getId())).isTrue();
+    }
+
+    @Test
+    void cachedPrincipalIsEvictedWhenAdminBlocksUser() {
+        User alice = saveUser("cached_alice", "cached-alice@example.com", "CUSTOMER");
+        AtomicInteger lookups = new AtomicInteger();
+        java.util.function.Function<String, AuthenticatedUser> loader = username -> {
+            lookups.incrementAndGet();
+            return userDetailsService.loadUserByUsername(username);
+        };
+
+        userDetailsCache.get("cached_alice", loader);
+        AuthenticatedUser cached = userDetailsCache.get("cached_alice", loader);
+        assertThat(cached.getUsername()).isEqualTo("cached_alice");
+        assertThat(cached.getId()).isEqualTo(alice.getId());
+        assertThat(lookups).hasValue(1);
+
+        User admin = saveUser("cache_admin", "cache-admin@example.com", "ADMIN");
+        UserDetails adminPrincipal = principal(admin);
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(adminPrincipal, null, adminPrincipal.getAuthorities()));
+        try {
+            adminController.blockUser(alice.getId());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        assertThatThrownBy(() -> userDetailsCache.get("cached_alice", loader))
+            .isInstanceOf(UsernameNotFoundException.class);
+        assertThat(lookups).hasValue(2);
+
+        // A request that read the row before the block committed caches the old, active principal...
+        userDetailsCache.get("cached_alice", username -> cached);
+        // ...and loses it when the blocking transaction completes.
+        org.springframework.test.context.transaction.TestTransaction.end();
+        AuthenticatedUser reloaded = userDetailsCache.get("cached_alice", username -> {
+            lookups.incrementAndGet();
+            return cached;
+        });
+        assertThat(reloaded).isSameAs(cached);
+        assertThat(lookups).hasValue(3);
+    }
+
+    @Test
+    void jwtIsVerifiedOnceAndTamperedTokensAreRejected() {
+        User alice = saveUser("jwt_alice", "jwt-alice@example.com", "CUSTOMER");
+        String token = jwtUtil.generateToken(alice, null);
+
+        JwtClaims claims = jwtUtil.verify(token);
+        assertThat(claims.subject()).isEqualTo("jwt_alice");
+        assertThat(claims.userId()).isEqualTo(alice.getId());
+        assertThat(claims.role()).isEqualTo("CUSTOMER");
+        assertThat(claims.restaurantId()).isNull();
+        assertThat(jwtUtil.verify(token)).isSameAs(claims);
+
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + parts[1] + "." + parts[2].substring(0, parts[2].length() - 4) + "AAAA";
+        assertThatThrownBy(() -> jwtUtil.verify(forged))
+            .isInstanceOf(io.jsonwebtoken.JwtException.class);
+    }
+
+    @Test
+    void jwtFilterInstallsClaimsPrincipalAndRejectsStaleTokenVersions() throws Exception {
+        Restaurant restaurant = saveRestaurant("jwt_owner", "jwt-owner@example.com", "Token Kitchen");
+        User owner = restaurant.getOwner();
+        String token = jwtUtil.generateToken(owner, restaurant.getId());
+
+        Authentication authentication = authenticateWithFilter(token);
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getPrincipal()).isInstanceOf(AuthenticatedUser.class);
+        AuthenticatedUser principal = (AuthenticatedUser) authentication.getPrincipal();
+        assertThat(principal.getId()).isEqualTo(owner.getId());
+        assertThat(principal.getRestaurantId()).isEqualTo(restaurant.getId());
+        assertThat(principal.getPassword()).isNull();
+        assertThat(supportController.getUnreadMessageCount(null, restaurant.getId(), principal))
+            .containsEntry("restaurantUnread", 0L);
+
+        owner.setTokenVersion(owner.getTokenVersion() + 1);
+        customerRepository.save(owner);
+        userDetailsCache.evict(owner);
+
+        assertThat(authenticateWithFilter(token)).isNull();
+        assertThat(authenticateWithFilter(jwtUtil.generateToken(owner, restaurant.getId()))).isNotNull();
+    }
+
+    @Test
+    void refreshRotatesTokensAndReuseRevokesTheWholeFamily() throws Exception {
+        SignupRequest request = new SignupRequest();
+        request.setUsername("refresh_customer");
+        request.setEmail("refresh-customer@example.com");
+        request.setPassword("SecurePass123!");
+        request.setRole("CUSTOMER");
+        String firstRefresh = cookieValue(authController.signup(request).getHeaders().get(HttpHeaders.SET_COOKIE),
+            "FOODLY_REFRESH_TOKEN");
+
+        ResponseEntity<Map<String, Object>> refreshed = authController.refresh(withRefreshCookie(firstRefresh));
+        assertThat(refreshed.getBody()).containsEntry("role", "CUSTOMER");
+        List<String> cookies = refreshed.getHeaders().get(HttpHeaders.SET_COOKIE);
+        assertThat(authenticateWithFilter(cookieValue(cookies, "FOODLY_ACCESS_TOKEN"))).isNotNull();
+        String secondRefresh = cookieValue(cookies, "FOODLY_REFRESH_TOKEN");
+        assertThat(secondRefresh).isNotEqualTo(firstRefresh);
+
+        assertThatThrownBy(() -> authController.refresh(withRefreshCookie(firstRefresh)))
+            .isInstanceOf(ApiException.class)
+            .hasFieldOrPropertyWithValue("code", "REFRESH_TOKEN_REUSED");
+        assertThatThrownBy(() -> authController.refresh(withRefreshCookie(secondRefresh)))
+            .isInstanceOf(ApiException.class)
+            .hasFieldOrPropertyWithValue("code", "REFRESH_TOKEN_REUSED");
+    }
+
+    @Test
+    void logoutAndAdminBlockRevokeOutstandingAccessTokens() throws Exception {
+        User alice = saveUser("revoked_alice", "revoked-alice@example.com", "CUSTOMER");
+        AuthTokenService.IssuedTokens tokens = authTokenService.issue(alice, null);
+        String access = cookieValue(tokens.cookies(), "FOODLY_ACCESS_TOKEN");
+        String refresh = cookieValue(tokens.cookies(), "FOODLY_REFRESH_TOKEN");
+        assertThat(authenticateWithFilter(access)).isNotNull();
+
+        MockHttpServletRequest logout = withRefreshCookie(refresh);
+        logout.addHeader("Authorization", "Bearer " + access);
+        authController.logout(logout, new MockHttpServletResponse());
+
+        assertThat(authenticateWithFilter(access)).isNull();
+        assertThatThrownBy(() -> authController.refresh(withRefreshCookie(refresh)))
+            .isInstanceOf(ApiException.class);
+
+        User bob = saveUser("revoked_bob", "revoked-bob@example.com", "CUSTOMER");
+        String bobAccess = cookieValue(authTokenService.issue(bob, null).cookies(), "FOODLY_ACCESS_TOKEN");
+        assertThat(authenticateWithFilter(bobAccess)).isNotNull();
+        authTokenService.revokeAllForUser(bob.getId());
+        assertThat(authenticateWithFilter(bobAccess)).isNull();
+    }
+
     @Test
     void restaurantOwnersCannotReadOtherRestaurantsOrders() {
         User buyer = saveUser("restaurant_buyer", "restaurant-buyer@example.com", "CUSTOMER");
@@ -336,10 +672,408 @@ class DatabaseSecurityHardeningTests {
         MenuItem item = saveMenuItem(theirs, "Noodles", 9.00, true, 10);
         placePersistedOrder(buyer, item, 1);
 
-        assertThatThrownBy(() -> orderController.getOrdersForRestaurant(theirs.getId(), principal(mine.getOwner())))
+        UserDetails mineOwner = principal(mine.getOwner());
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(mineOwner, null, mineOwner.getAuthorities()));
+        try {
+            assertThatThrownBy(() -> orderController.getOrdersForRestaurant(theirs.getId(), mineOwner, null))
+                .isInstanceOf(AccessDeniedException.class);
+            assertThat(orderController.getOrdersForRestaurant(mine.getId(), mineOwner, null)).isEmpty();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Test
+    void restaurantOwnershipIsCachedUntilOwnerIsEvicted() {
+        Restaurant restaurant = saveRestaurant("cache_owner", "cache-owner@example.com", "Cached Kitchen");
+        AuthenticatedUser owner = AuthenticatedUser.of(restaurant.getOwner(), null);
+
+        assertThat(restaurantOwnership.owns(owner, restaurant.getId())).isTrue();
+        restaurantRepository.delete(restaurant);
+        restaurantRepository.flush();
+        assertThat(restaurantOwnership.owns(owner, restaurant.getId())).isTrue();
+
+        restaurantOwnership.evictOwner(owner.getId());
+        assertThat(restaurantOwnership.restaurantIdOf(owner)).isNull();
+        assertThatThrownBy(() -> restaurantOwnership.requireOwnedRestaurantId(owner))
             .isInstanceOf(AccessDeniedException.class);
     }
 
+
+
+
+
+    @Test
+    void connectionLimitingDataSourceHandsOutAtMostItsPermits() throws Exception {
+        ConnectionLimitingDataSource limited = new ConnectionLimitingDataSource(jdbcTemplate.getDataSource(), 1, 50);
+        java.sql.Connection first = limited.getConnection();
+        assertThat(limited.getAvailablePermits()).isZero();
+        assertThatThrownBy(limited::getConnection).isInstanceOf(java.sql.SQLTransientConnectionException.class);
+
+        first.close();
+        first.close();
+        assertThat(limited.getAvailablePermits()).isEqualTo(1);
+        try (java.sql.Connection second = limited.getConnection()) {
+            assertThat(second.isValid(1)).isTrue();
+        }
+        assertThat(limited.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void versionedRoutesReachControllersInOnePassThroughTheFilters() throws Exception {
+        Map<String, AtomicInteger> invocations = new ConcurrentHashMap<>();
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+            .addFilters(
+                counting("requestId", requestIdFilter, invocations),
+                counting("rateLimit", rateLimitFilter, invocations),
+                counting("concurrencyLimit", concurrencyLimitFilter, invocations),
+                counting("security", springSecurityFilterChain, invocations),
+                counting("jwt", jwtRequestFilter, invocations))
+            .build();
+
+        for (String path : List.of("/api/v1/restaurants", "/api/restaurants", "/api/v1/auth/me")) {
+            invocations.clear();
+            MockHttpServletResponse response = mockMvc.perform(MockMvcRequestBuilders.get(path)).andReturn().getResponse();
+            assertThat(response.getForwardedUrl()).as(path).isNull();
+            assertThat(response.getStatus()).as(path).isNotEqualTo(404);
+            assertThat(invocations).as(path).hasSize(5)
+                .allSatisfy((filter, count) -> assertThat(count).as(path + " " + filter).hasValue(1));
+        }
+        assertThat(mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/restaurants")).andReturn().getResponse().getStatus())
+            .isEqualTo(200);
+        // Security rules written for legacy paths cover their versioned spellings.
+        assertThat(mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/admin/orders")).andReturn().getResponse().getStatus())
+            .isIn(401, 403);
+    }
+
+    @Test
+    void requestsGetSortableIdsAndAServerTimingBreakdown() throws Exception {
+        saveRestaurant("Timing Owner", "timing-owner@example.com", "Timing Kitchen");
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+            .addFilters(requestIdFilter, springSecurityFilterChain, jwtRequestFilter)
+            .build();
+
+        MockHttpServletResponse first = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/restaurants"))
+            .andReturn().getResponse();
+        MockHttpServletResponse second = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/restaurants"))
+            .andReturn().getResponse();
+
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(first.getHeader("X-Request-Id")).matches("[0-9A-HJKMNP-TV-Z]{26}");
+        assertThat(second.getHeader("X-Request-Id")).isGreaterThan(first.getHeader("X-Request-Id"));
+        assertThat(first.getHeader("Server-Timing"))
+            .matches("auth;dur=\\d+\\.\\d, app;dur=\\d+\\.\\d, db;dur=\\d+\\.\\d;desc=\"[1-9]\\d* statements\", total;dur=\\d+\\.\\d");
+        // A caller-supplied id is kept so traces can be joined across services.
+        assertThat(mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/restaurants").header("X-Request-Id", "upstream-1"))
+            .andReturn().getResponse().getHeader("X-Request-Id")).isEqualTo("upstream-1");
+    }
+
+
+    @Test
+    void businessCountersSkipRolledBackOrdersButCountStockOuts() {
+        User customer = saveUser("counter_buyer", "counter-buyer@example.com", "CUSTOMER");
+        Restaurant restaurant = saveRestaurant("Counter Owner", "counter-owner@example.com", "Counter Cafe");
+        MenuItem lastOne = saveMenuItem(restaurant, "Last Slice", 4.00, true, 1);
+        double placedBefore = meterRegistry.counter("foodly.orders.placed").count();
+        double refusedBefore = meterRegistry.counter("foodly.menu.stockouts", "reason", "insufficient_quantity").count();
+
+        assertThatThrownBy(() -> orderController.placeOrder(Map.of(
+            "items", List.of(Map.of("menu_item_id", lastOne.getId(), "qty", 2))), principal(customer)))
+            .isInstanceOf(IllegalArgumentException.class);
+        orderController.placeOrder(Map.of(
+            "items", List.of(Map.of("menu_item_id", lastOne.getId(), "qty", 1))), principal(customer));
+
+        assertThat(meterRegistry.counter("foodly.menu.stockouts", "reason", "insufficient_quantity").count())
+            .isEqualTo(refusedBefore + 1);
+        // The test transaction never commits, so neither the order nor the sell-out is reported.
+        assertThat(meterRegistry.counter("foodly.orders.placed").count()).isEqualTo(placedBefore);
+        assertThat(meterRegistry.counter("foodly.menu.stockouts", "reason", "sold_out").count()).isZero();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void everyListEndpointRunsAConstantNumberOfQueriesAsDataGrows() throws Exception {
+        // Committed data, so bulkhead threads see it and nothing is served from a shared persistence context.
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+            .addFilters(requestIdFilter, springSecurityFilterChain, jwtRequestFilter)
+            .build();
+        List<Long> users = new ArrayList<>();
+        List<Long> restaurants = new ArrayList<>();
+        try {
+            Map<String, Integer> small = queryCounts(mockMvc, seedQueryWorld("qsmall", 2, users, restaurants));
+            Map<String, Integer> large = queryCounts(mockMvc, seedQueryWorld("qlarge", 6, users, restaurants));
+            assertThat(large).isEqualTo(small);
+        } finally {
+            deleteQueryWorld(users, restaurants);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void catalogResponsesRevalidateFromContentVersionsWithoutQueries() throws Exception {
+        // Versions are bumped in the writing transaction and only applied once it commits.
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+            .addFilters(requestIdFilter, springSecurityFilterChain, jwtRequestFilter)
+            .build();
+        List<Long> users = new ArrayList<>();
+        List<Long> restaurants = new ArrayList<>();
+        try {
+            User owner = saveUser("etag_owner", "etag-owner@example.com", "RESTAURANT");
+            User customer = saveUser("etag_buyer", "etag-buyer@example.com", "CUSTOMER");
+            User admin = saveUser("etag_admin", "etag-admin@example.com", "ADMIN");
+            users.addAll(List.of(owner.getId(), customer.getId(), admin.getId()));
+            Restaurant restaurant = saveRestaurant(owner, "Etag Bistro");
+            restaurants.add(restaurant.getId());
+            MenuItem dish = saveMenuItem(restaurant, "Versioned Soup", 6.0, true, 5);
+            String pagePath = "/api/v1/restaurants/slug/etag-bistro";
+            String menuPath = "/api/v1/restaurants/" + restaurant.getId() + "/menu/customer";
+
+            MockHttpServletResponse page = mockMvc.perform(MockMvcRequestBuilders.get(pagePath)).andReturn().getResponse();
+            String pageTag = page.getHeader(HttpHeaders.ETAG);
+            assertThat(page.getStatus()).isEqualTo(200);
+            assertThat(pageTag).startsWith("\"r" + restaurant.getId() + "-");
+            assertThat(page.getHeader(HttpHeaders.CACHE_CONTROL)).contains("public", "max-age=30");
+            String menuTag = mockMvc.perform(MockMvcRequestBuilders.get(menuPath)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+            String offersTag = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/offers")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+            for (String[] revalidation : List.of(new String[]{pagePath, pageTag}, new String[]{menuPath, menuTag},
+                    new String[]{"/api/v1/offers", offersTag})) {
+                MvcResult notModified = mockMvc.perform(MockMvcRequestBuilders.get(revalidation[0])
+                    .header(HttpHeaders.IF_NONE_MATCH, "\"stale\", " + revalidation[1])).andReturn();
+                assertThat(notModified.getResponse().getStatus()).as(revalidation[0]).isEqualTo(304);
+                assertThat(notModified.getResponse().getContentAsString()).isEmpty();
+                assertThat(notModified.getResponse().getHeader(HttpHeaders.CACHE_CONTROL)).contains("public");
+                assertThat(RequestTrace.of(notModified.getRequest()).getQueryCount()).as(revalidation[0]).isZero();
+            }
+
+            // Selling stock changes the menu, so both restaurant tags move on.
+            orderController.placeOrder(Map.of(
+                "items", List.of(Map.of("menu_item_id", dish.getId(), "qty", 2))), principal(customer));
+            MockHttpServletResponse menu = mockMvc.perform(MockMvcRequestBuilders.get(menuPath)
+                .header(HttpHeaders.IF_NONE_MATCH, menuTag)).andReturn().getResponse();
+            assertThat(menu.getStatus()).isEqualTo(200);
+            assertThat(menu.getHeader(HttpHeaders.ETAG)).isNotEqualTo(menuTag);
+            assertThat(menu.getContentAsString()).contains("\"quantityAvailable\":3");
+            assertThat(mockMvc.perform(MockMvcRequestBuilders.get(pagePath).header(HttpHeaders.IF_NONE_MATCH, pageTag))
+                .andReturn().getResponse().getStatus()).isEqualTo(200);
+
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/offers")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(admin, null))
+                .contentType("application/json")
+                .content("{\"title\":\"Etag Deal\",\"code\":\"ETAG10\",\"validUntil\":\"2099-01-01T00:00:00\"}"));
+            MockHttpServletResponse offers = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/offers")
+                .header(HttpHeaders.IF_NONE_MATCH, offersTag)).andReturn().getResponse();
+            assertThat(offers.getStatus()).isEqualTo(200);
+            assertThat(offers.getContentAsString()).contains("ETAG10");
+        } finally {
+            jdbcTemplate.update("DELETE FROM offers WHERE code = 'ETAG10'");
+            deleteQueryWorld(users, restaurants);
+        }
+    }
+
+    @Test
+    void customerMenusAreServedFromPreSerializedBytes() throws Exception {
+        Restaurant restaurant = saveRestaurant("Bytes Owner", "bytes-owner@example.com", "Bytes Kitchen");
+        for (int i = 0; i < 20; i++) {
+            saveMenuItem(restaurant, "Cached Dish " + i, 5.0 + i, false, 0);
+        }
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+            .addFilters(requestIdFilter, springSecurityFilterChain, jwtRequestFilter)
+            .build();
+        String menuPath = "/api/v1/restaurants/" + restaurant.getId() + "/menu/customer";
+
+        MvcResult plain = mockMvc.perform(MockMvcRequestBuilders.get(menuPath)).andReturn();
+        MvcResult gzipped = mockMvc.perform(MockMvcRequestBuilders.get(menuPath)
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br")).andReturn();
+
+        assertThat(RequestTrace.of(gzipped.getRequest()).getQueryCount()).isZero();
+        assertThat(gzipped.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzipped.getResponse().getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+        String plainTag = plain.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(gzipped.getResponse().getHeader(HttpHeaders.ETAG))
+            .isEqualTo(plainTag.substring(0, plainTag.length() - 1) + "-gzip\"");
+        byte[] inflated = new java.util.zip.GZIPInputStream(
+            new java.io.ByteArrayInputStream(gzipped.getResponse().getContentAsByteArray())).readAllBytes();
+        assertThat(inflated).isEqualTo(plain.getResponse().getContentAsByteArray());
+        assertThat(objectMapper.readTree(inflated)).hasSize(20);
+        assertThat(mockMvc.perform(MockMvcRequestBuilders.get(menuPath)
+                .header(HttpHeaders.IF_NONE_MATCH, gzipped.getResponse().getHeader(HttpHeaders.ETAG)))
+            .andReturn().getResponse().getStatus()).isEqualTo(304);
+        // Hits hand out the same immutable arrays rather than re-serializing.
+        assertThat(menuPayloadCache.customerMenu(restaurant.getId()).json())
+            .isSameAs(menuPayloadCache.customerMenu(restaurant.getId()).json());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void restaurantPageFansOutItsReadsOnThePageBulkhead() throws Exception {
+        // Committed data: the page reads run on bulkhead threads in their own transactions.
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+            .addFilters(requestIdFilter, springSecurityFilterChain, jwtRequestFilter)
+            .build();
+        List<Long> users = new ArrayList<>();
+        List<Long> restaurants = new ArrayList<>();
+        try {
+            User owner = saveUser("page_owner", "page-owner@example.com", "RESTAURANT");
+            User buyer = saveUser("page_buyer", "page-buyer@example.com", "CUSTOMER");
+            users.addAll(List.of(owner.getId(), buyer.getId()));
+            Restaurant restaurant = saveRestaurant(owner, "Page House");
+            restaurants.add(restaurant.getId());
+            MenuItem curry = saveMenuItem(restaurant, "Page Curry", 8.0, false, 0);
+            curry.setCategory("Mains");
+            menuItemRepository.save(curry);
+            MenuItem naan = saveMenuItem(restaurant, "Page Naan", 2.0, false, 0);
+            naan.setCategory("Breads");
+            menuItemRepository.save(naan);
+            MenuItem hidden = saveMenuItem(restaurant, "Page Special", 12.0, false, 0);
+            hidden.setIsAvailable(false);
+            menuItemRepository.save(hidden);
+            saveMenuItem(restaurant, "Page Water", 1.0, false, 0);
+            for (int rating : new int[]{5, 4, 4}) {
+                Review review = new Review();
+                review.setCustomer(buyer);
+                review.setRestaurantId(restaurant.getId());
+                review.setRating(rating);
+                review.setText("Rated " + rating);
+                reviewRepository.save(review);
+            }
+            for (Long offerRestaurantId : new Long[]{restaurant.getId(), null, restaurant.getId() + 1000}) {
+                Offer offer = new Offer();
+                offer.setTitle("Page offer " + offerRestaurantId);
+                offer.setCode("PAGE" + (offerRestaurantId == null ? "ALL" : offerRestaurantId));
+                offer.setRestaurantId(offerRestaurantId);
+                offer.setValidUntil(java.time.LocalDateTime.now().plusDays(1));
+                offer.setActive(true);
+                offerRepository.save(offer);
+            }
+            long pageReadsBefore = meterRegistry.timer("foodly.bulkhead.queue.wait", "bulkhead", Bulkheads.PAGE).count();
+
+            MvcResult started = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/restaurants/slug/page-house/page")).andReturn();
+            started.getAsyncResult(5_000);
+            MockHttpServletResponse response = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(started)).andReturn().getResponse();
+
+            assertThat(response.getStatus()).isEqualTo(200);
+            com.fasterxml.jackson.databind.JsonNode page = objectMapper.readTree(response.getContentAsString());
+            assertThat(page.get("restaurant").get("slug").asText()).isEqualTo("page-house");
+            assertThat(page.get("menu").fieldNames()).toIterable().containsExactly("Mains", "Breads", "Other");
+            assertThat(page.get("menu").get("Other").get(0).get("name").asText()).isEqualTo("Page Water");
+            assertThat(page.get("rating").get("count").asLong()).isEqualTo(3);
+            assertThat(page.get("rating").get("average").asDouble()).isCloseTo(13.0 / 3, org.assertj.core.data.Offset.offset(1e-9));
+            assertThat(page.get("rating").get("distribution").get("4").asLong()).isEqualTo(2);
+            assertThat(page.get("recentReviews")).hasSize(3);
+            assertThat(page.get("offers").findValuesAsText("code"))
+                .contains("PAGE" + restaurant.getId(), "PAGEALL")
+                .doesNotContain("PAGE" + (restaurant.getId() + 1000));
+            assertThat(meterRegistry.timer("foodly.bulkhead.queue.wait", "bulkhead", Bulkheads.PAGE).count())
+                .isEqualTo(pageReadsBefore + 4);
+            assertThat(mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/restaurants/slug/no-such-place/page"))
+                .andReturn().getResponse().getStatus()).isEqualTo(404);
+        } finally {
+            jdbcTemplate.update("DELETE FROM offers WHERE code LIKE 'PAGE%'");
+            deleteQueryWorld(users, restaurants);
+        }
+    }
+
+    @Test
+    void orderListsAreProjectedIntoRecords() throws Exception {
+        User customer = saveUser("projection_buyer", "projection-buyer@example.com", "CUSTOMER");
+        Restaurant restaurant = saveRestaurant("Projection Owner", "projection-owner@example.com", "Projection Diner");
+        MenuItem dish = saveMenuItem(restaurant, "Projected Pie", 9.0, false, 0);
+        for (int i = 0; i < 3; i++) {
+            placePersistedOrder(customer, dish, 1 + i);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+            .addFilters(requestIdFilter, springSecurityFilterChain, jwtRequestFilter)
+            .build();
+        String json = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/orders/my")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(customer, null)))
+            .andReturn().getResponse().getContentAsString();
+        com.fasterxml.jackson.databind.JsonNode orders = objectMapper.readTree(json);
+        assertThat(orders).hasSize(3);
+        com.fasterxml.jackson.databind.JsonNode first = orders.get(0);
+        assertThat(first.get("restaurantName").asText()).isEqualTo("Projection Diner");
+        assertThat(first.get("customerName").asText()).isEqualTo("projection_buyer");
+        assertThat(first.get("items").get(0).get("name").asText()).isEqualTo("Projected Pie");
+        assertThat(first.get("items").get(0).has("orderId")).isFalse();
+        assertThat(first.has("created_at")).isFalse();
+        com.fasterxml.jackson.databind.JsonNode listed = objectMapper.readTree(mockMvc.perform(
+            MockMvcRequestBuilders.get("/api/v1/restaurants")).andReturn().getResponse().getContentAsString());
+        assertThat(listed.findValues("slug")).anySatisfy(slug -> assertThat(slug.asText()).isEqualTo("projection-diner"));
+        assertThat(listed.get(0).has("isActive")).isTrue();
+        assertThat(listed.get(0).has("cuisine")).isTrue();
+    }
+
+    @Test
+    void sparseFieldsNarrowListsInTheQueryItself() throws Exception {
+        User customer = saveUser("sparse_buyer", "sparse-buyer@example.com", "CUSTOMER");
+        Restaurant restaurant = saveRestaurant("Sparse Owner", "sparse-owner@example.com", "Sparse Diner");
+        MenuItem dish = saveMenuItem(restaurant, "Sparse Soup", 6.0, false, 0);
+        for (int i = 0; i < 3; i++) {
+            placePersistedOrder(customer, dish, 1 + i);
+        }
+        User admin = saveUser("sparse_admin", "sparse-admin@example.com", "ADMIN");
+        entityManager.flush();
+        entityManager.clear();
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+            .addFilters(requestIdFilter, springSecurityFilterChain, jwtRequestFilter)
+            .build();
+        String customerToken = "Bearer " + jwtUtil.generateToken(customer, null);
+
+        MvcResult full = null;
+        for (int warm = 0; warm < 2; warm++) {
+            // The first request also loads the caller's details.
+            full = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/orders/my")
+                .header(HttpHeaders.AUTHORIZATION, customerToken)).andReturn();
+        }
+        MvcResult narrow = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/orders/my")
+            .param("fields", "id, total,status")
+            .header(HttpHeaders.AUTHORIZATION, customerToken)).andReturn();
+        com.fasterxml.jackson.databind.JsonNode orders = objectMapper.readTree(narrow.getResponse().getContentAsString());
+        assertThat(orders).hasSize(3);
+        assertThat(orders.get(0).fieldNames()).toIterable().containsExactly("id", "total", "status");
+        // No line query unless items are asked for.
+        assertThat(RequestTrace.of(narrow.getRequest()).getQueryCount())
+            .isEqualTo(RequestTrace.of(full.getRequest()).getQueryCount() - 1);
+        com.fasterxml.jackson.databind.JsonNode withItems = objectMapper.readTree(mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/v1/orders/my").param("fields", "restaurantName,items")
+                    .header(HttpHeaders.AUTHORIZATION, customerToken))
+            .andReturn().getResponse().getContentAsString());
+        assertThat(withItems.get(0).get("restaurantName").asText()).isEqualTo("Sparse Diner");
+        assertThat(withItems.get(0).get("items").get(0).get("name").asText()).isEqualTo("Sparse Soup");
+        assertThat(withItems.get(0).has("id")).isFalse();
+
+        com.fasterxml.jackson.databind.JsonNode cards = objectMapper.readTree(mockMvc.perform(
+            MockMvcRequestBuilders.get("/api/v1/restaurants").param("fields", "slug,rating"))
+            .andReturn().getResponse().getContentAsString());
+        assertThat(cards.get(0).fieldNames()).toIterable().containsExactly("slug", "rating");
+        assertThat(cards.findValuesAsText("slug")).contains("sparse-diner");
+        assertThat(cards.get(0).get("rating").asDouble()).isEqualTo(4.5);
+
+        // Admin lists run on the bulkhead and cannot see this test's rows, only their shape.
+        String adminToken = "Bearer " + jwtUtil.generateToken(admin, null);
+        MvcResult started = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/admin/restaurants")
+            .param("fields", "name,owner").header(HttpHeaders.AUTHORIZATION, adminToken)).andReturn();
+        started.getAsyncResult(5_000);
+        com.fasterxml.jackson.databind.JsonNode admins = objectMapper.readTree(mockMvc.perform(
+            MockMvcRequestBuilders.asyncDispatch(started)).andReturn().getResponse().getContentAsString());
+        assertThat(admins.isArray()).isTrue();
+        admins.forEach(node -> assertThat(node.fieldNames()).toIterable().isSubsetOf("name", "owner"));
+        assertThat(mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/admin/users").param("fields", "password")
+            .header(HttpHeaders.AUTHORIZATION, adminToken)).andReturn().getResponse().getStatus()).isEqualTo(400);
+
+        MockHttpServletResponse unknown = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/restaurants")
+            .param("fields", "id,password")).andReturn().getResponse();
+        assertThat(unknown.getStatus()).isEqualTo(400);
+        assertThat(unknown.getContentAsString()).contains("INVALID_FIELDS");
+    }
+
+
+
+
     @Test
     void reviewRequiresOrderedItemAndRejectsDuplicateReviews() {
         User buyer = saveUser("review_buyer", "review-buyer@example.com", "CUSTOMER");
@@ -420,6 +1154,124 @@ class DatabaseSecurityHardeningTests {
         return menuItemRepository.save(item);
     }
 
+    private record QueryWorld(User admin, User owner, Restaurant restaurant, User customer) {}
+
+    private record EndpointCall(String label, String path, String token) {}
+
+    /** One restaurant with {@code size} orders from distinct buyers, and a customer with {@code size} of everything. */
+    private QueryWorld seedQueryWorld(String prefix, int size, List<Long> users, List<Long> restaurants) {
+        User admin = saveUser(prefix + "_admin", prefix + "-admin@example.com", "ADMIN");
+        User owner = saveUser(prefix + "_owner", prefix + "-owner@example.com", "RESTAURANT");
+        User customer = saveUser(prefix + "_customer", prefix + "-customer@example.com", "CUSTOMER");
+        users.addAll(List.of(admin.getId(), owner.getId(), customer.getId()));
+        Restaurant restaurant = saveRestaurant(owner, prefix + " Main");
+        restaurants.add(restaurant.getId());
+        for (int i = 0; i < size; i++) {
+            User branchOwner = saveUser(prefix + "_branch" + i, prefix + "-branch" + i + "@example.com", "RESTAURANT");
+            User buyer = saveUser(prefix + "_buyer" + i, prefix + "-buyer" + i + "@example.com", "CUSTOMER");
+            users.addAll(List.of(branchOwner.getId(), buyer.getId()));
+            Restaurant branch = saveRestaurant(branchOwner, prefix + " Branch " + i);
+            restaurants.add(branch.getId());
+
+            MenuItem dish = saveMenuItem(restaurant, "Dish " + i, 5.0 + i, false, 0);
+            MenuItem side = saveMenuItem(branch, "Side " + i, 3.0, false, 0);
+            Order order = placePersistedOrder(buyer, dish, 1);
+            saveChatMessage(order, "customer", "Is it ready? " + i);
+            Review review = new Review();
+            review.setCustomer(buyer);
+            review.setOrderId(order.getId());
+            review.setRestaurantId(restaurant.getId());
+            review.setMenuItemId(dish.getId());
+            review.setMenuItemName(dish.getName());
+            review.setRating(4);
+            review.setText("Good " + i);
+            reviewRepository.save(review);
+
+            Order own = placePersistedOrder(customer, side, 1);
+            saveChatMessage(own, "restaurant", "On its way " + i);
+            Cart cart = new Cart();
+            cart.setCustomer(customer);
+            cart.setMenuItem(side);
+            cart.setQuantity(1);
+            cartRepository.save(cart);
+            Wishlist favorite = new Wishlist();
+            favorite.setCustomer(customer);
+            favorite.setType("DISH");
+            favorite.setName(side.getName());
+            favorite.setRestaurant(branch.getName());
+            favorite.setRestaurantId(branch.getId());
+            favorite.setMenuItemId(side.getId());
+            wishlistRepository.save(favorite);
+        }
+        return new QueryWorld(admin, owner, restaurant, customer);
+    }
+
+    private Map<String, Integer> queryCounts(MockMvc mockMvc, QueryWorld world) throws Exception {
+        Long restaurantId = world.restaurant().getId();
+        Long customerId = world.customer().getId();
+        String customer = jwtUtil.generateToken(world.customer(), null);
+        String owner = jwtUtil.generateToken(world.owner(), restaurantId);
+        String admin = jwtUtil.generateToken(world.admin(), null);
+        List<EndpointCall> calls = List.of(
+            new EndpointCall("restaurants", "/api/restaurants", null),
+            new EndpointCall("restaurant", "/api/restaurants/" + restaurantId, null),
+            new EndpointCall("restaurant page", "/api/restaurants/slug/" + world.restaurant().getSlug() + "/page", null),
+            new EndpointCall("customer menu", "/api/restaurants/" + restaurantId + "/menu/customer", null),
+            new EndpointCall("restaurant reviews", "/api/restaurants/" + restaurantId + "/reviews", null),
+            new EndpointCall("reviews by restaurant", "/api/reviews/restaurant/" + restaurantId, null),
+            new EndpointCall("offers", "/api/offers", null),
+            new EndpointCall("my orders", "/api/orders/my", customer),
+            new EndpointCall("cart", "/api/cart", customer),
+            new EndpointCall("favorites", "/api/customers/" + customerId + "/favorites", customer),
+            new EndpointCall("wishlist", "/api/customers/" + customerId + "/wishlist", customer),
+            new EndpointCall("my reviews", "/api/reviews/my", customer),
+            new EndpointCall("unread messages", "/api/support/messages/unread-count", customer),
+            new EndpointCall("notifications", "/api/support/messages/notifications", customer),
+            new EndpointCall("owner menu", "/api/restaurants/" + restaurantId + "/menu", owner),
+            new EndpointCall("owner orders", "/api/restaurants/" + restaurantId + "/orders", owner),
+            new EndpointCall("restaurant orders", "/api/orders/restaurant/" + restaurantId, owner),
+            new EndpointCall("owner chat", "/api/support/messages/restaurant/" + restaurantId, owner),
+            new EndpointCall("analytics", "/api/restaurants/" + restaurantId + "/analytics", owner),
+            new EndpointCall("admin users", "/api/admin/users", admin),
+            new EndpointCall("admin restaurants", "/api/admin/restaurants", admin),
+            new EndpointCall("admin orders", "/api/admin/orders", admin),
+            new EndpointCall("admin reviews", "/api/admin/reviews", admin));
+
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (EndpointCall call : calls) {
+            var request = MockMvcRequestBuilders.get("/api/v1" + call.path().substring("/api".length()));
+            if (call.token() != null) {
+                request.header(HttpHeaders.AUTHORIZATION, "Bearer " + call.token());
+            }
+            MvcResult result = mockMvc.perform(request).andReturn();
+            if (result.getRequest().isAsyncStarted()) {
+                result.getAsyncResult(5_000);
+                result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andReturn();
+            }
+            assertThat(result.getResponse().getStatus()).as(call.label()).isEqualTo(200);
+            counts.put(call.label(), RequestTrace.of(result.getRequest()).getQueryCount());
+        }
+        return counts;
+    }
+
+    private void deleteQueryWorld(List<Long> users, List<Long> restaurants) {
+        if (users.isEmpty()) {
+            return;
+        }
+        String userIds = users.stream().map(String::valueOf).collect(java.util.stream.Collectors.joining(","));
+        String restaurantIds = restaurants.isEmpty() ? "NULL"
+            : restaurants.stream().map(String::valueOf).collect(java.util.stream.Collectors.joining(","));
+        jdbcTemplate.update("DELETE FROM chat_messages WHERE customer_id IN (" + userIds + ")");
+        jdbcTemplate.update("DELETE FROM reviews WHERE customer_id IN (" + userIds + ")");
+        jdbcTemplate.update("DELETE FROM cart WHERE customer_id IN (" + userIds + ")");
+        jdbcTemplate.update("DELETE FROM wishlist WHERE customer_id IN (" + userIds + ")");
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (SELECT id FROM orders WHERE user_id IN (" + userIds + "))");
+        jdbcTemplate.update("DELETE FROM orders WHERE user_id IN (" + userIds + ")");
+        jdbcTemplate.update("DELETE FROM menu_items WHERE restaurant_id IN (" + restaurantIds + ")");
+        jdbcTemplate.update("DELETE FROM restaurants WHERE id IN (" + restaurantIds + ")");
+        jdbcTemplate.update("DELETE FROM users WHERE id IN (" + userIds + ")");
+    }
+
     private Order placePersistedOrder(User customer, MenuItem item, int quantity) {
         Order order = new Order();
         order.setUserId(customer.getId());
@@ -437,6 +1289,57 @@ class DatabaseSecurityHardeningTests {
         return orderRepository.save(order);
     }
 
+    private static ChatMessage chatRequest(Order order, String text, String clientMessageId) {
+        ChatMessage request = new ChatMessage();
+        request.setOrderId(order.getId());
+        request.setMessage(text);
+        request.setClientMessageId(clientMessageId);
+        return request;
+    }
+
+    private ChatMessage saveChatMessage(Order order, String sender, String text) {
+        ChatMessage message = new ChatMessage();
+        message.setOrderId(order.getId());
+        message.setCustomerId(order.getUserId());
+        message.setRestaurantId(order.getRestaurantId());
+        message.setSender(sender);
+        message.setMessage(text);
+        message.setIsRead(false);
+        return chatMessageRepository.save(message);
+    }
+
+    private Authentication authenticateWithFilter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/support/messages/unread-count");
+        request.addHeader("Authorization", "Bearer " + token);
+        try {
+            jwtRequestFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static String cookieValue(List<String> setCookieHeaders, String name) {
+        return setCookieHeaders.stream()
+            .filter(cookie -> cookie.startsWith(name + "="))
+            .map(cookie -> cookie.substring(name.length() + 1, cookie.indexOf(';')))
+            .findFirst()
+            .orElseThrow();
+    }
+
+    private static Filter counting(String name, Filter filter, Map<String, AtomicInteger> invocations) {
+        return (request, response, chain) -> {
+            invocations.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+            filter.doFilter(request, response, chain);
+        };
+    }
+
+    private static MockHttpServletRequest withRefreshCookie(String refreshToken) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/refresh");
+        request.setCookies(new Cookie("FOODLY_REFRESH_TOKEN", refreshToken));
+        return request;
+    }
+
     private UserDetails principal(User user) {
         return org.springframework.security.core.userdetails.User
             .withUsername(user.getUsername())
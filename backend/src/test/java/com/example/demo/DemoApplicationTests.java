@@ -3,7 +3,10 @@ package com.example.demo;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// A real port, so Tomcat initialises the filters the way it does in production. Its own
+// database, because schema.sql cannot run twice against the one the other tests share.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "spring.datasource.url=jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
 class DemoApplicationTests {
 
 	@Test
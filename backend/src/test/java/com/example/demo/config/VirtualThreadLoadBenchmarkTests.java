@@ -0,0 +1,160 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and latency of a request that spends 20 ms in a JDBC call, served
+ * by Tomcat's platform threads and by virtual threads
+ * ({@code spring.threads.virtual.enabled}), with 400 clients looping for 10 s.
+ * The load generator runs in the same JVM, so this only compares the two modes
+ * on one machine. Run with {@code mvn test -Pbenchmark}; add
+ * {@code -Dspring.datasource.hikari.maximum-pool-size=400} to take the pool out
+ * of the picture. Each mode gets its own context and H2 database.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"app.rate-limit.enabled=false", "app.concurrency-limit.enabled=false"})
+@Import(VirtualThreadLoadBenchmarkTests.SlowQueryController.class)
+public class VirtualThreadLoadBenchmarkTests {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadLoadBenchmarkTests.class);
+    private static final String PATH = "/actuator/benchmark/slow-query";
+    private static final int CLIENTS = 400;
+    private static final long DURATION_MS = 10_000;
+    private static final int WARMUP_CLIENTS = 50;
+    private static final long WARMUP_MS = 3_000;
+
+    @Nested
+    @TestPropertySource(properties = {"spring.threads.virtual.enabled=false",
+            "spring.datasource.url=jdbc:h2:mem:platform-threads;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"})
+    class PlatformThreads {
+        @LocalServerPort
+        private int port;
+        @Autowired
+        private DataSource dataSource;
+
+        @Test
+        void slowQueryUnderLoad() throws Exception {
+            load("platform", port, dataSource);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = {"spring.threads.virtual.enabled=true",
+            "spring.datasource.url=jdbc:h2:mem:virtual-threads;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"})
+    class VirtualThreads {
+        @LocalServerPort
+        private int port;
+        @Autowired
+        private DataSource dataSource;
+
+        @Test
+        void slowQueryUnderLoad() throws Exception {
+            load("virtual", port, dataSource);
+        }
+    }
+
+    private static void load(String mode, int port, DataSource dataSource) throws Exception {
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + PATH)).build();
+        run(client, request, WARMUP_CLIENTS, WARMUP_MS);
+        Result result = run(client, request, CLIENTS, DURATION_MS);
+        log.info("{} threads ({} of {}, handler virtual: {}): {} clients, {} rps, p50 {} ms, p99 {} ms, {} errors",
+                mode, dataSource.getClass().getSimpleName(), poolSize(dataSource), result.servedByVirtualThread(), CLIENTS,
+                result.completed() * 1000 / DURATION_MS, result.percentileMillis(50), result.percentileMillis(99),
+                result.errors());
+    }
+
+    private static int poolSize(DataSource dataSource) throws Exception {
+        return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+    }
+
+    private static Result run(HttpClient client, HttpRequest request, int clients, long durationMs) {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger errors = new AtomicInteger();
+        AtomicLong virtualResponses = new AtomicLong();
+        long deadline = System.currentTimeMillis() + durationMs;
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                clientThreads.execute(() -> {
+                    while (System.currentTimeMillis() < deadline) {
+                        long startedAt = System.nanoTime();
+                        try {
+                            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            } else if (Boolean.parseBoolean(response.body())) {
+                                virtualResponses.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies.add(System.nanoTime() - startedAt);
+                    }
+                });
+            }
+        }
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result(sorted, errors.get(), virtualResponses.get() > 0);
+    }
+
+    private record Result(List<Long> sortedNanos, int errors, boolean servedByVirtualThread) {
+        long completed() {
+            return sortedNanos.size();
+        }
+
+        long percentileMillis(int percentile) {
+            return sortedNanos.isEmpty() ? 0 : sortedNanos.get((sortedNanos.size() - 1) * percentile / 100) / 1_000_000;
+        }
+    }
+
+    /** Stands in for a slow query: holds a connection for 20 ms inside the database. */
+    @RestController
+    static class SlowQueryController {
+        private final JdbcTemplate jdbcTemplate;
+
+        SlowQueryController(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+            jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS BENCHMARK_SLEEP FOR \""
+                    + VirtualThreadLoadBenchmarkTests.class.getName() + ".sleep\"");
+        }
+
+        @GetMapping(PATH)
+        public boolean slowQuery() {
+            jdbcTemplate.queryForObject("SELECT BENCHMARK_SLEEP(20)", Integer.class);
+            return Thread.currentThread().isVirtual();
+        }
+    }
+
+    // Called by H2 through the alias above, which is why this class is public.
+    public static int sleep(int millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return millis;
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.demo.dto;
+
+import com.example.demo.config.JwtRequestFilter;
+import com.example.demo.model.MenuItem;
+import com.example.demo.model.Order;
+import com.example.demo.model.OrderItem;
+import com.example.demo.model.Restaurant;
+import com.example.demo.model.User;
+import com.example.demo.repository.CustomerRepository;
+import com.example.demo.repository.MenuItemRepository;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.RestaurantRepository;
+import com.example.demo.service.JwtUtil;
+import com.example.demo.web.RequestIdFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bytes allocated and wall time per request for the projected list endpoints,
+ * through the filters and JSON serialization. Not part of the normal build:
+ * allocation counts move with the JIT and GC, so this only reports them. Run
+ * with {@code mvn test -Pbenchmark} and compare the logged numbers across commits.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Transactional
+class ProjectionAllocationBenchmarkTests {
+    private static final Logger log = LoggerFactory.getLogger(ProjectionAllocationBenchmarkTests.class);
+    private static final int ORDERS = 200;
+    private static final int WARMUP = 20;
+    private static final int RUNS = 50;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private JwtRequestFilter jwtRequestFilter;
+    @Autowired
+    private RequestIdFilter requestIdFilter;
+    @Autowired
+    @Qualifier("springSecurityFilterChain")
+    private Filter springSecurityFilterChain;
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void listEndpoints() throws Exception {
+        User customer = saveUser("bench_buyer", "bench-buyer@example.com", "CUSTOMER");
+        Restaurant restaurant = saveRestaurant(saveUser("bench_owner", "bench-owner@example.com", "RESTAURANT"),
+            "Bench Diner");
+        List<MenuItem> dishes = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            dishes.add(saveMenuItem(restaurant, "Dish " + i, 5.0 + i));
+        }
+        for (int i = 0; i < ORDERS; i++) {
+            placeOrder(customer, dishes.get(i % dishes.size()), 1 + i % 3);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+            .addFilters(requestIdFilter, springSecurityFilterChain, jwtRequestFilter)
+            .build();
+        String bearer = "Bearer " + jwtUtil.generateToken(customer, null);
+        measure(mockMvc, "order list of " + ORDERS,
+            MockMvcRequestBuilders.get("/api/v1/orders/my").header(HttpHeaders.AUTHORIZATION, bearer));
+        measure(mockMvc, "restaurant list", MockMvcRequestBuilders.get("/api/v1/restaurants"));
+        measure(mockMvc, "menu of " + dishes.size(),
+            MockMvcRequestBuilders.get("/api/v1/restaurants/" + restaurant.getId() + "/menu"));
+    }
+
+    // Medians over RUNS requests on this thread, after WARMUP requests.
+    private void measure(MockMvc mockMvc, String label, RequestBuilder request) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] bytes = new long[RUNS];
+        long[] nanos = new long[RUNS];
+        for (int run = -WARMUP; run < RUNS; run++) {
+            entityManager.clear();
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long startedAt = System.nanoTime();
+            mockMvc.perform(request).andReturn();
+            if (run >= 0) {
+                nanos[run] = System.nanoTime() - startedAt;
+                bytes[run] = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            }
+        }
+        Arrays.sort(bytes);
+        Arrays.sort(nanos);
+        log.info("{}: {} KB allocated, {} us per request (median of {})",
+            label, bytes[RUNS / 2] / 1024, nanos[RUNS / 2] / 1000, RUNS);
+    }
+
+    private User saveUser(String username, String email, String role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPassword("$2a$10$abcdefghijklmnopqrstuuCJ4CkO0mxfMwrUi7Y3sq7Qo7E7oIb5a");
+        user.setRole(role);
+        user.setProvider("LOCAL");
+        user.setIsBlocked(false);
+        return customerRepository.save(user);
+    }
+
+    private Restaurant saveRestaurant(User owner, String restaurantName) {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName(restaurantName);
+        restaurant.setOwner(owner);
+        restaurant.setIsActive(true);
+        restaurant.setSlug(restaurantName.toLowerCase().replace(" ", "-"));
+        return restaurantRepository.save(restaurant);
+    }
+
+    private MenuItem saveMenuItem(Restaurant restaurant, String name, double price) {
+        MenuItem item = new MenuItem();
+        item.setRestaurant(restaurant);
+        item.setName(name);
+        item.setPrice(price);
+        item.setVeg(true);
+        item.setIsAvailable(true);
+        item.setShowQuantity(false);
+        item.setQuantityAvailable(0);
+        return menuItemRepository.save(item);
+    }
+
+    private void placeOrder(User customer, MenuItem item, int quantity) {
+        Order order = new Order();
+        order.setUserId(customer.getId());
+        order.setRestaurantId(item.getRestaurant().getId());
+        order.setStatus("New");
+        order.setTotal(item.getPrice() * quantity);
+
+        OrderItem orderItem = new OrderItem();
+        orderItem.setOrder(order);
+        orderItem.setMenuItemId(item.getId());
+        orderItem.setName(item.getName());
+        orderItem.setPrice(item.getPrice());
+        orderItem.setQuantity(quantity);
+        order.setItems(new ArrayList<>(List.of(orderItem)));
+        orderRepository.save(order);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTests {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void loadsOnceAndCountsHitsAndMisses() {
+        BoundedCache<String, String> cache = new BoundedCache<>("foodly.test.cache", 10, Duration.ofMinutes(1), registry);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("a", key -> key + loads.incrementAndGet());
+        assertThat(cache.get("a", key -> key + loads.incrementAndGet())).isEqualTo("a1");
+        // Null results are not cached, so the next lookup asks again.
+        cache.get("missing", key -> null);
+        cache.get("missing", key -> null);
+
+        assertThat(loads).hasValue(1);
+        assertThat(registry.counter("foodly.test.cache", "result", "hit").count()).isEqualTo(1);
+        assertThat(registry.counter("foodly.test.cache", "result", "miss").count()).isEqualTo(3);
+        assertThat(registry.get("foodly.test.cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void entriesExpireAtTheShorterOfTheirOwnAndTheCacheTtl() throws InterruptedException {
+        BoundedCache<String, String> cache = new BoundedCache<>("foodly.test.cache", 10, Duration.ofMinutes(1), registry);
+
+        cache.put("short", "value", Duration.ofMillis(20));
+        cache.put("long", "value", Duration.ofDays(1));
+        cache.put("expired", "value", Duration.ofSeconds(-1));
+        Thread.sleep(50);
+
+        assertThat(cache.getIfPresent("short")).isNull();
+        assertThat(cache.getIfPresent("long")).isEqualTo("value");
+        assertThat(cache.getIfPresent("expired")).isNull();
+    }
+
+    @Test
+    void aFullCacheDropsExpiredEntriesBeforeLiveOnes() throws InterruptedException {
+        BoundedCache<Integer, String> cache = new BoundedCache<>("foodly.test.cache", 10, Duration.ofMinutes(1), registry);
+        for (int i = 0; i < 5; i++) {
+            cache.put(i, "stale", Duration.ofMillis(10));
+        }
+        for (int i = 5; i < 10; i++) {
+            cache.put(i, "live");
+        }
+        Thread.sleep(30);
+
+        cache.put(10, "new");
+        assertThat(cache.size()).isEqualTo(6);
+        assertThat(registry.counter("foodly.test.cache.evictions").count()).isZero();
+
+        for (int i = 11; i < 20; i++) {
+            cache.put(i, "new");
+        }
+        // Once only live entries are left, a tenth of the bound (one here) makes room for each of 15..19.
+        assertThat(cache.size()).isEqualTo(10);
+        assertThat(registry.counter("foodly.test.cache.evictions").count()).isEqualTo(5);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.ApiException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class BulkheadsTests {
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void heavyReadsRunOffTheRequestThreadAndAreRejectedWhenFull() throws Exception {
+        Bulkheads isolated = new Bulkheads(transactionManager, new SimpleMeterRegistry(), new MockEnvironment()
+            .withProperty("app.bulkhead.analytics.threads", "1")
+            .withProperty("app.bulkhead.analytics.queue-capacity", "1"));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = isolated.submit(Bulkheads.ANALYTICS, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Thread.currentThread().getName();
+        });
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Boolean> queued = isolated.submit(Bulkheads.ANALYTICS,
+            TransactionSynchronizationManager::isCurrentTransactionReadOnly);
+
+        assertThatThrownBy(() -> isolated.submit(Bulkheads.ANALYTICS, () -> "rejected"))
+            .isInstanceOfSatisfying(ApiException.class, e -> {
+                assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(1));
+            });
+        // A saturated analytics bulkhead leaves the others untouched.
+        assertThat(isolated.submit(Bulkheads.ADMIN, () -> "admin").get(10, TimeUnit.SECONDS)).isEqualTo("admin");
+
+        release.countDown();
+        assertThat(running.get(10, TimeUnit.SECONDS)).startsWith("bulkhead-analytics-");
+        assertThat(queued.get(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void errorsInTheWorkStillCompleteTheFuture() {
+        Bulkheads isolated = new Bulkheads(transactionManager, new SimpleMeterRegistry(), new MockEnvironment());
+
+        CompletableFuture<Object> failed = isolated.submit(Bulkheads.ADMIN, () -> {
+            throw new StackOverflowError("too deep");
+        });
+
+        assertThatThrownBy(() -> failed.get(10, TimeUnit.SECONDS))
+            .hasCauseInstanceOf(StackOverflowError.class)
+            .hasRootCauseMessage("too deep");
+        // The pool replaces the worker the error took down.
+        assertThat(isolated.submit(Bulkheads.ADMIN, () -> "next").join()).isEqualTo("next");
+    }
+}
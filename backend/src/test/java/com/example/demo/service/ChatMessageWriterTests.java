@@ -0,0 +1,266 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.ApiException;
+import com.example.demo.model.ChatMessage;
+import com.example.demo.repository.ChatMessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Write-behind is off in the test profile, so these tests start their own
+ * writers against the test database. Rows are committed by the lane threads
+ * and removed after each test.
+ */
+@SpringBootTest
+class ChatMessageWriterTests {
+    private static final long ORDER_BASE = 9_100_000L;
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ChatMessageRepository chatRepo;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<ChatMessageWriter> writers = new ArrayList<>();
+
+    @AfterEach
+    void stopWritersAndDeleteRows() throws InterruptedException {
+        for (ChatMessageWriter writer : writers) {
+            writer.shutdown();
+        }
+        jdbcTemplate.update("DELETE FROM chat_messages WHERE order_id >= ?", ORDER_BASE);
+    }
+
+    @Test
+    void messagesQueuedDuringAFlushGoOutAsOneBatchInAcceptedOrder() throws Exception {
+        ScriptedJdbcTemplate jdbc = new ScriptedJdbcTemplate(dataSource);
+        ChatMessageWriter writer = writer(jdbc, 1, 100, 100);
+        jdbc.gate = new CountDownLatch(1);
+
+        writer.submit(message(ORDER_BASE, "a-0"));
+        awaitEntered(jdbc, 1);
+        // Two conversations share the lane while its first flush is held.
+        for (int i = 1; i <= 10; i++) {
+            writer.submit(message(i % 2 == 0 ? ORDER_BASE : ORDER_BASE + 1, (i % 2 == 0 ? "a-" : "b-") + i));
+        }
+        jdbc.gate.countDown();
+
+        assertThat(awaitTexts(ORDER_BASE, 6)).containsExactly("a-0", "a-2", "a-4", "a-6", "a-8", "a-10");
+        assertThat(awaitTexts(ORDER_BASE + 1, 5)).containsExactly("b-1", "b-3", "b-5", "b-7", "b-9");
+        assertThat(jdbc.batchSizes).containsExactly(1, 10);
+    }
+
+    @Test
+    void eachConversationIsWrittenInOrderAcrossLanes() throws Exception {
+        ChatMessageWriter writer = writer(new ScriptedJdbcTemplate(dataSource), 4, 1000, 7);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            for (long order = 0; order < 3; order++) {
+                writer.submit(message(ORDER_BASE + order, "m-" + i));
+            }
+            expected.add("m-" + i);
+        }
+
+        for (long order = 0; order < 3; order++) {
+            assertThat(awaitTexts(ORDER_BASE + order, 40)).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void aFullLaneAnswersChatBusyWithoutBlocking() throws Exception {
+        ScriptedJdbcTemplate jdbc = new ScriptedJdbcTemplate(dataSource);
+        ChatMessageWriter writer = writer(jdbc, 1, 2, 100);
+        jdbc.gate = new CountDownLatch(1);
+        writer.submit(message(ORDER_BASE, "in-flight"));
+        awaitEntered(jdbc, 1);
+        writer.submit(message(ORDER_BASE, "queued-1"));
+        writer.submit(message(ORDER_BASE, "queued-2"));
+
+        assertThatThrownBy(() -> writer.submit(message(ORDER_BASE, "rejected")))
+            .isInstanceOfSatisfying(ApiException.class, e -> {
+                assertThat(e.getCode()).isEqualTo("CHAT_BUSY");
+                assertThat(e.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+            });
+        assertThat(registry.counter("foodly.chat.writer.rejected").count()).isEqualTo(1);
+
+        jdbc.gate.countDown();
+        assertThat(awaitTexts(ORDER_BASE, 3)).containsExactly("in-flight", "queued-1", "queued-2");
+    }
+
+    @Test
+    void shutdownWritesEverythingAlreadyAccepted() throws Exception {
+        ScriptedJdbcTemplate jdbc = new ScriptedJdbcTemplate(dataSource);
+        ChatMessageWriter writer = writer(jdbc, 2, 1000, 10);
+        jdbc.gate = new CountDownLatch(1);
+        for (int i = 0; i < 50; i++) {
+            writer.submit(message(ORDER_BASE + i % 5, "bye-" + i));
+        }
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            jdbc.gate.countDown();
+        }).start();
+
+        writer.shutdown();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_messages WHERE order_id >= ?",
+            Long.class, ORDER_BASE)).isEqualTo(50);
+        assertThatThrownBy(() -> writer.submit(message(ORDER_BASE, "too late")))
+            .isInstanceOfSatisfying(ApiException.class, e -> assertThat(e.getCode()).isEqualTo("CHAT_UNAVAILABLE"));
+    }
+
+    @Test
+    void transientFailuresAreRetriedUntilTheMessagesAreStored() throws Exception {
+        ScriptedJdbcTemplate jdbc = new ScriptedJdbcTemplate(dataSource);
+        ChatMessageWriter writer = writer(jdbc, 1, 100, 100);
+        // The batch, its per-row fallback and the first retry all hit a lock timeout.
+        jdbc.transientFailures.set(3);
+
+        for (int i = 0; i < 5; i++) {
+            writer.submit(message(ORDER_BASE, "retry-" + i));
+        }
+
+        assertThat(awaitTexts(ORDER_BASE, 5)).containsExactly("retry-0", "retry-1", "retry-2", "retry-3", "retry-4");
+        assertThat(registry.counter("foodly.chat.writer.retried").count()).isPositive();
+        assertThat(registry.counter("foodly.chat.writer.failed").count()).isZero();
+    }
+
+    @Test
+    void onlyRowsTheDatabaseRejectsAreDropped() throws Exception {
+        ChatMessageWriter writer = writer(new ScriptedJdbcTemplate(dataSource), 1, 100, 100);
+        ChatMessage first = message(ORDER_BASE + 1, "kept-1");
+
+        writer.submit(first);
+        // Longer than the test schema's column: a constraint violation that no retry can fix.
+        writer.submit(message(ORDER_BASE + 1, "x".repeat(300)));
+        ChatMessage retry = message(ORDER_BASE + 1, "kept-1");
+        retry.setClientMessageId(first.getClientMessageId());
+        writer.submit(retry);
+        writer.submit(message(ORDER_BASE + 1, "kept-2"));
+
+        assertThat(awaitTexts(ORDER_BASE + 1, 2)).containsExactly("kept-1", "kept-2");
+        // Counters move after the rows become visible; draining the lane settles them.
+        writer.shutdown();
+        assertThat(registry.counter("foodly.chat.writer.failed").count()).isEqualTo(1);
+        assertThat(registry.counter("foodly.chat.writer.written").count()).isEqualTo(2);
+        // The retried kept-1 and the rejected row are not messages anyone sent.
+        assertThat(registry.counter("foodly.chat.messages", "sender", "customer").count()).isEqualTo(2);
+    }
+
+    private ChatMessageWriter writer(JdbcTemplate jdbc, int lanes, int laneCapacity, int batchSize) {
+        ChatMessageWriter writer = new ChatMessageWriter(chatRepo, jdbc, transactionManager, registry,
+                new BusinessMetrics(registry));
+        ReflectionTestUtils.setField(writer, "enabled", true);
+        ReflectionTestUtils.setField(writer, "laneCount", lanes);
+        ReflectionTestUtils.setField(writer, "laneCapacity", laneCapacity);
+        ReflectionTestUtils.setField(writer, "batchSize", batchSize);
+        ReflectionTestUtils.setField(writer, "shutdownTimeoutSeconds", 5L);
+        ReflectionTestUtils.setField(writer, "retryBackoffMs", 10L);
+        ReflectionTestUtils.setField(writer, "maxRetryBackoffMs", 50L);
+        writer.start();
+        writers.add(writer);
+        return writer;
+    }
+
+    private static ChatMessage message(long orderId, String text) {
+        ChatMessage message = new ChatMessage();
+        message.setOrderId(orderId);
+        message.setCustomerId(1L);
+        message.setRestaurantId(1L);
+        message.setSender("customer");
+        message.setMessage(text);
+        message.setTimestamp(new Date());
+        message.setIsRead(false);
+        message.setClientMessageId(java.util.UUID.randomUUID().toString());
+        return message;
+    }
+
+    private static void awaitEntered(ScriptedJdbcTemplate jdbc, int batches) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (jdbc.batchSizes.size() < batches && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(jdbc.batchSizes).hasSizeGreaterThanOrEqualTo(batches);
+    }
+
+    /** Texts of the order's stored messages in insert order, once there are {@code expected} of them. */
+    private List<String> awaitTexts(long orderId, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        List<String> texts = texts(orderId);
+        while (texts.size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            texts = texts(orderId);
+        }
+        return texts;
+    }
+
+    private List<String> texts(long orderId) {
+        return jdbcTemplate.queryForList("SELECT message FROM chat_messages WHERE order_id = ? ORDER BY id",
+            String.class, orderId);
+    }
+
+    /** Records and can hold batch writes, and fails the next calls with a lock timeout on request. */
+    static final class ScriptedJdbcTemplate extends JdbcTemplate {
+        final AtomicInteger transientFailures = new AtomicInteger();
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        volatile CountDownLatch gate = new CountDownLatch(0);
+
+        ScriptedJdbcTemplate(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            batchSizes.add(batchArgs.size());
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            failIfScripted();
+            return super.batchUpdate(sql, batchArgs, batchSize, pss);
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            failIfScripted();
+            return super.update(sql, args);
+        }
+
+        private void failIfScripted() {
+            if (transientFailures.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+                throw new QueryTimeoutException("lock timeout");
+            }
+        }
+    }
+}
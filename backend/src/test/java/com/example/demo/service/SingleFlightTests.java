@@ -0,0 +1,89 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTests {
+
+    @Test
+    void concurrentColdReadsOfOneKeyShareASingleLoad() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SingleFlight singleFlight = new SingleFlight(registry, 5_000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<Object>> callers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                callers.add(CompletableFuture.supplyAsync(() -> singleFlight.load("menu", "7:3", () -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new Object();
+                }), pool));
+            }
+            // Hold the load open until everyone else has joined it.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (registry.counter("foodly.singleflight.calls", "flight", "menu", "result", "coalesced").count() < 7
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            Object first = callers.get(0).get(5, TimeUnit.SECONDS);
+            for (CompletableFuture<Object> caller : callers) {
+                assertThat(caller.get(5, TimeUnit.SECONDS)).isSameAs(first);
+            }
+            assertThat(loads).hasValue(1);
+            assertThat(registry.counter("foodly.singleflight.calls", "flight", "menu", "result", "leader").count()).isEqualTo(1);
+            assertThat(registry.counter("foodly.singleflight.calls", "flight", "menu", "result", "coalesced").count()).isEqualTo(7);
+
+            // Once it finished nothing is kept: the next call loads again.
+            singleFlight.load("menu", "7:3", () -> loads.incrementAndGet());
+            assertThat(loads).hasValue(2);
+            assertThatThrownBy(() -> singleFlight.load("slug", "missing:0", () -> {
+                throw new RuntimeException("Restaurant not found");
+            })).hasMessage("Restaurant not found");
+
+            // A waiter whose leader takes too long loads on its own.
+            SingleFlight impatient = new SingleFlight(registry, 50);
+            CountDownLatch stuck = new CountDownLatch(1);
+            CompletableFuture<Object> slow = CompletableFuture.supplyAsync(
+                () -> impatient.load("offers", "o1", () -> {
+                    try {
+                        stuck.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "slow";
+                }), pool);
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (registry.counter("foodly.singleflight.calls", "flight", "offers", "result", "leader").count() < 1
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(registry.counter("foodly.singleflight.calls", "flight", "offers", "result", "leader").count()).isEqualTo(1);
+            assertThat(impatient.load("offers", "o1", () -> "own")).isEqualTo("own");
+            assertThat(registry.counter("foodly.singleflight.calls", "flight", "offers", "result", "timeout").count()).isEqualTo(1);
+            stuck.countDown();
+            assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo("slow");
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+}
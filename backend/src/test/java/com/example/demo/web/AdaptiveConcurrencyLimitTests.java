@@ -0,0 +1,37 @@
+package com.example.demo.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTests {
+
+    @Test
+    void limitGrowsWhileLatencyIsFlatAndShrinksWhenItRises() {
+        AdaptiveConcurrencyLimit adaptive = new AdaptiveConcurrencyLimit(10, 2, 100, 0.2, 0);
+        for (int i = 0; i < 5; i++) {
+            saturate(adaptive, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        int healthy = adaptive.getLimit();
+        assertThat(healthy).isGreaterThan(10);
+        for (int i = 0; i < 5; i++) {
+            saturate(adaptive, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        assertThat(adaptive.getLimit()).isLessThan(healthy);
+    }
+
+    private static void saturate(AdaptiveConcurrencyLimit limit, long latencyNanos) {
+        // Run the limit full until it has seen a window's worth of samples.
+        for (int samples = 0; samples < 10; ) {
+            int taken = 0;
+            while (limit.tryAcquire()) {
+                taken++;
+            }
+            for (int i = 0; i < taken; i++, samples++) {
+                limit.release(latencyNanos);
+            }
+        }
+    }
+}
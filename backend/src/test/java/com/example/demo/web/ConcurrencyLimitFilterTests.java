@@ -0,0 +1,66 @@
+package com.example.demo.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitFilterTests {
+
+    @Test
+    void browseIsShedBeforeCheckoutOnceTheSharedBudgetIsUsedUp() throws Exception {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(new SimpleMeterRegistry(), true, 2, 1, 10, 3, 60_000);
+        CountDownLatch entered = new CountDownLatch(3);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            for (String path : List.of("/api/restaurants", "/api/restaurants/slug/a", "/api/support/messages")) {
+                pool.execute(() -> {
+                    try {
+                        filter.doFilter(new MockHttpServletRequest("GET", path), new MockHttpServletResponse(),
+                            (req, res) -> {
+                                entered.countDown();
+                                try {
+                                    finish.await();
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                            });
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+            assertThat(entered.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // Browse is at its own limit and the shared budget is used up; checkout still gets in.
+            MockHttpServletResponse browse = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/restaurants/7/menu"), browse, new MockFilterChain());
+            assertThat(browse.getStatus()).isEqualTo(503);
+            assertThat(browse.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+            MockHttpServletResponse analytics = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/restaurants/7/analytics"), analytics, new MockFilterChain());
+            assertThat(analytics.getStatus()).isEqualTo(503);
+            MockHttpServletResponse checkout = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("POST", "/api/v1/orders"), checkout, new MockFilterChain());
+            assertThat(checkout.getStatus()).isEqualTo(200);
+        } finally {
+            finish.countDown();
+            pool.shutdown();
+            assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+        MockHttpServletResponse afterwards = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/restaurants/7/menu"), afterwards, new MockFilterChain());
+        assertThat(afterwards.getStatus()).isEqualTo(200);
+    }
+}
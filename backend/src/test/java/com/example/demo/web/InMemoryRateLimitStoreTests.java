@@ -0,0 +1,83 @@
+package com.example.demo.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryRateLimitStoreTests {
+
+    @Test
+    void tokenBucketGrantsExactlyItsCapacityUnderContention() throws Exception {
+        RateLimitStore limiter = new InMemoryRateLimitStore(new SimpleMeterRegistry());
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(64);
+        try {
+            for (int t = 0; t < 64; t++) {
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int i = 0; i < 100; i++) {
+                        if (limiter.tryAcquire("client /api/orders", 1000, 86_400).allowed()) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            pool.shutdown();
+            assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(allowed).hasValue(1000);
+    }
+
+    @Test
+    void keysBeyondMaxBucketsShareOneOverflowBucketInsteadOfPassingFree() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        InMemoryRateLimitStore limiter = new InMemoryRateLimitStore(registry);
+        ReflectionTestUtils.setField(limiter, "maxBuckets", 2);
+        assertThat(limiter.tryAcquire("198.51.100.1 /api/orders", 3, 3600).allowed()).isTrue();
+        assertThat(limiter.tryAcquire("198.51.100.2 /api/orders", 3, 3600).allowed()).isTrue();
+
+        // Every further key is a newcomer to a full map; together they get one bucket's worth.
+        for (int i = 3; i <= 5; i++) {
+            assertThat(limiter.tryAcquire("198.51.100." + i + " /api/orders", 3, 3600).allowed()).isTrue();
+        }
+        RateLimitStore.Decision denied = limiter.tryAcquire("198.51.100.6 /api/orders", 3, 3600);
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.retryAfterNanos()).isPositive();
+        assertThat(registry.counter("foodly.ratelimit.buckets.overflow").count()).isEqualTo(4);
+
+        // Keys that already had a bucket keep their own quota.
+        assertThat(limiter.tryAcquire("198.51.100.1 /api/orders", 3, 3600).allowed()).isTrue();
+    }
+
+    @Test
+    void aFullMapIsOnlyFreedByTheScheduledSweep() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        InMemoryRateLimitStore limiter = new InMemoryRateLimitStore(registry);
+        ReflectionTestUtils.setField(limiter, "maxBuckets", 1);
+        limiter.tryAcquire("198.51.100.11 /api/orders", 1000, 1);
+        Thread.sleep(20);
+
+        // The only bucket has refilled, but a miss does not scan the map to find that out.
+        limiter.tryAcquire("198.51.100.12 /api/orders", 1000, 1);
+        assertThat(registry.counter("foodly.ratelimit.buckets.overflow").count()).isEqualTo(1);
+
+        limiter.sweep();
+        limiter.tryAcquire("198.51.100.13 /api/orders", 1000, 1);
+        assertThat(registry.counter("foodly.ratelimit.buckets.overflow").count()).isEqualTo(1);
+    }
+}
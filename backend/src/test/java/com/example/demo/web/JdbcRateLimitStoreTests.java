@@ -0,0 +1,70 @@
+package com.example.demo.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** The store reserves quota in its own transactions, so keys are unique per test. */
+@SpringBootTest
+class JdbcRateLimitStoreTests {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void oneQuotaIsSharedAcrossNodesAndIdleLeasesAreReturned() {
+        RateLimitStore nodeA = new JdbcRateLimitStore(jdbcTemplate, transactionManager, new SimpleMeterRegistry(), 100, 0, 1000);
+        JdbcRateLimitStore nodeB = new JdbcRateLimitStore(jdbcTemplate, transactionManager, new SimpleMeterRegistry(), 100, 0, 1000);
+        String key = "198.51.100.36 /api/orders";
+
+        int allowed = 0;
+        for (int i = 0; i < 30; i++) {
+            RateLimitStore node = i % 2 == 0 ? nodeA : nodeB;
+            if (node.tryAcquire(key, 40, 3600).allowed()) {
+                allowed++;
+            }
+        }
+        assertThat(allowed).isEqualTo(30);
+        // Leases of 4 (a tenth of 40): 8 reserved per node, 16 in the shared counter.
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT used FROM rate_limit_counters WHERE bucket_key = ?", Integer.class, key)).isEqualTo(32);
+
+        for (int i = 0; i < 20; i++) {
+            if (nodeA.tryAcquire(key, 40, 3600).allowed()) {
+                allowed++;
+            }
+        }
+        assertThat(allowed).isEqualTo(39);
+
+        // Node B's one unused token goes back to the shared counter and node A can spend it.
+        nodeB.returnIdleLeases();
+        assertThat(nodeA.tryAcquire(key, 40, 3600).allowed()).isTrue();
+        RateLimitStore.Decision denied = nodeA.tryAcquire(key, 40, 3600);
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.retryAfterNanos()).isPositive();
+    }
+
+    @Test
+    void keysBeyondMaxBucketsAreChargedToTheSharedCounterOnEveryRequest() {
+        JdbcRateLimitStore store = new JdbcRateLimitStore(jdbcTemplate, transactionManager, new SimpleMeterRegistry(),
+            100, 60_000, 1);
+        String leased = "198.51.100.40 /api/orders";
+        String unleased = "198.51.100.41 /api/orders";
+        assertThat(store.tryAcquire(leased, 30, 3600).allowed()).isTrue();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(store.tryAcquire(unleased, 3, 3600).allowed()).isTrue();
+        }
+        RateLimitStore.Decision denied = store.tryAcquire(unleased, 3, 3600);
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.retryAfterNanos()).isPositive();
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT used FROM rate_limit_counters WHERE bucket_key = ?", Integer.class, unleased)).isEqualTo(3);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.demo.web;
+
+import com.example.demo.model.User;
+import com.example.demo.repository.CustomerRepository;
+import com.example.demo.service.JwtUtil;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class RateLimitFilterTests {
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Test
+    void bucketsAreKeyedByRouteTemplateAndReturnRetryAfter() throws Exception {
+        assertThat(RateLimitFilter.routeTemplate("/api/v1/orders/123/status")).isEqualTo("/api/orders/{id}/status");
+        assertThat(RateLimitFilter.routeTemplate("/api/orders/456/status")).isEqualTo("/api/orders/{id}/status");
+        assertThat(RateLimitFilter.routeTemplate("/api/support/messages/9f1c2d3e-0000-4000-8000-000000000001/mark-read"))
+            .isEqualTo("/api/support/messages/{id}/mark-read");
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(postThroughRateLimit("/api/v1/auth/login").getStatus()).isEqualTo(200);
+        }
+        MockHttpServletResponse limited = postThroughRateLimit("/auth/login");
+        assertThat(limited.getStatus()).isEqualTo(429);
+        assertThat(limited.getHeader(HttpHeaders.RETRY_AFTER)).isNotNull();
+    }
+
+    @Test
+    void expensiveGetsAreChargedAgainstThePerUserQuota() throws Exception {
+        User heavy = saveUser("quota_heavy", "quota-heavy@example.com", "RESTAURANT");
+        User light = saveUser("quota_light", "quota-light@example.com", "CUSTOMER");
+        String heavyToken = jwtUtil.generateToken(heavy, null);
+
+        // 600 per window at 50 per analytics call: twelve fit, the thirteenth does not.
+        int previous = Integer.MAX_VALUE;
+        for (int i = 0; i < 12; i++) {
+            MockHttpServletResponse response = getThroughRateLimit("/api/v1/restaurants/42/analytics", heavyToken);
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getHeader("RateLimit-Limit")).isEqualTo("600");
+            int remaining = Integer.parseInt(response.getHeader("RateLimit-Remaining"));
+            assertThat(remaining).isLessThan(previous);
+            previous = remaining;
+        }
+        MockHttpServletResponse limited = getThroughRateLimit("/api/restaurants/42/analytics", heavyToken);
+        assertThat(limited.getStatus()).isEqualTo(429);
+        assertThat(limited.getHeader(HttpHeaders.RETRY_AFTER)).isNotNull();
+
+        // Same IP, different user: a separate quota, and cheap reads cost one.
+        MockHttpServletResponse menu = getThroughRateLimit("/api/v1/restaurants/42/menu", jwtUtil.generateToken(light, null));
+        assertThat(menu.getStatus()).isEqualTo(200);
+        assertThat(menu.getHeader("RateLimit-Remaining")).isEqualTo("599");
+    }
+
+    @Test
+    void anonymousClientsBehindAPrivateLoadBalancerGetSeparateBucketsByDefault() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertThat(postBehindProxy("198.51.100.71").getStatus()).isEqualTo(200);
+        }
+        assertThat(postBehindProxy("198.51.100.71").getStatus()).isEqualTo(429);
+        // Same load balancer, another client: its login bucket is untouched.
+        assertThat(postBehindProxy("198.51.100.72").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void forwardedForIsIgnoredUnlessProxiesAreTrusted() {
+        RateLimitFilter filter = filter("");
+        MockHttpServletRequest request = request("203.0.113.10", "198.51.100.99");
+
+        assertThat(filter.clientKey(request)).isEqualTo("203.0.113.10");
+    }
+
+    @Test
+    void trustedProxiesAreSkippedFromTheRightOfForwardedFor() {
+        RateLimitFilter filter = filter("10.0.0.0/8, 192.0.2.7");
+
+        // The leftmost hop is whatever the client sent; the proxies appended the rest.
+        assertThat(filter.clientKey(request("10.1.2.3", "198.51.100.99, 203.0.113.10, 192.0.2.7")))
+            .isEqualTo("203.0.113.10");
+        // A request that did not come through a trusted proxy cannot choose its key.
+        assertThat(filter.clientKey(request("203.0.113.20", "198.51.100.99"))).isEqualTo("203.0.113.20");
+        // Hops that are not IP literals are never trusted, so they end the walk.
+        assertThat(filter.clientKey(request("10.1.2.3", "198.51.100.99, proxy.internal, 10.0.0.5")))
+            .isEqualTo("proxy.internal");
+    }
+
+    @Test
+    void wrappersThatRewriteTheRemoteAddressAreSeenThrough() {
+        RateLimitFilter filter = filter("");
+        // As ForwardedHeaderFilter does with the first X-Forwarded-For hop.
+        HttpServletRequestWrapper rewritten = new HttpServletRequestWrapper(request("203.0.113.10", "198.51.100.99")) {
+            @Override
+            public String getRemoteAddr() {
+                return "198.51.100.99";
+            }
+
+            @Override
+            public String getHeader(String name) {
+                return null;
+            }
+        };
+
+        assertThat(filter.clientKey(rewritten)).isEqualTo("203.0.113.10");
+    }
+
+    private MockHttpServletResponse postThroughRateLimit(String path) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr("203.0.113.35");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private MockHttpServletResponse postBehindProxy(String client) throws Exception {
+        MockHttpServletRequest request = request("10.0.4.2", client);
+        request.setRequestURI("/api/v1/auth/login");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private MockHttpServletResponse getThroughRateLimit(String path, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr("203.0.113.37");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private User saveUser(String username, String email, String role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPassword("$2a$10$abcdefghijklmnopqrstuuCJ4CkO0mxfMwrUi7Y3sq7Qo7E7oIb5a");
+        user.setRole(role);
+        user.setProvider("LOCAL");
+        user.setIsBlocked(false);
+        return customerRepository.save(user);
+    }
+
+    private static RateLimitFilter filter(String trustedProxies) {
+        RateLimitFilter filter = new RateLimitFilter();
+        ReflectionTestUtils.setField(filter, "trustedProxiesSpec", trustedProxies);
+        filter.parseTrustedProxies();
+        return filter;
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/orders");
+        request.setRemoteAddr(remoteAddr);
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.web;
+
+import com.example.demo.config.JwtRequestFilter;
+import com.example.demo.model.Restaurant;
+import com.example.demo.model.User;
+import com.example.demo.repository.CustomerRepository;
+import com.example.demo.repository.RestaurantRepository;
+import com.example.demo.service.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class RequestMetricsTests {
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private JwtRequestFilter jwtRequestFilter;
+    @Autowired
+    private RequestIdFilter requestIdFilter;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    @Qualifier("springSecurityFilterChain")
+    private Filter springSecurityFilterChain;
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Test
+    void requestsAreTaggedByRouteTemplateRoleAndOutcome() throws Exception {
+        Restaurant restaurant = saveRestaurant("Metrics Owner", "metrics-owner@example.com", "Metrics Kitchen");
+        User customer = saveUser("metrics_buyer", "metrics-buyer@example.com", "CUSTOMER");
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+            .addFilters(requestIdFilter, springSecurityFilterChain, jwtRequestFilter)
+            .build();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/restaurants/" + restaurant.getId()));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/restaurants/" + restaurant.getId()));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/orders/my")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(customer, null)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/no-such-route/" + restaurant.getId()));
+
+        Timer byId = meterRegistry.find("foodly.http.requests")
+            .tags("method", "GET", "route", "/api/restaurants/{id}", "role", "ANONYMOUS", "outcome", "SUCCESS")
+            .timer();
+        assertThat(byId).isNotNull();
+        assertThat(byId.count()).isEqualTo(2);
+        assertThat(byId.takeSnapshot().histogramCounts())
+            .anySatisfy(bucket -> assertThat(bucket.bucket(TimeUnit.MILLISECONDS)).isEqualTo(250.0));
+        assertThat(meterRegistry.find("foodly.http.db.statements").tags("route", "/api/restaurants/{id}")
+            .summary().count()).isEqualTo(2);
+        assertThat(meterRegistry.find("foodly.http.requests").tags("route", "/api/orders/my", "role", "CUSTOMER")
+            .timer()).isNotNull();
+        assertThat(meterRegistry.find("foodly.http.requests").tags("route", "UNMATCHED").timer()).isNotNull();
+        assertThat(meterRegistry.find("foodly.http.requests").tagKeys("route").timers())
+            .noneMatch(timer -> timer.getId().getTag("route").contains(restaurant.getId().toString()));
+    }
+
+    private User saveUser(String username, String email, String role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPassword("$2a$10$abcdefghijklmnopqrstuuCJ4CkO0mxfMwrUi7Y3sq7Qo7E7oIb5a");
+        user.setRole(role);
+        user.setProvider("LOCAL");
+        user.setIsBlocked(false);
+        return customerRepository.save(user);
+    }
+
+    private Restaurant saveRestaurant(String ownerName, String ownerEmail, String restaurantName) {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName(restaurantName);
+        restaurant.setOwner(saveUser(ownerName, ownerEmail, "RESTAURANT"));
+        restaurant.setIsActive(true);
+        restaurant.setSlug(restaurantName.toLowerCase().replace(" ", "-"));
+        return restaurantRepository.save(restaurant);
+    }
+}
@@ -25,6 +25,7 @@ CREATE TABLE IF NOT EXISTS users (
     email_verified BOOLEAN DEFAULT FALSE,
     last_login_at TIMESTAMP,
     disabled_at TIMESTAMP,
+    token_version INTEGER NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     CONSTRAINT chk_users_role CHECK (role IN ('CUSTOMER', 'RESTAURANT', 'RESTAURANT_OWNER', 'ADMIN')),
@@ -69,6 +70,7 @@ CREATE TABLE IF NOT EXISTS orders (
     status VARCHAR(50) NOT NULL,
     total DOUBLE PRECISION NOT NULL CHECK (total >= 0),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    closed_at TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     FOREIGN KEY (restaurant_id) REFERENCES restaurants(id) ON DELETE CASCADE,
     CONSTRAINT chk_orders_status CHECK (status IN ('New', 'Accepted', 'Preparing', 'Out for Delivery', 'Delivered', 'Cancelled', 'Refunded'))
@@ -158,12 +160,47 @@ CREATE TABLE IF NOT EXISTS chat_messages (
     message TEXT NOT NULL,
     timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     is_read BOOLEAN DEFAULT FALSE,
+    client_message_id VARCHAR(64),
     FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE SET NULL,
     FOREIGN KEY (customer_id) REFERENCES users(id) ON DELETE CASCADE,
     FOREIGN KEY (restaurant_id) REFERENCES restaurants(id) ON DELETE CASCADE,
     CONSTRAINT chk_chat_sender CHECK (sender IN ('customer', 'restaurant'))
 );
 
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    token_hash VARCHAR(64) NOT NULL UNIQUE,
+    family_id VARCHAR(36) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS token_revocations (
+    id BIGSERIAL PRIMARY KEY,
+    token_id VARCHAR(36),
+    user_id BIGINT,
+    revoked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    CONSTRAINT chk_token_revocations_target CHECK (token_id IS NOT NULL OR user_id IS NOT NULL)
+);
+
+CREATE TABLE IF NOT EXISTS rate_limit_counters (
+    bucket_key VARCHAR(200) NOT NULL,
+    window_start BIGINT NOT NULL,
+    used INTEGER NOT NULL,
+    expires_at BIGINT NOT NULL,
+    PRIMARY KEY (bucket_key, window_start)
+);
+
+CREATE TABLE IF NOT EXISTS content_versions (
+    scope VARCHAR(64) PRIMARY KEY,
+    version BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
 CREATE UNIQUE INDEX IF NOT EXISTS uq_wishlist_customer_restaurant
     ON wishlist (customer_id, restaurant_id)
     WHERE type = 'RESTAURANT' AND restaurant_id IS NOT NULL;
@@ -189,6 +226,7 @@ CREATE INDEX IF NOT EXISTS idx_orders_restaurant_status_created ON orders(restau
 CREATE INDEX IF NOT EXISTS idx_orders_user_created ON orders(user_id, created_at DESC);
 CREATE INDEX IF NOT EXISTS idx_orders_status ON orders(status);
 CREATE INDEX IF NOT EXISTS idx_orders_created_at ON orders(created_at);
+CREATE INDEX IF NOT EXISTS idx_orders_closed_at ON orders(closed_at) WHERE closed_at IS NOT NULL;
 CREATE INDEX IF NOT EXISTS idx_order_items_order_id ON order_items(order_id);
 CREATE INDEX IF NOT EXISTS idx_order_items_menu_item_id ON order_items(menu_item_id);
 CREATE INDEX IF NOT EXISTS idx_reviews_customer_id ON reviews(customer_id);
@@ -208,6 +246,21 @@ CREATE INDEX IF NOT EXISTS idx_chat_messages_customer_id ON chat_messages(custom
 CREATE INDEX IF NOT EXISTS idx_chat_messages_restaurant_id ON chat_messages(restaurant_id);
 CREATE INDEX IF NOT EXISTS idx_chat_messages_unread ON chat_messages(customer_id, restaurant_id, is_read);
 CREATE INDEX IF NOT EXISTS idx_chat_messages_timestamp ON chat_messages(timestamp);
+CREATE INDEX IF NOT EXISTS idx_chat_messages_customer_unread_feed
+    ON chat_messages (customer_id, timestamp DESC, id DESC)
+    WHERE is_read = FALSE AND sender = 'restaurant';
+CREATE INDEX IF NOT EXISTS idx_chat_messages_restaurant_unread_feed
+    ON chat_messages (restaurant_id, timestamp DESC, id DESC)
+    WHERE is_read = FALSE AND sender = 'customer';
+CREATE UNIQUE INDEX IF NOT EXISTS uq_chat_messages_order_sender_client_message_id
+    ON chat_messages (order_id, sender, client_message_id)
+    WHERE client_message_id IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_family ON refresh_tokens (family_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user ON refresh_tokens (user_id) WHERE revoked_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
+CREATE INDEX IF NOT EXISTS idx_token_revocations_expires_at ON token_revocations (expires_at);
+CREATE INDEX IF NOT EXISTS idx_rate_limit_counters_expires_at ON rate_limit_counters (expires_at);
+CREATE INDEX IF NOT EXISTS idx_content_versions_updated_at ON content_versions (updated_at);
 
 DROP TRIGGER IF EXISTS update_users_updated_at ON users;
 CREATE TRIGGER update_users_updated_at BEFORE UPDATE ON users
@@ -221,3 +274,13 @@ CREATE TRIGGER update_menu_items_updated_at BEFORE UPDATE ON menu_items
 DROP TRIGGER IF EXISTS update_offers_updated_at ON offers;
 CREATE TRIGGER update_offers_updated_at BEFORE UPDATE ON offers
     FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
+
+-- ETag versions start at 0 for every restaurant and for the offer list and catalog.
+INSERT INTO content_versions (scope, version, updated_at)
+SELECT 'restaurant:' || id, 0, CURRENT_TIMESTAMP FROM restaurants
+ON CONFLICT (scope) DO NOTHING;
+
+INSERT INTO content_versions (scope, version, updated_at) VALUES
+    ('offers', 0, CURRENT_TIMESTAMP),
+    ('catalog', 0, CURRENT_TIMESTAMP)
+ON CONFLICT (scope) DO NOTHING;
@@ -2,6 +2,7 @@ import React, { useCallback, useState, useEffect, useRef } from "react";
 import { FiMessageCircle, FiSend } from "react-icons/fi";
 import { api, API_ENDPOINTS } from "../../config/api";
 import { keepPreviousIfSame } from "../../utils/state";
+import { clientMessageIdFor } from "../../utils/chat";
 
 export default function SupportChatPage() {
   const [messages, setMessages] = useState([]);
@@ -11,6 +12,7 @@ export default function SupportChatPage() {
   const [refreshError, setRefreshError] = useState("");
   const userId = localStorage.getItem("userId");
   const messagesEndRef = useRef(null);
+  const pendingMessageRef = useRef(null);
   const params = new URLSearchParams(window.location.search);
   const orderId = params.get("orderId");
   const restaurantId = params.get("restaurantId");
@@ -79,10 +81,12 @@ export default function SupportChatPage() {
         sender: "customer",
         orderId: orderId,
         restaurantId: restaurantId,
-        message: input
+        message: input,
+        clientMessageId: clientMessageIdFor(pendingMessageRef, input)
       };
       
       const newMsg = await api.post(API_ENDPOINTS.SUPPORT_MESSAGES, messageData);
+      pendingMessageRef.current = null;
       setMessages(prev => [...prev, newMsg]);
       setInput("");
     } catch (err) {
@@ -1,6 +1,7 @@
-import React, { useState, useEffect, useCallback } from "react";
+import React, { useState, useEffect, useCallback, useRef } from "react";
 import { api, API_ENDPOINTS } from "../../config/api";
 import { keepPreviousIfSame } from "../../utils/state";
+import { clientMessageIdFor } from "../../utils/chat";
 
 export default function SupportPage() {
   const [messages, setMessages] = useState([]);
@@ -9,6 +10,7 @@ export default function SupportPage() {
   const [newMessage, setNewMessage] = useState("");
   const [sending, setSending] = useState(false);
   const [restaurantId, setRestaurantId] = useState(null);
+  const pendingMessageRef = useRef(null);
   const userId = localStorage.getItem("userId");
 
   const fetchRestaurantId = useCallback(async () => {
@@ -56,10 +58,12 @@ export default function SupportPage() {
       const messageData = {
         restaurantId: restaurantId,
         sender: "restaurant",
-        message: newMessage
+        message: newMessage,
+        clientMessageId: clientMessageIdFor(pendingMessageRef, newMessage)
       };
       
       const data = await api.post(API_ENDPOINTS.SUPPORT_MESSAGES, messageData);
+      pendingMessageRef.current = null;
       console.log("Sent support message:", data);
       setMessages(prev => [...prev, data]);
       setNewMessage("");
@@ -129,7 +133,7 @@ export default function SupportPage() {
           <div className="space-y-4">
             {messages.map((message) => (
               <div
-                key={message.id}
+                key={message.id ?? message.clientMessageId}
                 className={`p-4 rounded-xl border ${
                   message.senderType === "restaurant"
                     ? "bg-blue-50 border-blue-200 ml-8"
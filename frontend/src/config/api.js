@@ -12,6 +12,7 @@ export const API_ENDPOINTS = {
   SIGNUP: `${AUTH_PREFIX}/signup`,
   AUTH_ME: `${AUTH_PREFIX}/me`,
   LOGOUT: `${AUTH_PREFIX}/logout`,
+  REFRESH: `${AUTH_PREFIX}/refresh`,
   GOOGLE_LOGIN: `${AUTH_PREFIX}/google`,
   
   // Customer endpoints
@@ -121,8 +122,31 @@ const parseErrorMessage = async (response) => {
   }
 };
 
+// Access tokens are short-lived. On a 401 we renew them once with the refresh
+// cookie; concurrent requests share the same refresh call because each refresh
+// token can only be used once.
+let refreshInFlight = null;
+
+const refreshAccessToken = () => {
+  if (!refreshInFlight) {
+    refreshInFlight = fetch(`${API_BASE_URL}${API_ENDPOINTS.REFRESH}`, {
+      method: 'POST',
+      credentials: 'include',
+      headers: { 'X-Request-Id': createRequestId() },
+    })
+      .then((response) => response.ok)
+      .catch(() => false)
+      .finally(() => {
+        refreshInFlight = null;
+      });
+  }
+  return refreshInFlight;
+};
+
+const canRefresh = (endpoint) => !endpoint.startsWith(AUTH_PREFIX) || endpoint === API_ENDPOINTS.AUTH_ME;
+
 // Enhanced API utility functions with better error handling
-export const apiRequest = async (endpoint, options = {}) => {
+export const apiRequest = async (endpoint, options = {}, retried = false) => {
   const defaultOptions = {
     credentials: 'include',
     headers: {
@@ -145,6 +169,10 @@ export const apiRequest = async (endpoint, options = {}) => {
   
   try {
     const response = await fetch(url, config);
+
+    if (response.status === 401 && !retried && canRefresh(endpoint) && await refreshAccessToken()) {
+      return apiRequest(endpoint, options, true);
+    }
     
     if (!response.ok) {
       let errorMessage = await parseErrorMessage(response);
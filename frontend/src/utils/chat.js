@@ -0,0 +1,8 @@
+// A failed send keeps its text in the input; sending that same text again must
+// reuse the id so the server can tell the retry from a new message.
+export function clientMessageIdFor(pendingRef, text) {
+  if (!pendingRef.current || pendingRef.current.text !== text) {
+    pendingRef.current = { text, id: crypto.randomUUID() };
+  }
+  return pendingRef.current.id;
+}